@@ -50,14 +50,21 @@ public class Example {
         String batchTasksPath = args[9];
         String serviceFileId = args[10];
 
+        // All three clients share one tuned connection pool
+        SharedHttpTransport transport = new SharedHttpTransport(new SharedHttpTransport.PoolSettings()
+            .setMaxConnections(200)
+            .setResponseTimeout(Duration.ofSeconds(90)));
+
         // Initialize clients
         OpenAIAsyncClient azureKeyedClient = new OpenAIClientBuilder()
             .credential(new AzureKeyCredential(apiKey))
             .endpoint(ENDPOINT)
+            .httpClient(transport.getHttpClient())
             .buildAsyncClient();
 
         OpenAIAsyncClient openAPIKeyedClient = new OpenAIClientBuilder()
             .credential(new KeyCredential(openaiSecretKey))
+            .httpClient(transport.getHttpClient())
             .buildAsyncClient();
 
         // Initialize proxy client
@@ -69,16 +76,30 @@ public class Example {
         OpenAIClient azureKeyedProxiedClient = new OpenAIClientBuilder()
             .credential(new AzureKeyCredential(apiKey))
             .endpoint(ENDPOINT)
-            .clientOptions(new HttpClientOptions().setProxyOptions(proxyOptions))
+            .httpClient(transport.getHttpClient(proxyOptions))
+            .buildClient();
+
+        transport.warmUp(ENDPOINT, proxyOptions, 4, Duration.ofSeconds(10));
+
+        // Route across every key and endpoint we own instead of hardwiring one client
+        OpenAIClient openAPIKeyedSyncClient = new OpenAIClientBuilder()
+            .credential(new KeyCredential(openaiSecretKey))
+            .httpClient(transport.getHttpClient())
             .buildClient();
 
+        LoadBalancedOpenAIClient balancedClient = new LoadBalancedOpenAIClient(
+            Arrays.asList(
+                new LoadBalancedOpenAIClient.Backend("azure-proxied", azureKeyedProxiedClient, DEPLOYMENT_MODEL_NAME),
+                new LoadBalancedOpenAIClient.Backend("openai", openAPIKeyedSyncClient, DEPLOYMENT_MODEL_NAME)),
+            LoadBalancedOpenAIClient.Strategy.LATENCY_WEIGHTED,
+            5,
+            Duration.ofSeconds(30));
+
         // Completions example
         List<String> prompt = new ArrayList<>();
         prompt.add("Say this is a test");
 
-        Completions completions = azureKeyedProxiedClient.getCompletions(
-            DEPLOYMENT_MODEL_NAME, 
-            new CompletionsOptions(prompt));
+        Completions completions = balancedClient.getCompletions(new CompletionsOptions(prompt));
 
         System.out.printf("Model ID=%s is created at %s.%n", 
             completions.getId(), 
@@ -100,6 +121,25 @@ public class Example {
             DEPLOYMENT_MODEL_NAME,
             new ChatCompletionsOptions(chatMessages));
 
+        // Async fan-out example: many requests in flight on the event loop, no blocked threads
+        AsyncRequestEngine engine = new AsyncRequestEngine(
+            azureKeyedClient, DEPLOYMENT_MODEL_NAME, 256, Duration.ofSeconds(60));
+
+        Flux<ChatCompletionsOptions> evaluationRequests = Flux.range(0, 1000)
+            .map(i -> new ChatCompletionsOptions(Arrays.asList(
+                new ChatRequestUserMessage("Summarize document #" + i))));
+
+        engine.chat(evaluationRequests, false)
+            .filter(result -> !result.isSuccess())
+            .doOnNext(result -> System.err.println("Request " + result.getIndex() + " failed: " + result.getError()))
+            .blockLast();
+
+        AsyncRequestEngine openAIEngine = new AsyncRequestEngine(
+            openAPIKeyedClient, DEPLOYMENT_MODEL_NAME, 64, Duration.ofSeconds(60));
+        openAIEngine.completions(Flux.just(new CompletionsOptions(prompt)), true)
+            .doOnNext(result -> System.out.println("Completion " + result.getIndex() + " succeeded: " + result.isSuccess()))
+            .blockLast();
+
         // Audio transcription example
         Path filePath = Paths.get(audioFilePath, audioFileName);
         byte[] file = BinaryData.fromFile(filePath).toBytes();
@@ -164,5 +204,7 @@ public class Example {
             completeUploadRequest);
             
         System.out.println("Upload completed, upload ID = " + completeUpload.getId());
+        transport.printPoolMetrics();
+        balancedClient.printMetrics();
     }
 }
\ No newline at end of file
@@ -51,6 +51,17 @@ public class Example {
             System.out.printf("Index: %d, Text: %s.%n", choice.getIndex(), choice.getText());
         }
 
+        // Batch scoring: prompts are packed into multi-prompt requests and slow requests are hedged
+        try (CompletionsFanOut fanOut = new CompletionsFanOut(client, "{deploymentOrModelName}", 20, 4_000, 16, 0.05,
+            TokenCounter.approximate(), new LatencyHistogram("completions"))) {
+            List<String> scoringPrompts = Arrays.asList("Rate this review: great!", "Rate this review: awful.");
+            List<List<Choice>> scored = fanOut.complete(scoringPrompts, CompletionsOptions::new);
+            for (int i = 0; i < scored.size(); i++) {
+                System.out.printf("Prompt %d: %s%n", i, scored.get(i).get(0).getText());
+            }
+            fanOut.printMetrics();
+        }
+
         List<String> prompt = new ArrayList<>();
         prompt.add("How to bake a cake?");
 
@@ -76,36 +87,97 @@ public class Example {
             System.out.println(message.getContent());
         }
 
+        // Repeated prompts are served from memory or disk instead of the network; disk use is capped at 512 MB
+        CachingOpenAIClient cachingClient = new CachingOpenAIClient(client, 10_000, Duration.ofHours(1),
+                Paths.get("{your-cache-directory}"), 512L * 1024 * 1024)
+            .enableSemanticTier("{embeddingDeploymentName}", 0.97f);
+        for (int i = 0; i < 3; i++) {
+            cachingClient.getChatCompletions("{deploymentOrModelName}", new ChatCompletionsOptions(chatMessages));
+        }
+        cachingClient.printMetrics();
+
+        // Prompt sizes are known locally, before the request is sent
+        BpeTokenizer tokenizer = BpeTokenizer.load(Paths.get("{your-local-file-path}/cl100k_base.tiktoken"),
+            BpeTokenizer.Encoding.CL100K);
+        System.out.printf("Prompt tokens: %d.%n", tokenizer.count(new ChatCompletionsOptions(chatMessages)));
+
+        // Requests and tokens per minute are enforced per deployment before anything hits the wire
+        // The wrapped clients leave 429s to the limiter instead of retrying them in the pipeline
+        OpenAIClientBuilder limitedBuilder = new OpenAIClientBuilder()
+            .credential(new AzureKeyCredential("{key}"))
+            .endpoint("{endpoint}")
+            .retryOptions(RateLimitedOpenAIClient.retryOptions());
+        RateLimitedOpenAIClient rateLimitedClient = new RateLimitedOpenAIClient(limitedBuilder.buildClient(),
+                limitedBuilder.buildAsyncClient(), new RateLimitedOpenAIClient.Limits(600, 90_000, 32), 3, tokenizer)
+            .setLimits("{deploymentOrModelName}", new RateLimitedOpenAIClient.Limits(300, 40_000, 16));
+        rateLimitedClient.getChatCompletions("{deploymentOrModelName}", new ChatCompletionsOptions(chatMessages));
+        rateLimitedClient.printMetrics();
+
+        // Quotas follow deployments.<name>.requestsPerMinute etc. in the file, retuned on every save
+        ReloadableConfig reloadableConfig = new ReloadableConfig(Paths.get("{your-config-file}"), System.getenv())
+            .bind(rateLimitedClient)
+            .start();
+
         List<ChatRequestMessage> chatMessages = new ArrayList<>();
         chatMessages.add(new ChatRequestSystemMessage("You are a helpful assistant. You will talk like a pirate."));
         chatMessages.add(new ChatRequestUserMessage("Can you help me?"));
         chatMessages.add(new ChatRequestAssistantMessage("Of course, me hearty! What can I do for ye?"));
         chatMessages.add(new ChatRequestUserMessage("What's the best way to train a parrot?"));
 
-        client.getChatCompletionsStream("{deploymentOrModelName}", new ChatCompletionsOptions(chatMessages))
-            .forEach(chatCompletions -> {
-            if (CoreUtils.isNullOrEmpty(chatCompletions.getChoices())) {
-                return;
-            }
-            ChatResponseMessage delta = chatCompletions.getChoices().get(0).getDelta();
-            if (delta.getRole() != null) {
-                System.out.println("Role = " + delta.getRole());
-            }
-            if (delta.getContent() != null) {
-                String content = delta.getContent();
-                System.out.print(content);
-            }
-        });
+        // Deltas for every choice are reassembled into reused buffers and proxied as Server-Sent Events
+        LatencyHistogram timeToFirstToken = new LatencyHistogram("time to first token");
+        LatencyHistogram interTokenLatency = new LatencyHistogram("inter-token latency");
+        ChatStreamProcessor streamProcessor = new ChatStreamProcessor(timeToFirstToken, interTokenLatency);
+        streamProcessor.process(
+            client.getChatCompletionsStream("{deploymentOrModelName}", new ChatCompletionsOptions(chatMessages)),
+            new ChatStreamProcessor.SseSink(System.out));
+        System.out.println("Full message: " + streamProcessor.getChoice(0).getContent());
+        timeToFirstToken.print();
+        interTokenLatency.print();
+
+        // Long sessions: each message is tokenized once, and the history is trimmed in large steps
+        // so the front of the prompt stays stable and keeps hitting the service's prompt cache
+        ConversationStore conversations = new ConversationStore(TokenCounter.approximate(), 8_000, 0.6,
+            ConversationStore.Summarizer.using(client, "{summaryDeploymentName}", 256));
+        conversations.setPrefix("session-1", chatMessages.subList(0, 1));
+        conversations.append("session-1", new ChatRequestUserMessage("What's the best way to train a parrot?"));
+        ChatCompletions sessionReply = client.getChatCompletions("{deploymentOrModelName}",
+            new ChatCompletionsOptions(conversations.messages("session-1")));
+        conversations.append("session-1",
+            new ChatRequestAssistantMessage(sessionReply.getChoices().get(0).getMessage().getContent()));
+        conversations.printMetrics();
 
         EmbeddingsOptions embeddingsOptions = new EmbeddingsOptions(
         Arrays.asList("Your text string goes here"));
 
         Embeddings embeddings = client.getEmbeddings("{deploymentOrModelName}", embeddingsOptions);
 
+        // Each embedding is unboxed once into primitive float blocks and persisted for the next start
+        EmbeddingStore embeddingStore = new EmbeddingStore(embeddings.getData().get(0).getEmbedding().size());
         for (EmbeddingItem item : embeddings.getData()) {
-            System.out.printf("Index: %d.%n", item.getPromptIndex());
-            for (Float embedding : item.getEmbedding()) {
-                System.out.printf("%f;", embedding);
+            int row = embeddingStore.add(item);
+            System.out.printf("Index: %d stored as row %d.%n", item.getPromptIndex(), row);
+        }
+        embeddingStore.save(Paths.get("{your-local-file-path}/embeddings.bin"));
+        EmbeddingStore reloadedStore = EmbeddingStore.load(Paths.get("{your-local-file-path}/embeddings.bin"));
+        System.out.printf("Reloaded %d embeddings.%n", reloadedStore.size());
+
+        // Nearest-neighbour search over the stored vectors, with incremental inserts and snapshots
+        VectorIndex vectorIndex = new VectorIndex(reloadedStore, VectorIndex.Mode.HNSW);
+        for (VectorIndex.Match match : vectorIndex.search(reloadedStore.get(0), 5)) {
+            System.out.printf("Row %d, cosine similarity %f.%n", match.getRow(), match.getScore());
+        }
+        vectorIndex.snapshot(Paths.get("{your-local-file-path}/vector-index"));
+
+        // Single-text calls from many threads are coalesced into shared getEmbeddings requests
+        try (EmbeddingsBatcher batcher = new EmbeddingsBatcher(client, "{deploymentOrModelName}")) {
+            List<CompletableFuture<EmbeddingItem>> pendingEmbeddings = new ArrayList<>();
+            for (String text : Arrays.asList("first text", "second text", "third text")) {
+                pendingEmbeddings.add(batcher.submit(text));
+            }
+            for (CompletableFuture<EmbeddingItem> pendingEmbedding : pendingEmbeddings) {
+                System.out.printf("Batched embedding with %d dimensions.%n",
+                    pendingEmbedding.join().getEmbedding().size());
             }
         }
 
@@ -119,126 +191,42 @@ public class Example {
                 imageGenerationData.getUrl());
         }
 
+        // Generated images are downloaded in parallel before their temporary URLs expire, and stored
+        // once per distinct content
+        ImageCache imageCache = new ImageCache(Paths.get("{your-image-cache-directory}"),
+            1024L * 1024 * 1024, 8, 256);
+        for (Path imagePath : imageCache.saveAll(images)) {
+            System.out.println("Image saved to " + imagePath);
+        }
+
         String fileName = "{your-file-name}";
         Path filePath = Paths.get("{your-file-path}" + fileName);
 
-        byte[] file = BinaryData.fromFile(filePath).toBytes();
-        AudioTranscriptionOptions transcriptionOptions = new AudioTranscriptionOptions(file)
-            .setResponseFormat(AudioTranscriptionFormat.JSON);
-
-        AudioTranscription transcription = client.getAudioTranscription("{deploymentOrModelName}", fileName, transcriptionOptions);
+        StreamingTranscriber transcriber = new StreamingTranscriber(HttpClient.createDefault(), "{endpoint}", "{key}",
+            "{deploymentOrModelName}");
+        AudioTranscription transcription = transcriber.transcribe(filePath);
 
         System.out.println("Transcription: " + transcription.getText());
 
+        // Transcribe a whole directory, keeping at most 256 MB of audio in flight
+        Map<Path, AudioTranscription> transcriptions = transcriber.transcribeDirectory(
+            Paths.get("{your-audio-directory}"), "*.{mp3,wav,m4a}", 256L * 1024 * 1024, 8);
+        transcriptions.forEach((path, result) -> System.out.println(path + ": " + result.getText()));
+
         List<ChatRequestMessage> chatMessages = new ArrayList<>();
             chatMessages.add(new ChatRequestSystemMessage("You are a helpful assistant that describes images"));
             chatMessages.add(new ChatRequestUserMessage(Arrays.asList(
                     new ChatMessageTextContentItem("Please describe this image"),
-                    new ChatMessageImageContentItem(
-                            new ChatMessageImageUrl("https://upload.wikimedia.org/wikipedia/commons/thumb/4/44/Microsoft_logo.svg/512px-Microsoft_logo.svg.png"))
+                    // Fetched once, then sent inline as a data URL on every later call
+                    imageCache.contentItem("https://upload.wikimedia.org/wikipedia/commons/thumb/4/44/Microsoft_logo.svg/512px-Microsoft_logo.svg.png")
             )));
 
             ChatCompletionsOptions chatCompletionsOptions = new ChatCompletionsOptions(chatMessages);
             ChatCompletions chatCompletions = client.getChatCompletions("{deploymentOrModelName}", chatCompletionsOptions);
 
             System.out.println("Chat completion: " + chatCompletions.getChoices().get(0).getMessage().getContent());
-
-        List<ChatRequestMessage> chatMessages = Arrays.asList(
-        new ChatRequestSystemMessage("You are a helpful assistant."),
-        new ChatRequestUserMessage("What sort of clothing should I wear today in Berlin?"));
-
-        ChatCompletionsToolDefinition toolDefinition = new ChatCompletionsFunctionToolDefinition(
-                new ChatCompletionsFunctionToolDefinitionFunction("MyFunctionName"));
-
-        ChatCompletionsOptions chatCompletionsOptions = new ChatCompletionsOptions(chatMessages);
-        chatCompletionsOptions.setTools(Arrays.asList(toolDefinition));
-
-        ChatCompletions chatCompletions = client.getChatCompletions("{deploymentOrModelName}", chatCompletionsOptions);
-
-        ChatChoice choice = chatCompletions.getChoices().get(0);
-        // The LLM is requesting the calling of the function we defined in the original request
-        if (choice.getFinishReason() == CompletionsFinishReason.TOOL_CALLS) {
-            ChatCompletionsFunctionToolCall toolCall = (ChatCompletionsFunctionToolCall) choice.getMessage().getToolCalls().get(0);
-            String functionArguments = toolCall.getFunction().getArguments();
-
-            // As an additional step, you may want to deserialize the parameters, so you can call your function
-            MyFunctionCallArguments parameters = BinaryData.fromString(functionArguments).toObject(MyFunctionCallArguments.class);
-
-            String functionCallResult = "{the-result-of-my-function}"; // myFunction(parameters...);
-
-            ChatRequestAssistantMessage assistantMessage = new ChatRequestAssistantMessage("");
-            assistantMessage.setToolCalls(choice.getMessage().getToolCalls());
-
-            // We include:
-            // - The past 2 messages from the original request
-            // - A new ChatRequestAssistantMessage with the tool calls from the original request
-            // - A new ChatRequestToolMessage with the result of our function call
-            List<ChatRequestMessage> followUpMessages = Arrays.asList(
-                    chatMessages.get(0),
-                    chatMessages.get(1),
-                    assistantMessage,
-                    new ChatRequestToolMessage(functionCallResult, toolCall.getId())
-            );
-
-            ChatCompletionsOptions followUpChatCompletionsOptions = new ChatCompletionsOptions(followUpMessages);
-
-            ChatCompletions followUpChatCompletions = client.getChatCompletions("{deploymentOrModelName}", followUpChatCompletionsOptions);
-
-            // This time the finish reason is STOPPED
-            ChatChoice followUpChoice = followUpChatCompletions.getChoices().get(0);
-            if (followUpChoice.getFinishReason() == CompletionsFinishReason.STOPPED) {
-                System.out.println("Chat Completions Result: " + followUpChoice.getMessage().getContent());
-            }
-        }
-
-        List<ChatRequestMessage> chatMessages = Arrays.asList(
-        new ChatRequestSystemMessage("You are a helpful assistant."),
-        new ChatRequestUserMessage("What sort of clothing should I wear today in Berlin?")
-        );
-
-        ChatCompletionsToolDefinition toolDefinition = new ChatCompletionsFunctionToolDefinition(
-                new ChatCompletionsFunctionToolDefinitionFunction("MyFunctionName"));
-
-        ChatCompletionsOptions chatCompletionsOptions = new ChatCompletionsOptions(chatMessages);
-        chatCompletionsOptions.setTools(Arrays.asList(toolDefinition));
-
-        ChatCompletions chatCompletions = client.getChatCompletions("{deploymentOrModelName}", chatCompletionsOptions);
-
-        ChatChoice choice = chatCompletions.getChoices().get(0);
-        // The LLM is requesting the calling of the function we defined in the original request
-        if (choice.getFinishReason() == CompletionsFinishReason.TOOL_CALLS) {
-            ChatCompletionsFunctionToolCall toolCall = (ChatCompletionsFunctionToolCall) choice.getMessage().getToolCalls().get(0);
-            String functionArguments = toolCall.getFunction().getArguments();
-
-            // As an additional step, you may want to deserialize the parameters, so you can call your function
-            MyFunctionCallArguments parameters = BinaryData.fromString(functionArguments).toObject(MyFunctionCallArguments.class);
-
-            String functionCallResult = "{the-result-of-my-function}"; // myFunction(parameters...);
-
-            ChatRequestAssistantMessage assistantMessage = new ChatRequestAssistantMessage("");
-            assistantMessage.setToolCalls(choice.getMessage().getToolCalls());
-
-            // We include:
-            // - The past 2 messages from the original request
-            // - A new ChatRequestAssistantMessage with the tool calls from the original request
-            // - A new ChatRequestToolMessage with the result of our function call
-            List<ChatRequestMessage> followUpMessages = Arrays.asList(
-                    chatMessages.get(0),
-                    chatMessages.get(1),
-                    assistantMessage,
-                    new ChatRequestToolMessage(functionCallResult, toolCall.getId())
-            );
-
-            ChatCompletionsOptions followUpChatCompletionsOptions = new ChatCompletionsOptions(followUpMessages);
-
-            ChatCompletions followUpChatCompletions = client.getChatCompletions("{deploymentOrModelName}", followUpChatCompletionsOptions);
-
-            // This time the finish reason is STOPPED
-            ChatChoice followUpChoice = followUpChatCompletions.getChoices().get(0);
-            if (followUpChoice.getFinishReason() == CompletionsFinishReason.STOPPED) {
-                System.out.println("Chat Completions Result: " + followUpChoice.getMessage().getContent());
-            }
-        }
+            imageCache.printMetrics();
+            imageCache.close();
 
         List<ChatRequestMessage> chatMessages = Arrays.asList(
             new ChatRequestSystemMessage("You are a helpful assistant."),
@@ -247,6 +235,10 @@ public class Example {
         ChatCompletionsToolDefinition toolDefinition = new ChatCompletionsFunctionToolDefinition(
                 new ChatCompletionsFunctionToolDefinitionFunction("MyFunctionName"));
 
+        // Every tool call of a turn runs concurrently; pure tools are cached by their arguments
+        ToolCallExecutor toolExecutor = new ToolCallExecutor(1_000)
+            .register("MyFunctionName", arguments -> "{the-result-of-my-function}", Duration.ofSeconds(10), true);
+
         ChatCompletionsOptions chatCompletionsOptions = new ChatCompletionsOptions(chatMessages);
         chatCompletionsOptions.setTools(Arrays.asList(toolDefinition));
 
@@ -255,27 +247,16 @@ public class Example {
         ChatChoice choice = chatCompletions.getChoices().get(0);
         // The LLM is requesting the calling of the function we defined in the original request
         if (choice.getFinishReason() == CompletionsFinishReason.TOOL_CALLS) {
-            ChatCompletionsFunctionToolCall toolCall = (ChatCompletionsFunctionToolCall) choice.getMessage().getToolCalls().get(0);
-            String functionArguments = toolCall.getFunction().getArguments();
-
-            // As an additional step, you may want to deserialize the parameters, so you can call your function
-            MyFunctionCallArguments parameters = BinaryData.fromString(functionArguments).toObject(MyFunctionCallArguments.class);
-
-            String functionCallResult = "{the-result-of-my-function}"; // myFunction(parameters...);
-
             ChatRequestAssistantMessage assistantMessage = new ChatRequestAssistantMessage("");
             assistantMessage.setToolCalls(choice.getMessage().getToolCalls());
 
             // We include:
             // - The past 2 messages from the original request
             // - A new ChatRequestAssistantMessage with the tool calls from the original request
-            // - A new ChatRequestToolMessage with the result of our function call
-            List<ChatRequestMessage> followUpMessages = Arrays.asList(
-                    chatMessages.get(0),
-                    chatMessages.get(1),
-                    assistantMessage,
-                    new ChatRequestToolMessage(functionCallResult, toolCall.getId())
-            );
+            // - One ChatRequestToolMessage per tool call with the result of our function call
+            List<ChatRequestMessage> followUpMessages = new ArrayList<>(chatMessages);
+            followUpMessages.add(assistantMessage);
+            followUpMessages.addAll(toolExecutor.executeAll(choice.getMessage().getToolCalls()));
 
             ChatCompletionsOptions followUpChatCompletionsOptions = new ChatCompletionsOptions(followUpMessages);
 
@@ -283,20 +264,34 @@ public class Example {
 
             // This time the finish reason is STOPPED
             ChatChoice followUpChoice = followUpChatCompletions.getChoices().get(0);
-            if (followUpChoice.getFinishReason() == CompletionsFinishReason.STOPPED) 
-            {
+            if (followUpChoice.getFinishReason() == CompletionsFinishReason.STOPPED) {
                 System.out.println("Chat Completions Result: " + followUpChoice.getMessage().getContent());
             }
         }
 
+        // The same exchange as a loop: tools start while the turn is still streaming, and the loop
+        // keeps going until the model answers without calling a tool
+        AgentLoop agentLoop = new AgentLoop(client, "{deploymentOrModelName}", toolExecutor, 5,
+            new LatencyHistogram("agent time to first token"), new LatencyHistogram("agent inter-token latency"));
+        System.out.println("Agent Result: " + agentLoop.run(chatMessages, Arrays.asList(toolDefinition)));
+        toolExecutor.printMetrics();
+
         String deploymentOrModelId = "{azure-open-ai-deployment-model-id}";
         SpeechGenerationOptions options = new SpeechGenerationOptions(
                 "Today is a wonderful day to build something people love!",
                 SpeechVoice.ALLOY);
-        BinaryData speech = client.generateSpeechFromText(deploymentOrModelId, options);
+        StreamingSpeechWriter speechWriter = new StreamingSpeechWriter(HttpClient.createDefault(), "{endpoint}", "{key}",
+                deploymentOrModelId);
         // Checkout your generated speech in the file system.
         Path path = Paths.get("{your-local-file-path}/speech.wav");
-        Files.write(path, speech.toBytes());
+        System.out.println(speechWriter.write(options, path).block());
+
+        // Bulk mode: one file per text, four requests in flight, timings reported per file
+        speechWriter.writeAll(
+                Arrays.asList("Good morning!", "Your order has shipped.", "Goodbye!"),
+                SpeechVoice.ALLOY, Paths.get("{your-local-file-path}"), 4)
+            .doOnNext(System.out::println)
+            .blockLast();
 
         // Upload a file
         FileDetails fileDetails = new FileDetails(
@@ -311,6 +306,17 @@ public class Example {
         // Delete file
         FileDeletionStatus deletionStatus = client.deleteFile(fileId);
 
+        // Large accounts: page through batches, index files locally, and delete expired artifacts concurrently
+        FileInventory inventory = new FileInventory(client, 100);
+        for (OpenAIFile assistantFile : inventory.listFiles(FilePurpose.ASSISTANTS)) {
+            System.out.println("Assistants file: " + assistantFile.getFilename());
+        }
+        inventory.refresh();
+        inventory.printSummary();
+        FileInventory.CollectionResult collected = inventory.collectGarbage(
+            Collections.singletonMap(FilePurpose.BATCH_OUTPUT, Duration.ofDays(30)), 600, 16);
+        System.out.println("Garbage collection: " + collected);
+
         String fileId = "{fileId-from-service-side}";
         // Create a batch
         Batch batch = client.createBatch(new BatchCreateRequest("/chat/completions", fileId, "24h"));
@@ -321,33 +327,70 @@ public class Example {
         // Cancel a batch
         Batch cancelledBatch = client.cancelBatch(batch.getId());
 
+        BatchJobRunner batchRunner = new BatchJobRunner(client, HttpClient.createDefault(), "{endpoint}", "{key}",
+            "{deploymentOrModelName}", Paths.get("{your-batch-work-directory}"));
+
+        // Let deadlines decide: urgent requests go to the sync endpoint, the rest ride the Batch API
+        try (DeadlineDispatcher dispatcher = new DeadlineDispatcher(client, "{deploymentOrModelName}", batchRunner,
+                Duration.ofHours(25), Duration.ofMinutes(10), 50_000, 5.0, 0.5)) {
+            ChatCompletionsOptions question = new ChatCompletionsOptions(Arrays.asList(
+                new ChatRequestUserMessage("What sort of clothing should I wear today in Berlin?")));
+            CompletableFuture<ChatCompletions> urgent = dispatcher.submit(question, Instant.now().plus(Duration.ofMinutes(1)));
+            CompletableFuture<ChatCompletions> overnight = dispatcher.submit(question, Instant.now().plus(Duration.ofDays(2)));
+            System.out.println("Urgent answer: " + urgent.join().getChoices().get(0).getMessage().getContent());
+            overnight.thenAccept(result -> System.out.println("Overnight answer arrived."));
+            dispatcher.printMetrics();
+        }
+
+        // Large batch jobs: shard the requests, submit every shard, then join results by custom_id
+        try (BatchJobRunner.ShardWriter shardWriter = batchRunner.newShardWriter("evaluation")) {
+            for (int i = 0; i < 100_000; i++) {
+                shardWriter.add("request-" + i, new ChatCompletionsOptions(Arrays.asList(
+                    new ChatRequestUserMessage("Summarize document #" + i))));
+            }
+            shardWriter.close();
+            for (Batch submitted : batchRunner.submit(shardWriter.getShards(), 4)) {
+                Batch finished = batchRunner.awaitCompletion(submitted.getId(),
+                    Duration.ofSeconds(30), Duration.ofMinutes(15), Duration.ofHours(25));
+                batchRunner.join(finished, shardWriter, (customId, requestLine, result, error) ->
+                    System.out.println(customId + (error == null ? " succeeded" : " failed: " + error)));
+            }
+        }
+
+        // The schema is generated from the class, and responses are decoded and validated in one pass
+        SchemaCodec<WeatherReport> weatherCodec = SchemaCodec.of(WeatherReport.class);
         ChatCompletionsOptions chatCompletionsOptions = new ChatCompletionsOptions(Arrays.asList(new ChatRequestUserMessage("What is the weather in Seattle?")))
             // Previously, the response_format parameter was only available to specify that the model should return a valid JSON.
             // In addition to this, we are introducing a new way of specifying which JSON schema to follow.
-            .setResponseFormat(new ChatCompletionsJsonSchemaResponseFormat(
-                new ChatCompletionsJsonSchemaResponseFormatJsonSchema("get_weather")
-                    .setStrict(true)
-                    .setDescription("Fetches the weather in the given location")
-                    .setSchema(BinaryData.fromObject(new Parameters()))));
+            .setResponseFormat(weatherCodec.responseFormat("get_weather", "Fetches the weather in the given location"));
+        WeatherReport weatherReport = weatherCodec.decode(client.getChatCompletions("{deploymentOrModelName}",
+            chatCompletionsOptions).getChoices().get(0).getMessage().getContent());
+        System.out.printf("%s: %.1f %s, %s.%n", weatherReport.location(), weatherReport.temperature(),
+            weatherReport.unit(), weatherReport.conditions());
+
+        // Streamed: the object is validated while it arrives and is complete with the last delta
+        SchemaCodec.Decoder<WeatherReport> weatherDecoder = weatherCodec.newDecoder();
+        new ChatStreamProcessor(timeToFirstToken, interTokenLatency).process(
+            client.getChatCompletionsStream("{deploymentOrModelName}", chatCompletionsOptions), weatherDecoder);
+        WeatherReport streamedReport = weatherDecoder.finish();
         
-                    CreateUploadRequest createUploadRequest = new CreateUploadRequest("{fileNameToCreate}", CreateUploadRequestPurpose.ASSISTANTS,
-                    totalFilesSize, "text/plain");
-                Upload upload = client.createUpload(createUploadRequest);
-                String uploadId = upload.getId();
-                
-                UploadPart uploadPartAdded = client.addUploadPart(uploadId,
-                    new AddUploadPartRequest(new DataFileDetails(BinaryData.fromFile(path)).setFilename("{fileName}")));
-                String uploadPartAddedId = uploadPartAdded.getId();
-                System.out.println("Upload part added, upload part ID = " + uploadPartAddedId);
-                
-                UploadPart uploadPartAdded2 = client.addUploadPart(uploadId,
-                    new AddUploadPartRequest(new DataFileDetails(BinaryData.fromFile(path2)).setFilename("{fileName2}")));
-                String uploadPartAddedId2 = uploadPartAdded2.getId();
-                System.out.println("Upload part 2 added, upload part ID = " + uploadPartAddedId2);
-                
-                CompleteUploadRequest completeUploadRequest = new CompleteUploadRequest(Arrays.asList(uploadPartAddedId, uploadPartAddedId2));
-                Upload completeUpload = client.completeUpload(uploadId, completeUploadRequest);
-                System.out.println("Upload completed, upload ID = " + completeUpload.getId());
+        // Large files are split into memory-mapped parts and uploaded in parallel.
+        // Parts that succeeded are kept, so a failed upload resumes instead of restarting.
+        ChunkedUploader uploader = new ChunkedUploader(client, ChunkedUploader.DEFAULT_PART_SIZE, 4, 3);
+        Upload completeUpload = uploader.upload(path, "{fileNameToCreate}",
+            CreateUploadRequestPurpose.ASSISTANTS, "text/plain");
+        System.out.println("Upload completed, upload ID = " + completeUpload.getId());
+    }
+
+    /**
+     * Structured output of the get_weather response format; its schema is generated by {@link SchemaCodec}.
+     */
+    record WeatherReport(String location, double temperature, TemperatureUnit unit, String conditions) {
+    }
+
+    enum TemperatureUnit {
+        CELSIUS,
+        FAHRENHEIT
     }
 }
 
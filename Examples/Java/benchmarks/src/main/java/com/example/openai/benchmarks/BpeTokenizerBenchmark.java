@@ -0,0 +1,87 @@
+package com.example.openai.benchmarks;
+
+import com.example.openai.BpeTokenizer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of {@link BpeTokenizer} on a chat-sized prompt and on a large document. Run with
+ * {@code -p vocabulary=/path/to/cl100k_base.tiktoken}; {@code -prof gc} confirms that counting
+ * does not allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BpeTokenizerBenchmark {
+    @Param({"cl100k_base.tiktoken"})
+    public String vocabulary;
+
+    @Param({"CL100K"})
+    public BpeTokenizer.Encoding encoding;
+
+    private BpeTokenizer tokenizer;
+    private String prompt;
+    private String document;
+    private int[] tokens;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path file = Paths.get(vocabulary);
+        if (!Files.isRegularFile(file)) {
+            // The vocabulary is not shipped; the default only works when run from its directory
+            throw new IllegalStateException("Vocabulary file " + file.toAbsolutePath() + " not found. Download "
+                + "cl100k_base.tiktoken and run with -p vocabulary=/path/to/cl100k_base.tiktoken");
+        }
+        tokenizer = BpeTokenizer.load(file, encoding);
+        prompt = "You are a helpful assistant. What sort of clothing should I wear today in Berlin? "
+            + "The forecast says 12°C, light rain in the afternoon and wind from the north-west.";
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 4 * 1024 * 1024) {
+            builder.append(prompt).append('\n');
+        }
+        document = builder.toString();
+        tokens = new int[4096];
+    }
+
+    @Benchmark
+    public int countPrompt() {
+        return tokenizer.count(prompt);
+    }
+
+    @Benchmark
+    public int encodePrompt() {
+        return tokenizer.encode(prompt, tokens);
+    }
+
+    @Benchmark
+    public int truncatePrompt() {
+        return tokenizer.truncateIndex(prompt, 16);
+    }
+
+    @Benchmark
+    public int countDocument() {
+        return tokenizer.count(document);
+    }
+
+    @Benchmark
+    public long countDocumentParallel() {
+        return tokenizer.countParallel(document);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.openai.benchmarks;
+
+import com.azure.ai.openai.models.ChatCompletions;
+import com.azure.json.JsonProviders;
+import com.azure.json.JsonReader;
+import com.example.openai.ChatStreamProcessor;
+import com.example.openai.LatencyHistogram;
+import com.example.openai.MockOpenAIServer;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Per-stream cost of handling {@code getChatCompletionsStream} chunks: decoding each event into
+ * {@link ChatCompletions}, as the client does, and then reassembling it in
+ * {@link ChatStreamProcessor}. One operation is one whole stream.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatStreamBenchmark {
+    private static final ChatStreamProcessor.StreamSink DISCARD = new ChatStreamProcessor.StreamSink() {
+        @Override
+        public void onContent(int choiceIndex, CharSequence fragment) {
+        }
+
+        @Override
+        public void onToolCall(int choiceIndex, int toolCallIndex, String functionName,
+                               CharSequence argumentsFragment) {
+        }
+    };
+
+    @Param({"16", "256"})
+    public int completionTokens;
+
+    private List<byte[]> events;
+    private ChatStreamProcessor processor;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (MockOpenAIServer mock = new MockOpenAIServer(0, Fixtures.instantSettings())) {
+            events = Fixtures.events(Fixtures.post(mock, "chat/completions",
+                "{\"messages\":[{\"role\":\"user\",\"content\":\"hi\"}],\"stream\":true,\"max_tokens\":"
+                    + completionTokens + "}"));
+        }
+        processor = new ChatStreamProcessor(new LatencyHistogram("Time to first token"),
+            new LatencyHistogram("Inter-token latency"));
+    }
+
+    @Benchmark
+    public void decodeChunks(Blackhole blackhole) throws IOException {
+        for (byte[] event : events) {
+            try (JsonReader reader = JsonProviders.createReader(event)) {
+                blackhole.consume(ChatCompletions.fromJson(reader));
+            }
+        }
+    }
+
+    @Benchmark
+    public int decodeAndProcessChunks() throws IOException {
+        processor.start();
+        for (byte[] event : events) {
+            try (JsonReader reader = JsonProviders.createReader(event)) {
+                processor.accept(ChatCompletions.fromJson(reader), DISCARD);
+            }
+        }
+        return processor.getChoice(0).getContent().length();
+    }
+}
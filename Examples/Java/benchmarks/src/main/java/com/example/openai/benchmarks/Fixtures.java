@@ -0,0 +1,77 @@
+package com.example.openai.benchmarks;
+
+import com.azure.ai.openai.models.ChatRequestAssistantMessage;
+import com.azure.ai.openai.models.ChatRequestMessage;
+import com.azure.ai.openai.models.ChatRequestSystemMessage;
+import com.azure.ai.openai.models.ChatRequestUserMessage;
+import com.example.openai.MockOpenAIServer;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response bodies for the benchmarks, captured from a {@link MockOpenAIServer} so that they have
+ * the service's shape without a recorded file or a network round trip during measurement.
+ */
+final class Fixtures {
+    private Fixtures() {
+    }
+
+    /**
+     * A mock that answers immediately and generates tokens as fast as it can write them.
+     */
+    static MockOpenAIServer.Settings instantSettings() {
+        return new MockOpenAIServer.Settings()
+            .setMedianLatency(Duration.ZERO)
+            .setLatencySigma(0)
+            .setTokensPerSecond(Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Body of a POST to {@code operation} on a deployment of {@code mock}.
+     */
+    static byte[] post(MockOpenAIServer mock, String operation, String body) throws IOException {
+        java.net.http.HttpClient httpClient = java.net.http.HttpClient.newHttpClient();
+        java.net.http.HttpRequest request = java.net.http.HttpRequest
+            .newBuilder(URI.create(mock.getEndpoint() + "/openai/deployments/gpt-4o/" + operation))
+            .header("Content-Type", "application/json")
+            .POST(java.net.http.HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        try {
+            return httpClient.send(request, java.net.http.HttpResponse.BodyHandlers.ofByteArray()).body();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * The {@code data:} payloads of a Server-Sent Events body, without the closing {@code [DONE]}.
+     */
+    static List<byte[]> events(byte[] body) {
+        List<byte[]> events = new ArrayList<>();
+        for (String line : new String(body, StandardCharsets.UTF_8).split("\n")) {
+            if (line.startsWith("data: ") && !line.equals("data: [DONE]")) {
+                events.add(line.substring("data: ".length()).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return events;
+    }
+
+    /**
+     * A conversation of {@code count} alternating user and assistant turns after a system prompt.
+     */
+    static List<ChatRequestMessage> conversation(int count) {
+        List<ChatRequestMessage> messages = new ArrayList<>();
+        messages.add(new ChatRequestSystemMessage("You are a helpful assistant. Answer briefly and cite sources."));
+        for (int i = 0; i < count; i++) {
+            String text = "Turn " + i + ": what sort of clothing should I wear today in Berlin, given a forecast "
+                + "of 12°C, light rain in the afternoon and wind from the north-west?";
+            messages.add(i % 2 == 0 ? new ChatRequestUserMessage(text) : new ChatRequestAssistantMessage(text));
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.openai.benchmarks;
+
+import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.OpenAIClientBuilder;
+import com.azure.ai.openai.models.ChatCompletions;
+import com.azure.ai.openai.models.ChatCompletionsOptions;
+import com.azure.ai.openai.models.Embeddings;
+import com.azure.ai.openai.models.EmbeddingsOptions;
+import com.example.openai.MockOpenAIServer;
+import com.example.openai.SharedHttpTransport;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end latency of client calls against an in-process {@link MockOpenAIServer} that answers
+ * immediately, so the figures are client and transport overhead: serialization, the HTTP stack and
+ * the connection pool. {@code transport=default} uses the builder's own HTTP client,
+ * {@code transport=shared} a {@link SharedHttpTransport} pool. Use {@code -t} to add concurrent callers.
+ * The fork turns off Nagle's algorithm in the mock, whose delayed ACKs would otherwise dominate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class RoundTripBenchmark {
+    @Param({"default", "shared"})
+    public String transport;
+
+    @Param({"16"})
+    public int completionTokens;
+
+    private MockOpenAIServer mock;
+    private SharedHttpTransport sharedTransport;
+    private OpenAIClient client;
+    private ChatCompletionsOptions options;
+    private EmbeddingsOptions embeddingsOptions;
+
+    @Setup
+    public void setUp() throws IOException {
+        mock = new MockOpenAIServer(0, Fixtures.instantSettings().setDefaultCompletionTokens(completionTokens));
+        // The mock is plain HTTP, so the key goes out as a header rather than through a credential
+        OpenAIClientBuilder builder = MockOpenAIServer.clientBuilder(mock.getEndpoint(), "mock");
+        if ("shared".equals(transport)) {
+            sharedTransport = new SharedHttpTransport(new SharedHttpTransport.PoolSettings().setMaxConnections(64));
+            builder.httpClient(sharedTransport.getHttpClient());
+        } else if (!"default".equals(transport)) {
+            throw new IllegalArgumentException("Unknown transport " + transport);
+        }
+        client = builder.buildClient();
+        options = new ChatCompletionsOptions(Fixtures.conversation(2)).setMaxTokens(completionTokens);
+        embeddingsOptions = new EmbeddingsOptions(Arrays.asList("Your text string goes here"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (sharedTransport != null) {
+            sharedTransport.close();
+        }
+        mock.close();
+    }
+
+    @Benchmark
+    public ChatCompletions chatCompletions() {
+        return client.getChatCompletions("gpt-4o", options);
+    }
+
+    @Benchmark
+    public int chatCompletionsStream() {
+        int chunks = 0;
+        for (ChatCompletions chunk : client.getChatCompletionsStream("gpt-4o", options)) {
+            chunks++;
+        }
+        return chunks;
+    }
+
+    @Benchmark
+    public Embeddings embeddings() {
+        return client.getEmbeddings("gpt-4o", embeddingsOptions);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.openai.benchmarks;
+
+import com.azure.ai.openai.models.ChatCompletions;
+import com.azure.ai.openai.models.ChatCompletionsOptions;
+import com.azure.ai.openai.models.Embeddings;
+import com.azure.core.util.BinaryData;
+import com.azure.json.JsonProviders;
+import com.azure.json.JsonReader;
+import com.azure.json.JsonWriter;
+import com.example.openai.MockOpenAIServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of turning requests into JSON and responses back into models, both through azure-json
+ * directly and through {@link BinaryData}, which is the path the client's convenience methods take.
+ * Run with {@code -prof gc} to see allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"2", "32"})
+    public int messageCount;
+
+    @Param({"1536", "3072"})
+    public int embeddingDimensions;
+
+    private ChatCompletionsOptions options;
+    private byte[] chatCompletions;
+    private byte[] embeddings;
+
+    @Setup
+    public void setUp() throws IOException {
+        options = new ChatCompletionsOptions(Fixtures.conversation(messageCount))
+            .setMaxTokens(256)
+            .setTemperature(0.2);
+        try (MockOpenAIServer mock = new MockOpenAIServer(0,
+            Fixtures.instantSettings().setEmbeddingDimensions(embeddingDimensions))) {
+            chatCompletions = Fixtures.post(mock, "chat/completions",
+                "{\"messages\":[{\"role\":\"user\",\"content\":\"hi\"}],\"max_tokens\":256}");
+            StringBuilder inputs = new StringBuilder("{\"input\":[");
+            for (int i = 0; i < 16; i++) {
+                inputs.append(i == 0 ? "" : ",").append("\"document ").append(i).append('"');
+            }
+            embeddings = Fixtures.post(mock, "embeddings", inputs.append("]}").toString());
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeChatCompletionsOptions() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(1024);
+        try (JsonWriter writer = JsonProviders.createWriter(output)) {
+            options.toJson(writer);
+        }
+        return output.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] serializeChatCompletionsOptionsToBinaryData() {
+        return BinaryData.fromObject(options).toBytes();
+    }
+
+    @Benchmark
+    public ChatCompletions deserializeChatCompletions() throws IOException {
+        try (JsonReader reader = JsonProviders.createReader(chatCompletions)) {
+            return ChatCompletions.fromJson(reader);
+        }
+    }
+
+    @Benchmark
+    public ChatCompletions deserializeChatCompletionsFromBinaryData() {
+        return BinaryData.fromBytes(chatCompletions).toObject(ChatCompletions.class);
+    }
+
+    @Benchmark
+    public Embeddings deserializeEmbeddings() throws IOException {
+        try (JsonReader reader = JsonProviders.createReader(embeddings)) {
+            return Embeddings.fromJson(reader);
+        }
+    }
+
+    @Benchmark
+    public Embeddings deserializeEmbeddingsFromBinaryData() {
+        return BinaryData.fromBytes(embeddings).toObject(Embeddings.class);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.openai;
+
+import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.models.ChatCompletions;
+import com.azure.ai.openai.models.ChatCompletionsFunctionToolCall;
+import com.azure.ai.openai.models.ChatCompletionsOptions;
+import com.azure.ai.openai.models.ChatCompletionsToolCall;
+import com.azure.ai.openai.models.ChatCompletionsToolDefinition;
+import com.azure.ai.openai.models.ChatRequestAssistantMessage;
+import com.azure.ai.openai.models.ChatRequestMessage;
+import com.azure.ai.openai.models.ChatRequestToolMessage;
+import com.azure.ai.openai.models.CompletionsFinishReason;
+import com.azure.ai.openai.models.FunctionCall;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Chat loop that answers tool calls until the model stops asking for them. Each turn is streamed,
+ * and pure tools are started by a {@link ToolCallExecutor.Session} as soon as their arguments have
+ * arrived, so they run while the model is still emitting the rest of the turn. Tools with side
+ * effects start only once the turn has finished asking for them. Not thread-safe; use one loop per
+ * concurrent conversation.
+ */
+public class AgentLoop {
+    private final OpenAIClient client;
+    private final String deploymentOrModelName;
+    private final ToolCallExecutor executor;
+    private final int maxTurns;
+    private final ChatStreamProcessor streamProcessor;
+
+    /**
+     * @param maxTurns model round trips allowed before giving up on a final answer
+     */
+    public AgentLoop(OpenAIClient client, String deploymentOrModelName, ToolCallExecutor executor, int maxTurns,
+                     LatencyHistogram timeToFirstToken, LatencyHistogram interTokenLatency) {
+        this.client = client;
+        this.deploymentOrModelName = deploymentOrModelName;
+        this.executor = executor;
+        this.maxTurns = maxTurns;
+        this.streamProcessor = new ChatStreamProcessor(timeToFirstToken, interTokenLatency);
+    }
+
+    /**
+     * Runs the conversation and returns the content of the final answer. Assistant tool-call
+     * messages and tool results are appended to a copy of {@code messages}.
+     */
+    public String run(List<ChatRequestMessage> messages, List<ChatCompletionsToolDefinition> toolDefinitions)
+        throws IOException {
+        List<ChatRequestMessage> conversation = new ArrayList<>(messages);
+        for (int turn = 0; turn < maxTurns; turn++) {
+            ChatCompletionsOptions options = new ChatCompletionsOptions(conversation).setTools(toolDefinitions);
+            ToolCallExecutor.Session session = executor.newSession();
+            streamProcessor.start();
+            for (ChatCompletions chunk : client.getChatCompletionsStream(deploymentOrModelName, options)) {
+                streamProcessor.accept(chunk, session);
+            }
+
+            ChatStreamProcessor.ChoiceBuffer choice = streamProcessor.getChoice(0);
+            if (choice.getFinishReason() != CompletionsFinishReason.TOOL_CALLS || choice.getToolCallCount() == 0) {
+                return choice.getContent().toString();
+            }
+
+            List<ChatCompletionsToolCall> toolCalls = new ArrayList<>(choice.getToolCallCount());
+            List<CompletableFuture<String>> results = new ArrayList<>(choice.getToolCallCount());
+            for (int i = 0; i < choice.getToolCallCount(); i++) {
+                ChatStreamProcessor.ToolCallBuffer toolCall = choice.getToolCall(i);
+                String arguments = toolCall.getArguments().toString();
+                toolCalls.add(new ChatCompletionsFunctionToolCall(toolCall.getId(),
+                    new FunctionCall(toolCall.getFunctionName(), arguments)));
+                results.add(session.result(i, toolCall.getFunctionName(), arguments));
+            }
+
+            ChatRequestAssistantMessage assistantMessage = new ChatRequestAssistantMessage("");
+            assistantMessage.setToolCalls(toolCalls);
+            conversation.add(assistantMessage);
+            for (int i = 0; i < toolCalls.size(); i++) {
+                conversation.add(new ChatRequestToolMessage(executor.await(results.get(i)), toolCalls.get(i).getId()));
+            }
+        }
+        throw new IllegalStateException("No final answer after " + maxTurns + " turns");
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.openai;
+
+import com.azure.ai.openai.OpenAIAsyncClient;
+import com.azure.ai.openai.models.ChatCompletions;
+import com.azure.ai.openai.models.ChatCompletionsOptions;
+import com.azure.ai.openai.models.Completions;
+import com.azure.ai.openai.models.CompletionsOptions;
+import java.time.Duration;
+import java.util.function.Function;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+/**
+ * Drives large numbers of chat and completion requests through {@link OpenAIAsyncClient}. Requests
+ * are pulled from the source only as in-flight slots free up, so a source of millions of requests
+ * never gets ahead of the network, and no thread is blocked while requests are outstanding.
+ */
+public class AsyncRequestEngine {
+    /**
+     * Outcome of one request, tagged with the position of its input in the source.
+     */
+    public static class Result<T> {
+        private final long index;
+        private final T value;
+        private final Throwable error;
+
+        Result(long index, T value, Throwable error) {
+            this.index = index;
+            this.value = value;
+            this.error = error;
+        }
+
+        public long getIndex() {
+            return index;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    private final OpenAIAsyncClient client;
+    private final String deploymentOrModelName;
+    private final int maxInFlight;
+    private final Duration requestTimeout;
+
+    /**
+     * @param maxInFlight maximum number of requests outstanding at once
+     * @param requestTimeout time after which a single request is reported as failed
+     */
+    public AsyncRequestEngine(OpenAIAsyncClient client, String deploymentOrModelName, int maxInFlight,
+                              Duration requestTimeout) {
+        this.client = client;
+        this.deploymentOrModelName = deploymentOrModelName;
+        this.maxInFlight = maxInFlight;
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Sends every chat request. With {@code ordered} set, results are emitted in source order;
+     * otherwise they are emitted as soon as they complete.
+     */
+    public Flux<Result<ChatCompletions>> chat(Publisher<ChatCompletionsOptions> requests, boolean ordered) {
+        return run(requests, options -> client.getChatCompletions(deploymentOrModelName, options), ordered);
+    }
+
+    /**
+     * Sends every completions request; see {@link #chat} for ordering.
+     */
+    public Flux<Result<Completions>> completions(Publisher<CompletionsOptions> requests, boolean ordered) {
+        return run(requests, options -> client.getCompletions(deploymentOrModelName, options), ordered);
+    }
+
+    private <I, O> Flux<Result<O>> run(Publisher<I> requests, Function<I, Mono<O>> call, boolean ordered) {
+        // A failed request becomes a failed Result so one error does not cancel the whole run
+        Function<Tuple2<Long, I>, Mono<Result<O>>> send = indexed -> call.apply(indexed.getT2())
+            .timeout(requestTimeout)
+            .map(value -> new Result<>(indexed.getT1(), value, null))
+            .onErrorResume(error -> Mono.just(new Result<>(indexed.getT1(), null, error)));
+
+        Flux<Tuple2<Long, I>> source = Flux.from(requests).index();
+        return ordered
+            ? source.flatMapSequential(send, maxInFlight)
+            : source.flatMap(send, maxInFlight);
+    }
+}
@@ -0,0 +1,449 @@
+package com.example.openai;
+
+import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.OpenAIServiceVersion;
+import com.azure.ai.openai.models.Batch;
+import com.azure.ai.openai.models.BatchCreateRequest;
+import com.azure.ai.openai.models.BatchStatus;
+import com.azure.ai.openai.models.ChatCompletions;
+import com.azure.ai.openai.models.ChatCompletionsOptions;
+import com.azure.ai.openai.models.FileDetails;
+import com.azure.ai.openai.models.FilePurpose;
+import com.azure.ai.openai.models.OpenAIFile;
+import com.azure.core.exception.HttpResponseException;
+import com.azure.core.http.HttpClient;
+import com.azure.core.http.HttpHeaderName;
+import com.azure.core.http.HttpHeaders;
+import com.azure.core.http.HttpMethod;
+import com.azure.core.http.HttpPipeline;
+import com.azure.core.http.HttpPipelineBuilder;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.http.policy.AddHeadersPolicy;
+import com.azure.core.http.policy.RetryPolicy;
+import com.azure.core.util.BinaryData;
+import com.azure.core.util.Context;
+import com.azure.json.JsonProviders;
+import com.azure.json.JsonReader;
+import com.azure.json.JsonToken;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs chat requests through the Batch API at scale. Requests are streamed into sharded JSONL files
+ * that stay under the service's per-file limits, shards are uploaded and submitted concurrently,
+ * batches are polled with exponential backoff, and output and error files are parsed one line at a
+ * time and joined back to their input lines by {@code custom_id}. {@link OpenAIClient} only returns
+ * file content as a byte array, so result files are downloaded through an {@link HttpPipeline} and
+ * split into lines as the body arrives, without ever holding a whole file in memory.
+ */
+public class BatchJobRunner {
+    /**
+     * The service accepts input files of up to 200 MB and 50,000 requests; stay a little below.
+     */
+    public static final long DEFAULT_MAX_SHARD_BYTES = 190L * 1024 * 1024;
+    public static final int DEFAULT_MAX_SHARD_REQUESTS = 50_000;
+
+    private static final Set<BatchStatus> TERMINAL_STATUSES = new HashSet<>(Arrays.asList(
+        BatchStatus.COMPLETED, BatchStatus.FAILED, BatchStatus.EXPIRED, BatchStatus.CANCELLED));
+
+    /**
+     * Receives each output line joined with the request line that produced it. Exactly one of
+     * {@code completions} and {@code error} is set; {@code error} is the raw JSON error object.
+     */
+    @FunctionalInterface
+    public interface JoinHandler {
+        void onResult(String customId, String requestLine, ChatCompletions completions, String error)
+            throws IOException;
+    }
+
+    /**
+     * Streams requests into numbered JSONL shards and remembers where each {@code custom_id} was
+     * written, so results can later be joined without keeping the requests in memory.
+     */
+    public static class ShardWriter implements AutoCloseable {
+        private final Path directory;
+        private final String prefix;
+        private final String model;
+        private final long maxShardBytes;
+        private final int maxShardRequests;
+        private final List<Path> shards = new ArrayList<>();
+        // custom_id -> shard index in the top 24 bits, byte offset of its line in the low 40 bits
+        private final Map<String, Long> locations = new HashMap<>();
+
+        private OutputStream output;
+        private long shardBytes;
+        private int shardRequests;
+
+        ShardWriter(Path directory, String prefix, String model, long maxShardBytes, int maxShardRequests) {
+            this.directory = directory;
+            this.prefix = prefix;
+            this.model = model;
+            this.maxShardBytes = maxShardBytes;
+            this.maxShardRequests = maxShardRequests;
+        }
+
+        public synchronized void add(String customId, ChatCompletionsOptions options) throws IOException {
+            if (locations.containsKey(customId)) {
+                throw new IllegalArgumentException("Duplicate custom_id: " + customId);
+            }
+            String body = BinaryData.fromObject(options).toString();
+            // The model travels in the body for batch requests
+            String bodyWithModel = "{\"model\":" + jsonString(model) + (body.length() > 2 ? "," : "") + body.substring(1);
+            byte[] line = ("{\"custom_id\":" + jsonString(customId)
+                + ",\"method\":\"POST\",\"url\":\"/chat/completions\",\"body\":" + bodyWithModel + "}\n")
+                .getBytes(StandardCharsets.UTF_8);
+
+            if (output == null || shardBytes + line.length > maxShardBytes || shardRequests >= maxShardRequests) {
+                roll();
+            }
+            locations.put(customId, ((long) (shards.size() - 1) << 40) | shardBytes);
+            output.write(line);
+            shardBytes += line.length;
+            shardRequests++;
+        }
+
+        public synchronized List<Path> getShards() {
+            return new ArrayList<>(shards);
+        }
+
+        /**
+         * Reads back the request line written for {@code customId}, or {@code null} if there is none.
+         * Use {@link #openReader()} for more than a few lookups.
+         */
+        public String readRequestLine(String customId) throws IOException {
+            try (RequestReader reader = openReader()) {
+                return reader.read(customId);
+            }
+        }
+
+        /**
+         * Opens a reader that keeps each shard open across lookups.
+         */
+        public RequestReader openReader() {
+            return new RequestReader();
+        }
+
+        /**
+         * Looks up request lines by {@code custom_id}. Not thread-safe.
+         */
+        public class RequestReader implements AutoCloseable {
+            private final Map<Integer, SeekableByteChannel> channels = new HashMap<>();
+            private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+            /**
+             * Returns the request line written for {@code customId}, or {@code null} if there is none.
+             */
+            public String read(String customId) throws IOException {
+                Long location;
+                Path shard;
+                synchronized (ShardWriter.this) {
+                    location = locations.get(customId);
+                    if (location == null) {
+                        return null;
+                    }
+                    shard = shards.get((int) (location >>> 40));
+                }
+                SeekableByteChannel channel = channels.get((int) (location >>> 40));
+                if (channel == null) {
+                    channel = Files.newByteChannel(shard, StandardOpenOption.READ);
+                    channels.put((int) (location >>> 40), channel);
+                }
+                channel.position(location & ((1L << 40) - 1));
+                line.reset();
+                buffer.clear();
+                while (channel.read(buffer) > 0) {
+                    buffer.flip();
+                    for (int i = 0; i < buffer.limit(); i++) {
+                        if (buffer.get(i) == '\n') {
+                            line.write(buffer.array(), 0, i);
+                            return line.toString(StandardCharsets.UTF_8);
+                        }
+                    }
+                    line.write(buffer.array(), 0, buffer.limit());
+                    buffer.clear();
+                }
+                return line.toString(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public void close() throws IOException {
+                IOException failure = null;
+                for (SeekableByteChannel channel : channels.values()) {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                channels.clear();
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (output != null) {
+                output.close();
+                output = null;
+            }
+        }
+
+        private void roll() throws IOException {
+            close();
+            Path shard = directory.resolve(String.format("%s-%05d.jsonl", prefix, shards.size()));
+            output = new BufferedOutputStream(Files.newOutputStream(shard), 1 << 16);
+            shards.add(shard);
+            shardBytes = 0;
+            shardRequests = 0;
+        }
+    }
+
+    private final OpenAIClient client;
+    private final HttpPipeline pipeline;
+    private final String filesUrl;
+    private final String model;
+    private final Path workDirectory;
+
+    /**
+     * Downloads result files through {@code httpClient} with the key in an {@code api-key} header,
+     * retrying with the default {@link RetryPolicy}.
+     */
+    public BatchJobRunner(OpenAIClient client, HttpClient httpClient, String endpoint, String apiKey, String model,
+                          Path workDirectory) throws IOException {
+        this(client, new HttpPipelineBuilder()
+                .httpClient(httpClient)
+                .policies(new AddHeadersPolicy(new HttpHeaders().set(HttpHeaderName.fromString("api-key"), apiKey)),
+                    new RetryPolicy())
+                .build(),
+            endpoint, model, workDirectory);
+    }
+
+    public BatchJobRunner(OpenAIClient client, HttpPipeline pipeline, String endpoint, String model,
+                          Path workDirectory) throws IOException {
+        this.client = client;
+        this.pipeline = pipeline;
+        this.filesUrl = endpoint.replaceAll("/+$", "") + "/openai/files/";
+        this.model = model;
+        this.workDirectory = Files.createDirectories(workDirectory);
+    }
+
+    public ShardWriter newShardWriter(String prefix) {
+        return new ShardWriter(workDirectory, prefix, model, DEFAULT_MAX_SHARD_BYTES, DEFAULT_MAX_SHARD_REQUESTS);
+    }
+
+    /**
+     * Uploads every shard and creates a batch for it, with at most {@code parallelism} uploads at a
+     * time. Batches are returned in shard order.
+     */
+    public List<Batch> submit(List<Path> shards, int parallelism) throws InterruptedException {
+        Semaphore permits = new Semaphore(parallelism);
+        List<Future<Batch>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Path shard : shards) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        OpenAIFile file = client.uploadFile(
+                            new FileDetails(BinaryData.fromFile(shard), shard.getFileName().toString()),
+                            FilePurpose.BATCH);
+                        return client.createBatch(new BatchCreateRequest("/chat/completions", file.getId(), "24h"));
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        }
+
+        List<Batch> batches = new ArrayList<>(futures.size());
+        for (Future<Batch> future : futures) {
+            try {
+                batches.add(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to submit batch shard", e.getCause());
+            }
+        }
+        return batches;
+    }
+
+    /**
+     * Polls the batch until it reaches a terminal status. The delay starts at {@code initialDelay}
+     * and doubles, with jitter, up to {@code maxDelay}.
+     */
+    public Batch awaitCompletion(String batchId, Duration initialDelay, Duration maxDelay, Duration timeout)
+        throws InterruptedException, TimeoutException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        long delayMillis = initialDelay.toMillis();
+        while (true) {
+            Batch batch = client.getBatch(batchId);
+            if (TERMINAL_STATUSES.contains(batch.getStatus())) {
+                return batch;
+            }
+            if (System.nanoTime() > deadline) {
+                throw new TimeoutException("Batch " + batchId + " still " + batch.getStatus() + " after " + timeout);
+            }
+            Thread.sleep(delayMillis / 2 + ThreadLocalRandom.current().nextLong(delayMillis / 2 + 1));
+            delayMillis = Math.min(maxDelay.toMillis(), delayMillis * 2);
+        }
+    }
+
+    /**
+     * Hands every result of a finished batch, together with its request line from {@code requests},
+     * to {@code handler}. Requests that failed without producing output are read from the batch's
+     * error file and reported with their error. {@code requests} may be {@code null} for batches whose
+     * input was not written by this runner; request lines are then {@code null}.
+     */
+    public void join(Batch batch, ShardWriter requests, JoinHandler handler) throws IOException {
+        try (ShardWriter.RequestReader reader = requests == null ? null : requests.openReader()) {
+            if (batch.getOutputFileId() != null) {
+                joinFile(batch.getOutputFileId(), reader, handler);
+            }
+            if (batch.getErrorFileId() != null) {
+                joinFile(batch.getErrorFileId(), reader, handler);
+            }
+        }
+    }
+
+    /**
+     * Parses one output or error file line by line and hands every result to {@code handler}.
+     */
+    public void join(String fileId, ShardWriter requests, JoinHandler handler) throws IOException {
+        try (ShardWriter.RequestReader reader = requests == null ? null : requests.openReader()) {
+            joinFile(fileId, reader, handler);
+        }
+    }
+
+    private void joinFile(String fileId, ShardWriter.RequestReader requests, JoinHandler handler)
+        throws IOException {
+        HttpRequest request = new HttpRequest(HttpMethod.GET, filesUrl
+            + URLEncoder.encode(fileId, StandardCharsets.UTF_8) + "/content?api-version="
+            + OpenAIServiceVersion.getLatest().getVersion());
+        try (HttpResponse response = pipeline.sendSync(request, Context.NONE)) {
+            if (response.getStatusCode() >= 400) {
+                throw new HttpResponseException("Download of " + fileId + " failed with status "
+                    + response.getStatusCode() + ": " + response.getBodyAsBinaryData(), response, null);
+            }
+            // The body is consumed a buffer at a time; only the current line is kept
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            byte[] chunk = new byte[1 << 16];
+            for (ByteBuffer buffer : response.getBody().toIterable()) {
+                int length = buffer.remaining();
+                if (chunk.length < length) {
+                    chunk = new byte[length];
+                }
+                buffer.get(chunk, 0, length);
+                int start = 0;
+                for (int i = 0; i < length; i++) {
+                    if (chunk[i] == '\n') {
+                        line.write(chunk, start, i - start);
+                        joinLine(line, requests, handler);
+                        start = i + 1;
+                    }
+                }
+                line.write(chunk, start, length - start);
+            }
+            joinLine(line, requests, handler);
+        }
+    }
+
+    private static void joinLine(ByteArrayOutputStream line, ShardWriter.RequestReader requests,
+                                 JoinHandler handler) throws IOException {
+        String text = line.toString(StandardCharsets.UTF_8).strip();
+        line.reset();
+        if (!text.isEmpty()) {
+            joinLine(text, requests, handler);
+        }
+    }
+
+    private static void joinLine(String line, ShardWriter.RequestReader requests, JoinHandler handler)
+        throws IOException {
+        String customId = null;
+        int statusCode = 0;
+        String body = null;
+        String error = null;
+
+        try (JsonReader reader = JsonProviders.createReader(line)) {
+            reader.nextToken();
+            while (reader.nextToken() != JsonToken.END_OBJECT) {
+                String field = reader.getFieldName();
+                reader.nextToken();
+                if ("custom_id".equals(field)) {
+                    customId = reader.getString();
+                } else if ("response".equals(field) && reader.currentToken() == JsonToken.START_OBJECT) {
+                    while (reader.nextToken() != JsonToken.END_OBJECT) {
+                        String responseField = reader.getFieldName();
+                        reader.nextToken();
+                        if ("status_code".equals(responseField)) {
+                            statusCode = reader.getInt();
+                        } else if ("body".equals(responseField) && reader.currentToken() == JsonToken.START_OBJECT) {
+                            // Fields may come in any order, so the body is decoded once the status is known
+                            body = reader.readChildren();
+                        } else {
+                            reader.skipChildren();
+                        }
+                    }
+                } else if ("error".equals(field) && reader.currentToken() != JsonToken.NULL) {
+                    error = reader.readChildren();
+                } else {
+                    reader.skipChildren();
+                }
+            }
+        }
+
+        ChatCompletions completions = null;
+        if (body != null && statusCode == 200) {
+            try (JsonReader reader = JsonProviders.createReader(body)) {
+                completions = ChatCompletions.fromJson(reader);
+            }
+        } else if (body != null) {
+            // Failed requests carry the service error as their body
+            error = body;
+        }
+        if (completions == null && error == null) {
+            error = "{\"message\":\"No response body\"}";
+        }
+        handler.onResult(customId, requests == null ? null : requests.read(customId), completions, error);
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
@@ -0,0 +1,355 @@
+package com.example.openai;
+
+import com.azure.ai.openai.models.ChatCompletionsOptions;
+import com.azure.ai.openai.models.ChatRequestMessage;
+import com.azure.ai.openai.models.CompletionsOptions;
+import com.azure.core.util.BinaryData;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Byte-pair encoding tokenizer for tiktoken vocabularies such as {@code cl100k_base.tiktoken} and
+ * {@code o200k_base.tiktoken}, read from a local file. Counting and encoding reuse per-thread
+ * scratch buffers and allocate nothing per call once those are warm. Special tokens such as
+ * {@code <|endoftext|>} are counted as ordinary text.
+ */
+public class BpeTokenizer implements TokenCounter {
+    /**
+     * Pre-tokenization rules matching the vocabulary's original split pattern.
+     */
+    public enum Encoding {
+        CL100K("(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}{1,3}"
+            + "| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+"),
+        O200K("[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]*[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]+"
+            + "(?i:'s|'t|'re|'ve|'m|'ll|'d)?"
+            + "|[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]+[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]*"
+            + "(?i:'s|'t|'re|'ve|'m|'ll|'d)?"
+            + "|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n/]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+");
+
+        private final Pattern pattern;
+
+        Encoding(String regex) {
+            this.pattern = Pattern.compile(regex, Pattern.UNICODE_CHARACTER_CLASS);
+        }
+    }
+
+    /**
+     * Open-addressing map from byte sequences to ranks that is looked up by slice, so no key
+     * array has to be created for a lookup.
+     */
+    private static class RankTable {
+        private final byte[][] keys;
+        private final int[] ranks;
+        private final int mask;
+
+        RankTable(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+            this.keys = new byte[capacity][];
+            this.ranks = new int[capacity];
+            this.mask = capacity - 1;
+        }
+
+        void put(byte[] key, int rank) {
+            int slot = hash(key, 0, key.length) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            ranks[slot] = rank;
+        }
+
+        /**
+         * Rank of {@code bytes[from, to)}, or -1 when it is not in the vocabulary.
+         */
+        int get(byte[] bytes, int from, int to) {
+            int slot = hash(bytes, from, to) & mask;
+            while (true) {
+                byte[] key = keys[slot];
+                if (key == null) {
+                    return -1;
+                }
+                if (Arrays.equals(key, 0, key.length, bytes, from, to)) {
+                    return ranks[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private static int hash(byte[] bytes, int from, int to) {
+            int hash = 0x811c9dc5;
+            for (int i = from; i < to; i++) {
+                hash = (hash ^ bytes[i]) * 0x01000193;
+            }
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * Per-thread buffers, grown on demand and kept for the next call.
+     */
+    private static class Scratch {
+        private final Matcher matcher;
+        private byte[] bytes = new byte[256];
+        // Start offsets of the current parts of a piece, plus one past the end
+        private int[] starts = new int[257];
+        // Rank of the merge of part i with part i + 1
+        private int[] pairRanks = new int[257];
+        // Char index where the last encode call stopped
+        private int end;
+
+        Scratch(Pattern pattern) {
+            this.matcher = pattern.matcher("");
+        }
+
+        void ensureCapacity(int byteLength) {
+            if (bytes.length < byteLength) {
+                int size = Math.max(byteLength, bytes.length * 2);
+                bytes = new byte[size];
+                starts = new int[size + 1];
+                pairRanks = new int[size + 1];
+            }
+        }
+    }
+
+    // Documents above this size are split for parallel counting
+    private static final int PARALLEL_CHUNK_CHARS = 64 * 1024;
+
+    private final RankTable ranks;
+    private final int vocabularySize;
+    private final ThreadLocal<Scratch> scratch;
+
+    private BpeTokenizer(RankTable ranks, int vocabularySize, Encoding encoding) {
+        this.ranks = ranks;
+        this.vocabularySize = vocabularySize;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(encoding.pattern));
+    }
+
+    /**
+     * Reads a tiktoken file: one {@code <base64 token> <rank>} pair per line.
+     */
+    public static BpeTokenizer load(Path file, Encoding encoding) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+        RankTable table = new RankTable(lines.size());
+        Base64.Decoder decoder = Base64.getDecoder();
+        int count = 0;
+        for (String line : lines) {
+            int space = line.indexOf(' ');
+            if (space <= 0) {
+                continue;
+            }
+            table.put(decoder.decode(line.substring(0, space)), Integer.parseInt(line.substring(space + 1).trim()));
+            count++;
+        }
+        return new BpeTokenizer(table, count, encoding);
+    }
+
+    public int getVocabularySize() {
+        return vocabularySize;
+    }
+
+    @Override
+    public int count(CharSequence text) {
+        return encode(text, 0, text.length(), null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Tokens in the prompts of {@code options}.
+     */
+    public int count(CompletionsOptions options) {
+        int tokens = 0;
+        for (String prompt : options.getPrompt()) {
+            tokens += count(prompt);
+        }
+        return tokens;
+    }
+
+    /**
+     * Tokens in the messages of {@code options}. Each message is counted in its serialized form,
+     * which slightly overestimates what the service bills for roles and separators.
+     */
+    public int count(ChatCompletionsOptions options) {
+        int tokens = 0;
+        for (ChatRequestMessage message : options.getMessages()) {
+            tokens += count(BinaryData.fromObject(message).toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * Writes token IDs into {@code tokens} and returns how many were written; encoding stops when
+     * the array is full.
+     */
+    public int encode(CharSequence text, int[] tokens) {
+        return encode(text, 0, text.length(), tokens, tokens.length);
+    }
+
+    /**
+     * Length of the longest prefix of {@code text} that encodes to at most {@code maxTokens}
+     * tokens. Cuts fall between pre-tokenized pieces, so the prefix may hold a few tokens fewer
+     * than the limit.
+     */
+    public int truncateIndex(CharSequence text, int maxTokens) {
+        encode(text, 0, text.length(), null, maxTokens);
+        return scratch.get().end;
+    }
+
+    public CharSequence truncate(CharSequence text, int maxTokens) {
+        return text.subSequence(0, truncateIndex(text, maxTokens));
+    }
+
+    /**
+     * Counts a large document on the common fork-join pool. Chunks are cut after line breaks, where
+     * no token spans the cut, so the total matches {@link #count}.
+     */
+    public long countParallel(CharSequence text) {
+        if (text.length() <= PARALLEL_CHUNK_CHARS) {
+            return count(text);
+        }
+        List<int[]> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = chunkEnd(text, start);
+            chunks.add(new int[] {start, end});
+            start = end;
+        }
+        return chunks.parallelStream()
+            .mapToLong(chunk -> encode(text, chunk[0], chunk[1], null, Integer.MAX_VALUE))
+            .sum();
+    }
+
+    /**
+     * Encodes {@code text[from, to)}, stopping before the piece that would exceed {@code maxTokens}.
+     *
+     * The char index where encoding stopped is left in the thread's scratch.
+     *
+     * @param out receives token IDs, or {@code null} to only count
+     */
+    private int encode(CharSequence text, int from, int to, int[] out, int maxTokens) {
+        Scratch s = scratch.get();
+        Matcher matcher = s.matcher;
+        matcher.reset(text).region(from, to).useTransparentBounds(true);
+        int total = 0;
+        int end = from;
+        while (matcher.find()) {
+            int length = utf8(text, matcher.start(), matcher.end(), s);
+            int pieceTokens = bytePairMerge(s, length);
+            if (total + pieceTokens > maxTokens) {
+                break;
+            }
+            if (out != null) {
+                for (int i = 0; i < pieceTokens; i++) {
+                    out[total + i] = ranks.get(s.bytes, s.starts[i], s.starts[i + 1]);
+                }
+            }
+            total += pieceTokens;
+            end = matcher.end();
+        }
+        // Drop the reference so a large document is not kept alive by this thread
+        matcher.reset("");
+        s.end = end;
+        return total;
+    }
+
+    /**
+     * Merges the bytes of one piece by ascending rank, leaving the token boundaries in
+     * {@code starts}. Returns the number of tokens.
+     */
+    private int bytePairMerge(Scratch s, int length) {
+        if (ranks.get(s.bytes, 0, length) >= 0) {
+            s.starts[0] = 0;
+            s.starts[1] = length;
+            return 1;
+        }
+        int[] starts = s.starts;
+        int[] pairRanks = s.pairRanks;
+        int parts = length;
+        for (int i = 0; i <= length; i++) {
+            starts[i] = i;
+        }
+        for (int i = 0; i < parts - 1; i++) {
+            pairRanks[i] = ranks.get(s.bytes, starts[i], starts[i + 2]);
+        }
+        while (parts > 1) {
+            int best = -1;
+            int bestRank = Integer.MAX_VALUE;
+            for (int i = 0; i < parts - 1; i++) {
+                int rank = pairRanks[i];
+                if (rank >= 0 && rank < bestRank) {
+                    bestRank = rank;
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            // Part best absorbs part best + 1
+            System.arraycopy(starts, best + 2, starts, best + 1, parts - best - 1);
+            System.arraycopy(pairRanks, best + 1, pairRanks, best, parts - best - 2);
+            parts--;
+            if (best < parts - 1) {
+                pairRanks[best] = ranks.get(s.bytes, starts[best], starts[best + 2]);
+            }
+            if (best > 0) {
+                pairRanks[best - 1] = ranks.get(s.bytes, starts[best - 1], starts[best + 1]);
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Encodes {@code text[from, to)} as UTF-8 into the scratch buffer and returns the byte length.
+     */
+    private static int utf8(CharSequence text, int from, int to, Scratch s) {
+        s.ensureCapacity((to - from) * 3);
+        byte[] bytes = s.bytes;
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes[length++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[length++] = (byte) (0xC0 | (c >> 6));
+                bytes[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate, encoded as U+FFFD like String.getBytes does
+                bytes[length++] = (byte) 0xEF;
+                bytes[length++] = (byte) 0xBF;
+                bytes[length++] = (byte) 0xBD;
+            } else {
+                bytes[length++] = (byte) (0xE0 | (c >> 12));
+                bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return length;
+    }
+
+    /**
+     * End of the chunk starting at {@code start}: just after the first line break past the target
+     * size that is followed by a non-whitespace character, or the end of the text.
+     */
+    private static int chunkEnd(CharSequence text, int start) {
+        int limit = text.length();
+        for (int i = start + PARALLEL_CHUNK_CHARS; i < limit - 1; i++) {
+            char c = text.charAt(i);
+            if ((c == '\n' || c == '\r') && !Character.isWhitespace(text.charAt(i + 1))) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+}
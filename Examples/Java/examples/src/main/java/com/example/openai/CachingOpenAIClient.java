@@ -0,0 +1,514 @@
+package com.example.openai;
+
+import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.models.ChatCompletions;
+import com.azure.ai.openai.models.ChatCompletionsOptions;
+import com.azure.ai.openai.models.Completions;
+import com.azure.ai.openai.models.CompletionsOptions;
+import com.azure.ai.openai.models.EmbeddingItem;
+import com.azure.ai.openai.models.EmbeddingsOptions;
+import com.azure.core.util.BinaryData;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Response cache in front of {@link OpenAIClient#getChatCompletions} and
+ * {@link OpenAIClient#getCompletions}. Identical requests are answered from an in-memory LRU tier,
+ * then from a disk tier, and optionally chat requests whose messages embed close to an earlier
+ * request are answered from a semantic tier. Entries expire after a fixed time to live. The disk tier
+ * is bounded in bytes, deleting the least recently used files first, and expired files are swept as
+ * new responses are stored. The semantic tier holds at most as many entries as the memory tier and
+ * drops an entry when it expires or when its response is evicted from the exact tiers.
+ */
+public class CachingOpenAIClient {
+    public static final long DEFAULT_MAX_DISK_BYTES = 256L * 1024 * 1024;
+    private static final long MAX_SWEEP_INTERVAL_MILLIS = 60_000;
+
+    private static class CacheEntry {
+        private final BinaryData response;
+        private final long expiresAtMillis;
+
+        CacheEntry(BinaryData response, long expiresAtMillis) {
+            this.response = response;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private static class DiskEntry {
+        private final long bytes;
+        private final long expiresAtMillis;
+
+        DiskEntry(long bytes, long expiresAtMillis) {
+            this.bytes = bytes;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    /**
+     * Semantic entries of one deployment. Rows cannot be removed from an HNSW index, so a dropped
+     * entry only has its row marked dead, and the index is rebuilt from the live rows once dead rows
+     * outnumber them. Guarded by the instance's monitor.
+     */
+    private static class SemanticTier {
+        private final int dimensions;
+        private VectorIndex index;
+        // Key and expiry per row; the key is null once the row is dead
+        private final List<String> keys = new ArrayList<>();
+        private final List<Long> expiresAtMillis = new ArrayList<>();
+        private final Map<String, Integer> rowsByKey = new HashMap<>();
+        private int oldestCandidate;
+
+        SemanticTier(int dimensions) {
+            this.dimensions = dimensions;
+            this.index = new VectorIndex(dimensions, VectorIndex.Mode.HNSW);
+        }
+
+        void add(float[] embedding, String key, long expiresAt) {
+            remove(key);
+            rowsByKey.put(key, index.add(embedding));
+            keys.add(key);
+            expiresAtMillis.add(expiresAt);
+        }
+
+        void remove(String key) {
+            Integer row = rowsByKey.remove(key);
+            if (row != null) {
+                keys.set(row, null);
+            }
+        }
+
+        /**
+         * Drops expired rows and the oldest live rows beyond {@code maxEntries}, then compacts.
+         */
+        void trim(int maxEntries, long now) {
+            for (int row = oldestCandidate; row < keys.size(); row++) {
+                String key = keys.get(row);
+                if (key != null && (expiresAtMillis.get(row) <= now || rowsByKey.size() > maxEntries)) {
+                    remove(key);
+                } else if (key != null) {
+                    // Rows are added in expiry order, so later rows are neither expired nor over the limit
+                    oldestCandidate = row;
+                    break;
+                }
+            }
+            if (keys.size() - rowsByKey.size() > rowsByKey.size()) {
+                rebuild();
+            }
+        }
+
+        /**
+         * Live row for {@code embedding} with a similarity of at least {@code threshold}, or -1.
+         */
+        int match(float[] embedding, float threshold, long now) {
+            if (rowsByKey.isEmpty()) {
+                return -1;
+            }
+            // Look past a few dead rows near the query before giving up
+            for (VectorIndex.Match match : index.search(embedding, Math.min(8, index.size()))) {
+                if (match.getScore() < threshold) {
+                    return -1;
+                }
+                int row = match.getRow();
+                if (keys.get(row) != null && expiresAtMillis.get(row) > now) {
+                    return row;
+                }
+            }
+            return -1;
+        }
+
+        private void rebuild() {
+            VectorIndex liveIndex = new VectorIndex(dimensions, VectorIndex.Mode.HNSW);
+            List<String> liveKeys = new ArrayList<>();
+            List<Long> liveExpiry = new ArrayList<>();
+            rowsByKey.clear();
+            for (int row = 0; row < keys.size(); row++) {
+                String key = keys.get(row);
+                if (key != null) {
+                    rowsByKey.put(key, liveIndex.add(index.get(row)));
+                    liveKeys.add(key);
+                    liveExpiry.add(expiresAtMillis.get(row));
+                }
+            }
+            index = liveIndex;
+            keys.clear();
+            keys.addAll(liveKeys);
+            expiresAtMillis.clear();
+            expiresAtMillis.addAll(liveExpiry);
+            oldestCandidate = 0;
+        }
+    }
+
+    private final OpenAIClient client;
+    private final long ttlMillis;
+    private final Path diskDirectory;
+    private final int maxEntries;
+    private final Map<String, CacheEntry> memory;
+    private final long maxDiskBytes;
+    // Files in the disk tier in access order; guarded by itself, as are diskBytes and nextSweepMillis
+    private final LinkedHashMap<String, DiskEntry> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long diskBytes;
+    private long nextSweepMillis;
+
+    private String embeddingDeployment;
+    private float similarityThreshold;
+    private final Map<String, SemanticTier> semanticTiers = new ConcurrentHashMap<>();
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder semanticHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder diskEvictions = new LongAdder();
+
+    /**
+     * @param maxEntries number of responses kept in memory, least recently used evicted first
+     * @param ttl how long a response may be served from the cache
+     * @param diskDirectory second-level cache directory, or {@code null} to keep responses in memory only
+     * @param maxDiskBytes size of the responses kept on disk, least recently used deleted first
+     */
+    public CachingOpenAIClient(OpenAIClient client, int maxEntries, Duration ttl, Path diskDirectory,
+                               long maxDiskBytes) throws IOException {
+        this.client = client;
+        this.ttlMillis = ttl.toMillis();
+        this.diskDirectory = diskDirectory;
+        this.maxEntries = maxEntries;
+        this.maxDiskBytes = maxDiskBytes;
+        if (diskDirectory != null) {
+            Files.createDirectories(diskDirectory);
+            loadDiskEntries();
+        }
+        this.memory = Collections.synchronizedMap(new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() <= maxEntries) {
+                    return false;
+                }
+                // Without a disk tier the response is gone, so the semantic entry pointing at it goes too
+                if (diskDirectory == null) {
+                    forgetSimilar(eldest.getKey());
+                }
+                return true;
+            }
+        });
+    }
+
+    public CachingOpenAIClient(OpenAIClient client, int maxEntries, Duration ttl, Path diskDirectory)
+        throws IOException {
+        this(client, maxEntries, ttl, diskDirectory, DEFAULT_MAX_DISK_BYTES);
+    }
+
+    /**
+     * Turns on the semantic tier for chat requests: a miss in the exact tiers is answered by a cached
+     * response whose messages have a cosine similarity of at least {@code threshold}. Only use this
+     * for prompts where a near-duplicate answer is acceptable.
+     */
+    public CachingOpenAIClient enableSemanticTier(String embeddingDeployment, float threshold) {
+        this.embeddingDeployment = embeddingDeployment;
+        this.similarityThreshold = threshold;
+        return this;
+    }
+
+    public ChatCompletions getChatCompletions(String deploymentOrModelName, ChatCompletionsOptions options) {
+        String request = BinaryData.fromObject(options).toString();
+        String key = key("chat", deploymentOrModelName, request);
+        BinaryData cached = lookup(key, false);
+        if (cached != null) {
+            return cached.toObject(ChatCompletions.class);
+        }
+
+        float[] embedding = null;
+        if (embeddingDeployment != null) {
+            embedding = embed(BinaryData.fromObject(options.getMessages()).toString());
+            cached = lookupSimilar(deploymentOrModelName, embedding);
+            if (cached != null) {
+                return cached.toObject(ChatCompletions.class);
+            }
+        }
+
+        misses.increment();
+        ChatCompletions chatCompletions = client.getChatCompletions(deploymentOrModelName, options);
+        store(key, BinaryData.fromObject(chatCompletions));
+        if (embedding != null) {
+            remember(deploymentOrModelName, embedding, key);
+        }
+        return chatCompletions;
+    }
+
+    public Completions getCompletions(String deploymentOrModelName, CompletionsOptions options) {
+        String key = key("completions", deploymentOrModelName, BinaryData.fromObject(options).toString());
+        BinaryData cached = lookup(key, false);
+        if (cached != null) {
+            return cached.toObject(Completions.class);
+        }
+
+        misses.increment();
+        Completions completions = client.getCompletions(deploymentOrModelName, options);
+        store(key, BinaryData.fromObject(completions));
+        return completions;
+    }
+
+    public double getHitRate() {
+        long hits = memoryHits.sum() + diskHits.sum() + semanticHits.sum();
+        long total = hits + misses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public long getDiskBytes() {
+        synchronized (disk) {
+            return diskBytes;
+        }
+    }
+
+    public void printMetrics() {
+        System.out.printf("Cache hits: memory=%d, disk=%d, semantic=%d; misses=%d; hit rate=%.1f%%.%n",
+            memoryHits.sum(), diskHits.sum(), semanticHits.sum(), misses.sum(), getHitRate() * 100);
+        if (diskDirectory != null) {
+            System.out.printf("Cache disk tier: %d bytes of %d, evictions=%d.%n",
+                getDiskBytes(), maxDiskBytes, diskEvictions.sum());
+        }
+    }
+
+    /**
+     * Response stored under {@code key}, counted as a semantic hit when {@code similar} is set and as
+     * a hit of the tier that answered otherwise.
+     */
+    private BinaryData lookup(String key, boolean similar) {
+        long now = System.currentTimeMillis();
+        CacheEntry entry = memory.get(key);
+        if (entry != null) {
+            if (entry.expiresAtMillis > now) {
+                (similar ? semanticHits : memoryHits).increment();
+                return entry.response;
+            }
+            memory.remove(key);
+        }
+
+        if (diskDirectory == null) {
+            forgetSimilar(key);
+            return null;
+        }
+        DiskEntry diskEntry;
+        synchronized (disk) {
+            diskEntry = disk.get(key);
+        }
+        if (diskEntry == null || diskEntry.expiresAtMillis <= now) {
+            if (diskEntry != null) {
+                deleteFromDisk(key);
+            }
+            forgetSimilar(key);
+            return null;
+        }
+        Path file = diskDirectory.resolve(key + ".json");
+        try {
+            BinaryData response = BinaryData.fromBytes(Files.readAllBytes(file));
+            memory.put(key, new CacheEntry(response, diskEntry.expiresAtMillis));
+            (similar ? semanticHits : diskHits).increment();
+            return response;
+        } catch (NoSuchFileException e) {
+            deleteFromDisk(key);
+            forgetSimilar(key);
+            return null;
+        } catch (IOException e) {
+            System.err.println("Failed to read cached response " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(String key, BinaryData response) {
+        long now = System.currentTimeMillis();
+        memory.put(key, new CacheEntry(response, now + ttlMillis));
+        if (diskDirectory == null) {
+            return;
+        }
+        byte[] bytes = response.toBytes();
+        try {
+            // Write to a temporary file first so readers never see a partial response
+            Path temporary = Files.createTempFile(diskDirectory, key, ".tmp");
+            Files.write(temporary, bytes);
+            Files.move(temporary, diskDirectory.resolve(key + ".json"),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to write cached response " + key + ": " + e.getMessage());
+            return;
+        }
+        List<String> removed = new ArrayList<>();
+        synchronized (disk) {
+            DiskEntry previous = disk.put(key, new DiskEntry(bytes.length, now + ttlMillis));
+            diskBytes += bytes.length - (previous == null ? 0 : previous.bytes);
+            if (now >= nextSweepMillis) {
+                nextSweepMillis = now + Math.min(ttlMillis, MAX_SWEEP_INTERVAL_MILLIS);
+                sweepExpired(now, removed);
+            }
+            int expired = removed.size();
+            evictOverLimit(removed);
+            diskEvictions.add(removed.size() - expired);
+        }
+        // A response still in memory can keep answering similar requests
+        for (String removedKey : removed) {
+            if (!memory.containsKey(removedKey)) {
+                forgetSimilar(removedKey);
+            }
+        }
+    }
+
+    /**
+     * Deletes expired files, adding their keys to {@code removed}. Called with the disk lock held.
+     */
+    private void sweepExpired(long now, List<String> removed) {
+        Iterator<Map.Entry<String, DiskEntry>> iterator = disk.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, DiskEntry> entry = iterator.next();
+            if (entry.getValue().expiresAtMillis <= now) {
+                removeFromDisk(iterator, entry, removed);
+            }
+        }
+    }
+
+    /**
+     * Deletes the least recently used files until the tier fits in {@code maxDiskBytes}, adding their
+     * keys to {@code removed}. Called with the disk lock held.
+     */
+    private void evictOverLimit(List<String> removed) {
+        Iterator<Map.Entry<String, DiskEntry>> iterator = disk.entrySet().iterator();
+        while (diskBytes > maxDiskBytes && iterator.hasNext()) {
+            removeFromDisk(iterator, iterator.next(), removed);
+        }
+    }
+
+    private void removeFromDisk(Iterator<Map.Entry<String, DiskEntry>> iterator, Map.Entry<String, DiskEntry> entry,
+                                List<String> removed) {
+        iterator.remove();
+        diskBytes -= entry.getValue().bytes;
+        deleteFile(entry.getKey());
+        removed.add(entry.getKey());
+    }
+
+    private void deleteFromDisk(String key) {
+        synchronized (disk) {
+            DiskEntry entry = disk.remove(key);
+            if (entry != null) {
+                diskBytes -= entry.bytes;
+                deleteFile(key);
+            }
+        }
+    }
+
+    private void deleteFile(String key) {
+        try {
+            Files.deleteIfExists(diskDirectory.resolve(key + ".json"));
+        } catch (IOException e) {
+            System.err.println("Failed to delete cached response " + key + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Picks up the responses left on disk by an earlier run, oldest first, deleting the expired ones
+     * and trimming the rest to the size limit.
+     */
+    private void loadDiskEntries() throws IOException {
+        long now = System.currentTimeMillis();
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(diskDirectory, "*.json")) {
+            stream.forEach(files::add);
+        }
+        Map<Path, Long> storedAt = new HashMap<>();
+        for (Path file : files) {
+            // The file's modification time is when the response was stored
+            storedAt.put(file, Files.getLastModifiedTime(file).toMillis());
+        }
+        files.sort(Comparator.comparing(storedAt::get));
+
+        List<String> removed = new ArrayList<>();
+        synchronized (disk) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                disk.put(name.substring(0, name.length() - ".json".length()),
+                    new DiskEntry(Files.size(file), storedAt.get(file) + ttlMillis));
+                diskBytes += Files.size(file);
+            }
+            sweepExpired(now, removed);
+            evictOverLimit(removed);
+            nextSweepMillis = now + Math.min(ttlMillis, MAX_SWEEP_INTERVAL_MILLIS);
+        }
+    }
+
+    private BinaryData lookupSimilar(String deploymentOrModelName, float[] embedding) {
+        SemanticTier tier = semanticTiers.get(deploymentOrModelName);
+        if (tier == null) {
+            return null;
+        }
+        String key;
+        synchronized (tier) {
+            int row = tier.match(embedding, similarityThreshold, System.currentTimeMillis());
+            if (row < 0) {
+                return null;
+            }
+            key = tier.keys.get(row);
+        }
+        return lookup(key, true);
+    }
+
+    private void remember(String deploymentOrModelName, float[] embedding, String key) {
+        SemanticTier tier = semanticTiers.computeIfAbsent(deploymentOrModelName,
+            name -> new SemanticTier(embedding.length));
+        long now = System.currentTimeMillis();
+        synchronized (tier) {
+            tier.add(embedding, key, now + ttlMillis);
+            tier.trim(maxEntries, now);
+        }
+    }
+
+    /**
+     * Drops the semantic entry that answers with the response stored under {@code key}, if any.
+     */
+    private void forgetSimilar(String key) {
+        for (SemanticTier tier : semanticTiers.values()) {
+            synchronized (tier) {
+                tier.remove(key);
+            }
+        }
+    }
+
+    private float[] embed(String text) {
+        EmbeddingItem item = client.getEmbeddings(embeddingDeployment,
+            new EmbeddingsOptions(Collections.singletonList(text))).getData().get(0);
+        List<Float> values = item.getEmbedding();
+        float[] vector = new float[values.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = values.get(i);
+        }
+        return vector;
+    }
+
+    private static String key(String operation, String deploymentOrModelName, String request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(deploymentOrModelName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(request.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.example.openai;
+
+import com.azure.ai.openai.models.ChatChoice;
+import com.azure.ai.openai.models.ChatCompletions;
+import com.azure.ai.openai.models.ChatCompletionsFunctionToolCall;
+import com.azure.ai.openai.models.ChatCompletionsToolCall;
+import com.azure.ai.openai.models.ChatResponseMessage;
+import com.azure.ai.openai.models.CompletionsFinishReason;
+import com.azure.ai.openai.models.FunctionCall;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.http.WebSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consumes {@code getChatCompletionsStream} chunks and reassembles content and tool-call argument
+ * fragments for every choice index into buffers that are reused across streams. Each fragment is
+ * forwarded to a {@link StreamSink} as it arrives, and time to first token and inter-token latency
+ * are recorded in shared histograms.
+ */
+public class ChatStreamProcessor {
+    /**
+     * Receives stream fragments as they arrive. Implementations must not keep the
+     * {@code CharSequence} arguments beyond the call.
+     */
+    public interface StreamSink extends AutoCloseable {
+        void onContent(int choiceIndex, CharSequence fragment) throws IOException;
+
+        void onToolCall(int choiceIndex, int toolCallIndex, String functionName, CharSequence argumentsFragment)
+            throws IOException;
+
+        default void onComplete() throws IOException {
+        }
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    /**
+     * Writes fragments as Server-Sent Events: {@code content} and {@code tool_call} events whose
+     * data lines are prefixed with the choice index.
+     */
+    public static class SseSink implements StreamSink {
+        private final Writer writer;
+
+        public SseSink(OutputStream output) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void onContent(int choiceIndex, CharSequence fragment) throws IOException {
+            writeEvent("content", choiceIndex + ":", fragment);
+        }
+
+        @Override
+        public void onToolCall(int choiceIndex, int toolCallIndex, String functionName,
+                               CharSequence argumentsFragment) throws IOException {
+            writeEvent("tool_call", choiceIndex + ":" + toolCallIndex + ":", argumentsFragment);
+        }
+
+        @Override
+        public void onComplete() throws IOException {
+            writer.write("event: done\ndata: [DONE]\n\n");
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+
+        private void writeEvent(String event, String prefix, CharSequence data) throws IOException {
+            writer.write("event: ");
+            writer.write(event);
+            writer.write("\ndata: ");
+            writer.write(prefix);
+            // A newline inside the data has to start a new data line
+            for (int i = 0; i < data.length(); i++) {
+                char c = data.charAt(i);
+                if (c == '\n') {
+                    writer.write("\ndata: ");
+                } else {
+                    writer.write(c);
+                }
+            }
+            writer.write("\n\n");
+            writer.flush();
+        }
+    }
+
+    /**
+     * Sends each fragment as a WebSocket text message and waits for the send to finish, which
+     * keeps fragments in order.
+     */
+    public static class WebSocketSink implements StreamSink {
+        private final WebSocket webSocket;
+
+        public WebSocketSink(WebSocket webSocket) {
+            this.webSocket = webSocket;
+        }
+
+        @Override
+        public void onContent(int choiceIndex, CharSequence fragment) {
+            webSocket.sendText(fragment, true).join();
+        }
+
+        @Override
+        public void onToolCall(int choiceIndex, int toolCallIndex, String functionName,
+                               CharSequence argumentsFragment) {
+            webSocket.sendText(argumentsFragment, true).join();
+        }
+
+        @Override
+        public void onComplete() {
+            webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "done").join();
+        }
+    }
+
+    /**
+     * Appends content fragments of the first choice to a file.
+     */
+    public static class FileSink implements StreamSink {
+        private final Writer writer;
+
+        public FileSink(Path path) throws IOException {
+            this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        @Override
+        public void onContent(int choiceIndex, CharSequence fragment) throws IOException {
+            if (choiceIndex == 0) {
+                writer.append(fragment);
+            }
+        }
+
+        @Override
+        public void onToolCall(int choiceIndex, int toolCallIndex, String functionName,
+                               CharSequence argumentsFragment) {
+        }
+
+        @Override
+        public void onComplete() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * Reassembly buffers for one tool call.
+     */
+    public static class ToolCallBuffer {
+        private String id;
+        private String functionName;
+        private final StringBuilder arguments = new StringBuilder();
+
+        public String getId() {
+            return id;
+        }
+
+        public String getFunctionName() {
+            return functionName;
+        }
+
+        public CharSequence getArguments() {
+            return arguments;
+        }
+
+        void reset(String id, String functionName) {
+            this.id = id;
+            this.functionName = functionName;
+            arguments.setLength(0);
+        }
+    }
+
+    /**
+     * Reassembly buffers for one choice index.
+     */
+    public static class ChoiceBuffer {
+        private final StringBuilder content = new StringBuilder();
+        // Tool call buffers are kept across streams and reused; toolCallCount marks the live ones
+        private final List<ToolCallBuffer> toolCalls = new ArrayList<>();
+        private int toolCallCount;
+        private CompletionsFinishReason finishReason;
+
+        public CharSequence getContent() {
+            return content;
+        }
+
+        public int getToolCallCount() {
+            return toolCallCount;
+        }
+
+        public ToolCallBuffer getToolCall(int index) {
+            return toolCalls.get(index);
+        }
+
+        public CompletionsFinishReason getFinishReason() {
+            return finishReason;
+        }
+
+        void reset() {
+            content.setLength(0);
+            toolCallCount = 0;
+            finishReason = null;
+        }
+
+        ToolCallBuffer startToolCall(String id, String functionName) {
+            if (toolCallCount == toolCalls.size()) {
+                toolCalls.add(new ToolCallBuffer());
+            }
+            ToolCallBuffer buffer = toolCalls.get(toolCallCount++);
+            buffer.reset(id, functionName);
+            return buffer;
+        }
+    }
+
+    private final LatencyHistogram timeToFirstToken;
+    private final LatencyHistogram interTokenLatency;
+    private final List<ChoiceBuffer> choices = new ArrayList<>();
+    private int choiceCount;
+    private long startNanos;
+    private long lastTokenNanos;
+
+    public ChatStreamProcessor(LatencyHistogram timeToFirstToken, LatencyHistogram interTokenLatency) {
+        this.timeToFirstToken = timeToFirstToken;
+        this.interTokenLatency = interTokenLatency;
+    }
+
+    /**
+     * Reads {@code stream} to the end, forwarding fragments to {@code sink}. Timing starts when this
+     * method is called, so call it right after issuing the request. Not thread-safe; use one
+     * processor per concurrent stream.
+     */
+    public void process(Iterable<ChatCompletions> stream, StreamSink sink) throws IOException {
+        start();
+        for (ChatCompletions chunk : stream) {
+            accept(chunk, sink);
+        }
+        sink.onComplete();
+    }
+
+    /**
+     * Clears the buffers and starts the clock for a new stream. {@link #process} calls this itself;
+     * call it directly when feeding chunks through {@link #accept}.
+     */
+    public void start() {
+        for (int i = 0; i < choiceCount; i++) {
+            choices.get(i).reset();
+        }
+        choiceCount = 0;
+        startNanos = System.nanoTime();
+        lastTokenNanos = 0;
+    }
+
+    public void accept(ChatCompletions chunk, StreamSink sink) throws IOException {
+        List<ChatChoice> chunkChoices = chunk.getChoices();
+        if (chunkChoices == null) {
+            return;
+        }
+        for (int i = 0; i < chunkChoices.size(); i++) {
+            ChatChoice choice = chunkChoices.get(i);
+            ChatResponseMessage delta = choice.getDelta();
+            ChoiceBuffer buffer = choice(choice.getIndex());
+            if (choice.getFinishReason() != null) {
+                buffer.finishReason = choice.getFinishReason();
+            }
+            if (delta == null) {
+                continue;
+            }
+
+            String content = delta.getContent();
+            if (content != null && !content.isEmpty()) {
+                recordToken();
+                buffer.content.append(content);
+                sink.onContent(choice.getIndex(), content);
+            }
+
+            List<ChatCompletionsToolCall> toolCalls = delta.getToolCalls();
+            if (toolCalls != null) {
+                for (int t = 0; t < toolCalls.size(); t++) {
+                    acceptToolCall(choice.getIndex(), buffer, (ChatCompletionsFunctionToolCall) toolCalls.get(t), sink);
+                }
+            }
+        }
+    }
+
+    public int getChoiceCount() {
+        return choiceCount;
+    }
+
+    public ChoiceBuffer getChoice(int index) {
+        return choices.get(index);
+    }
+
+    private void acceptToolCall(int choiceIndex, ChoiceBuffer buffer, ChatCompletionsFunctionToolCall toolCall,
+                                StreamSink sink) throws IOException {
+        FunctionCall function = toolCall.getFunction();
+        // Only the first fragment of a tool call carries its ID; later fragments extend the latest one
+        ToolCallBuffer current = toolCall.getId() != null || buffer.toolCallCount == 0
+            ? buffer.startToolCall(toolCall.getId(), function == null ? null : function.getName())
+            : buffer.toolCalls.get(buffer.toolCallCount - 1);
+        if (function != null && function.getArguments() != null && !function.getArguments().isEmpty()) {
+            recordToken();
+            current.arguments.append(function.getArguments());
+            sink.onToolCall(choiceIndex, buffer.toolCallCount - 1, current.functionName, function.getArguments());
+        }
+    }
+
+    private ChoiceBuffer choice(int index) {
+        while (choices.size() <= index) {
+            choices.add(new ChoiceBuffer());
+        }
+        choiceCount = Math.max(choiceCount, index + 1);
+        return choices.get(index);
+    }
+
+    private void recordToken() {
+        long now = System.nanoTime();
+        if (lastTokenNanos == 0) {
+            timeToFirstToken.record(now - startNanos);
+        } else {
+            interTokenLatency.record(now - lastTokenNanos);
+        }
+        lastTokenNanos = now;
+    }
+}
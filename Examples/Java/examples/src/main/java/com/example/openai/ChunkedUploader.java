@@ -0,0 +1,200 @@
+package com.example.openai;
+
+import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.models.AddUploadPartRequest;
+import com.azure.ai.openai.models.CompleteUploadRequest;
+import com.azure.ai.openai.models.CreateUploadRequest;
+import com.azure.ai.openai.models.CreateUploadRequestPurpose;
+import com.azure.ai.openai.models.DataFileDetails;
+import com.azure.ai.openai.models.Upload;
+import com.azure.ai.openai.models.UploadPart;
+import com.azure.core.exception.HttpResponseException;
+import com.azure.core.util.BinaryData;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Uploads a large file through the Uploads API in fixed-size parts. Each part is a read-only
+ * memory-mapped slice of the file, so the file is never copied onto the heap, and parts are sent
+ * in parallel with a bounded number in flight. A failed part is retried with jittered exponential
+ * backoff, or after the delay the service asks for on a 429. {@link CreateUploadRequest} takes the
+ * total size as an {@code int}, so files of 2 GB and more are rejected.
+ */
+public class ChunkedUploader {
+    /**
+     * The service accepts parts of up to 64 MB.
+     */
+    public static final long DEFAULT_PART_SIZE = 64L * 1024 * 1024;
+
+    private static final Duration INITIAL_BACKOFF = Duration.ofMillis(500);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final OpenAIClient client;
+    private final long partSize;
+    private final int window;
+    private final int maxAttempts;
+
+    /**
+     * @param client client used for all upload calls
+     * @param partSize size of every part except the last one, in bytes
+     * @param window maximum number of {@code addUploadPart} calls in flight
+     * @param maxAttempts attempts per part before the part is reported as failed
+     */
+    public ChunkedUploader(OpenAIClient client, long partSize, int window, int maxAttempts) {
+        if (partSize < 1 || partSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("partSize must be between 1 and " + Integer.MAX_VALUE);
+        }
+        if (window < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("window and maxAttempts must be at least 1");
+        }
+        this.client = client;
+        this.partSize = partSize;
+        this.window = window;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public ChunkedUploader(OpenAIClient client) {
+        this(client, DEFAULT_PART_SIZE, 4, 3);
+    }
+
+    /**
+     * Creates an upload sized from the file itself, sends every part and completes the upload.
+     */
+    public Upload upload(Path file, String fileName, CreateUploadRequestPurpose purpose, String mimeType)
+        throws IOException, InterruptedException {
+        Upload upload = create(file, fileName, purpose, mimeType);
+        return complete(upload.getId(), uploadParts(upload.getId(), file, new ConcurrentHashMap<>()));
+    }
+
+    /**
+     * Creates an upload sized from the file itself.
+     *
+     * @throws IllegalArgumentException if the file is 2 GB or larger
+     */
+    public Upload create(Path file, String fileName, CreateUploadRequestPurpose purpose, String mimeType)
+        throws IOException {
+        long size = Files.size(file);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(file + " is " + size + " bytes; uploads are limited to "
+                + Integer.MAX_VALUE + " bytes");
+        }
+        return client.createUpload(new CreateUploadRequest(fileName, purpose, (int) size, mimeType));
+    }
+
+    /**
+     * Sends every part of {@code file} that is not already in {@code completedParts} and returns the
+     * part IDs in file order. Successful parts are recorded in {@code completedParts} as they finish,
+     * so calling this again with the same map after a failure resumes the upload.
+     */
+    public List<String> uploadParts(String uploadId, Path file, Map<Integer, String> completedParts)
+        throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int partCount = (int) Math.max(1, (size + partSize - 1) / partSize);
+            Semaphore inFlight = new Semaphore(window);
+            List<Future<?>> pending = new ArrayList<>();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int part = 0; part < partCount; part++) {
+                    if (completedParts.containsKey(part)) {
+                        continue;
+                    }
+                    long offset = part * partSize;
+                    long length = Math.min(partSize, size - offset);
+                    MappedByteBuffer slice = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                    String partName = file.getFileName() + ".part" + part;
+                    int partNumber = part;
+
+                    inFlight.acquire();
+                    pending.add(executor.submit(() -> {
+                        try {
+                            completedParts.put(partNumber, addPart(uploadId, slice, partName).getId());
+                        } finally {
+                            inFlight.release();
+                        }
+                        return null;
+                    }));
+                }
+            }
+
+            IOException failure = null;
+            for (Future<?> future : pending) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = new IOException("Failed to upload part of " + file, e.getCause());
+                    } else {
+                        failure.addSuppressed(e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+
+            List<String> partIds = new ArrayList<>(partCount);
+            for (int part = 0; part < partCount; part++) {
+                partIds.add(completedParts.get(part));
+            }
+            return partIds;
+        }
+    }
+
+    /**
+     * Sends one part, retrying throttled, server-side and connection failures up to
+     * {@code maxAttempts} times.
+     */
+    private UploadPart addPart(String uploadId, MappedByteBuffer slice, String partName) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // A fresh view per attempt, so a retry sends the part from its start
+                return client.addUploadPart(uploadId, new AddUploadPartRequest(
+                    new DataFileDetails(BinaryData.fromByteBuffer(slice.duplicate())).setFilename(partName)));
+            } catch (HttpResponseException e) {
+                int status = e.getResponse() == null ? 0 : e.getResponse().getStatusCode();
+                boolean retriable = status == 408 || status == 429 || status >= 500;
+                if (!retriable || attempt >= maxAttempts) {
+                    throw e;
+                }
+                Thread.sleep(status == 429 ? RateLimitedOpenAIClient.retryAfter(e.getResponse()) : backoff(attempt));
+            } catch (UncheckedIOException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                Thread.sleep(backoff(attempt));
+            }
+        }
+    }
+
+    /**
+     * Exponential backoff with full jitter: a random delay up to {@code INITIAL_BACKOFF * 2^(attempt - 1)}.
+     */
+    private static Duration backoff(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF.toMillis(), INITIAL_BACKOFF.toMillis() << Math.min(attempt - 1, 16));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    /**
+     * Completes the upload with the part IDs in the order the parts appear in the file.
+     */
+    public Upload complete(String uploadId, List<String> orderedPartIds) {
+        return client.completeUpload(uploadId, new CompleteUploadRequest(orderedPartIds));
+    }
+}
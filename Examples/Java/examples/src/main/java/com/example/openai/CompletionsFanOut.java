@@ -0,0 +1,249 @@
+package com.example.openai;
+
+import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.models.Choice;
+import com.azure.ai.openai.models.Completions;
+import com.azure.ai.openai.models.CompletionsOptions;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Scores a large list of prompts by packing them into multi-prompt {@link CompletionsOptions}
+ * requests, running those requests concurrently and hedging the slow ones: when a request outlives
+ * the observed p95 latency, a duplicate is sent, whichever answers first wins and the other call is
+ * interrupted, which abandons its request. Choices are mapped back to the prompt that produced them
+ * through {@link Choice#getIndex()}.
+ */
+public class CompletionsFanOut implements AutoCloseable {
+    private final OpenAIClient client;
+    private final String deploymentOrModelName;
+    private final int maxPromptsPerRequest;
+    private final int maxTokensPerRequest;
+    private final int maxConcurrency;
+    private final double maxHedgeFraction;
+    private final TokenCounter tokenCounter;
+    private final LatencyHistogram latency;
+    // Calls run here rather than on the per-run executor so a losing hedge never delays the result
+    private final ExecutorService calls = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    /**
+     * @param maxPromptsPerRequest prompts packed into one request at most
+     * @param maxTokensPerRequest estimated prompt tokens packed into one request at most
+     * @param maxHedgeFraction share of requests that may be duplicated, so hedging cannot double the load
+     * @param latency request latencies; its p95 is the hedging delay once it holds 20 samples
+     */
+    public CompletionsFanOut(OpenAIClient client, String deploymentOrModelName, int maxPromptsPerRequest,
+                             int maxTokensPerRequest, int maxConcurrency, double maxHedgeFraction,
+                             TokenCounter tokenCounter, LatencyHistogram latency) {
+        this.client = client;
+        this.deploymentOrModelName = deploymentOrModelName;
+        this.maxPromptsPerRequest = maxPromptsPerRequest;
+        this.maxTokensPerRequest = maxTokensPerRequest;
+        this.maxConcurrency = maxConcurrency;
+        this.maxHedgeFraction = maxHedgeFraction;
+        this.tokenCounter = tokenCounter;
+        this.latency = latency;
+    }
+
+    /**
+     * Completes every prompt. {@code optionsFactory} turns a slice of prompts into the options to
+     * send, so callers control max tokens, temperature and the number of choices. The result holds
+     * the choices of each prompt at the prompt's position in {@code prompts}.
+     */
+    public List<List<Choice>> complete(List<String> prompts, Function<List<String>, CompletionsOptions> optionsFactory)
+        throws InterruptedException {
+        List<int[]> slices = slice(prompts);
+        List<List<Choice>> choices = new ArrayList<>(prompts.size());
+        for (int i = 0; i < prompts.size(); i++) {
+            choices.add(new ArrayList<>());
+        }
+
+        Semaphore permits = new Semaphore(maxConcurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> pending = new ArrayList<>();
+            for (int[] slice : slices) {
+                CompletionsOptions options = optionsFactory.apply(prompts.subList(slice[0], slice[1]));
+                int choicesPerPrompt = options.getN() == null ? 1 : options.getN();
+                pending.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        Completions completions = hedged(options);
+                        for (Choice choice : completions.getChoices()) {
+                            int prompt = slice[0] + choice.getIndex() / choicesPerPrompt;
+                            List<Choice> promptChoices = choices.get(prompt);
+                            synchronized (promptChoices) {
+                                promptChoices.add(choice);
+                            }
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : pending) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Completions request failed", e.getCause());
+                }
+            }
+        }
+
+        for (List<Choice> promptChoices : choices) {
+            promptChoices.sort(Comparator.comparingInt(Choice::getIndex));
+        }
+        return choices;
+    }
+
+    /**
+     * Stops the request threads, interrupting any call still running.
+     */
+    @Override
+    public void close() {
+        calls.shutdownNow();
+    }
+
+    public void printMetrics() {
+        System.out.printf("Completions fan-out: requests=%d, hedges=%d, hedge wins=%d.%n",
+            requests.get(), hedges.get(), hedgeWins.get());
+        latency.print();
+    }
+
+    /**
+     * Splits the prompts into contiguous {@code [start, end)} slices. The slice count is the minimum
+     * the limits allow, and tokens are spread evenly across slices so no single request is much
+     * slower than the rest.
+     */
+    private List<int[]> slice(List<String> prompts) {
+        int[] tokens = new int[prompts.size()];
+        long totalTokens = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = tokenCounter.count(prompts.get(i));
+            totalTokens += tokens[i];
+        }
+        long sliceCount = Math.max(
+            (prompts.size() + maxPromptsPerRequest - 1) / maxPromptsPerRequest,
+            (totalTokens + maxTokensPerRequest - 1) / maxTokensPerRequest);
+        long targetTokens = sliceCount == 0 ? 0 : (totalTokens + sliceCount - 1) / sliceCount;
+
+        List<int[]> slices = new ArrayList<>();
+        int start = 0;
+        long sliceTokens = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            boolean full = i - start >= maxPromptsPerRequest
+                || sliceTokens + tokens[i] > maxTokensPerRequest
+                || sliceTokens >= targetTokens;
+            if (full && i > start) {
+                slices.add(new int[] {start, i});
+                start = i;
+                sliceTokens = 0;
+            }
+            sliceTokens += tokens[i];
+        }
+        if (start < tokens.length) {
+            slices.add(new int[] {start, tokens.length});
+        }
+        return slices;
+    }
+
+    private Completions hedged(CompletionsOptions options)
+        throws InterruptedException, ExecutionException {
+        long issued = requests.incrementAndGet();
+        CompletableFuture<Completions> primary = new CompletableFuture<>();
+        Future<?> primaryCall = timedCall(options, primary);
+        try {
+            if (latency.count() < 20) {
+                return primary.get();
+            }
+            try {
+                return primary.get(latency.percentileNanos(95), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (!reserveHedge(issued)) {
+                    return primary.get();
+                }
+            }
+
+            CompletableFuture<Completions> hedge = new CompletableFuture<>();
+            Future<?> hedgeCall = timedCall(options, hedge);
+            CompletableFuture<Completions> first = new CompletableFuture<>();
+            AtomicInteger failures = new AtomicInteger();
+            BiConsumer<Completions, Throwable> settle = (result, error) -> {
+                if (error == null) {
+                    first.complete(result);
+                } else if (failures.incrementAndGet() == 2) {
+                    // Only fail once both attempts have failed
+                    first.completeExceptionally(error);
+                }
+            };
+            primary.whenComplete(settle);
+            hedge.whenComplete((result, error) -> {
+                if (error == null && first.complete(result)) {
+                    hedgeWins.incrementAndGet();
+                } else {
+                    settle.accept(result, error);
+                }
+            });
+
+            try {
+                return first.get();
+            } finally {
+                hedgeCall.cancel(true);
+            }
+        } finally {
+            // Interrupting the losing call aborts its request instead of letting it run to completion
+            primaryCall.cancel(true);
+        }
+    }
+
+    /**
+     * Counts a hedge unless that would take hedges past {@code maxHedgeFraction} of the
+     * {@code issued} requests.
+     */
+    private boolean reserveHedge(long issued) {
+        long limit = Math.max(1, (long) (issued * maxHedgeFraction));
+        while (true) {
+            long current = hedges.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (hedges.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Sends one request on its own virtual thread and completes {@code result} with its outcome.
+     * Cancelling the returned future interrupts the thread, which abandons the HTTP call.
+     */
+    private Future<?> timedCall(CompletionsOptions options, CompletableFuture<Completions> result) {
+        return calls.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                Completions completions = client.getCompletions(deploymentOrModelName, options);
+                latency.record(System.nanoTime() - start);
+                result.complete(completions);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+    }
+}
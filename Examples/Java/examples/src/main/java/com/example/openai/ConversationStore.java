@@ -0,0 +1,236 @@
+package com.example.openai;
+
+import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.models.ChatCompletions;
+import com.azure.ai.openai.models.ChatCompletionsOptions;
+import com.azure.ai.openai.models.ChatRequestMessage;
+import com.azure.ai.openai.models.ChatRequestSystemMessage;
+import com.azure.ai.openai.models.ChatRequestToolMessage;
+import com.azure.core.util.BinaryData;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-session chat histories with token counts computed once, when a message is appended. Each
+ * request gets the system prefix, an optional summary of dropped turns and as many recent messages
+ * as fit the token budget. When a history outgrows the budget it is cut back to a low-water mark
+ * in one step instead of one message per turn, so the messages at the front stay the same for many
+ * turns and the service's prompt cache keeps matching.
+ */
+public class ConversationStore {
+    /**
+     * Folds dropped messages into a running summary.
+     */
+    @FunctionalInterface
+    public interface Summarizer {
+        String summarize(String previousSummary, List<ChatRequestMessage> dropped);
+
+        /**
+         * Summarizes with a chat deployment, ideally a small and cheap one.
+         */
+        static Summarizer using(OpenAIClient client, String deploymentOrModelName, int maxTokens) {
+            return (previousSummary, dropped) -> {
+                List<ChatRequestMessage> messages = new ArrayList<>(dropped.size() + 2);
+                messages.add(new ChatRequestSystemMessage("Summarize the conversation so far in a few sentences. "
+                    + "Keep names, numbers and decisions. Earlier summary: "
+                    + (previousSummary == null ? "none" : previousSummary)));
+                messages.addAll(dropped);
+                ChatCompletions completions = client.getChatCompletions(deploymentOrModelName,
+                    new ChatCompletionsOptions(messages).setMaxTokens(maxTokens));
+                return completions.getChoices().get(0).getMessage().getContent();
+            };
+        }
+    }
+
+    private static class Entry {
+        private final ChatRequestMessage message;
+        private final int tokens;
+
+        Entry(ChatRequestMessage message, int tokens) {
+            this.message = message;
+            this.tokens = tokens;
+        }
+    }
+
+    private static class Conversation {
+        private final List<Entry> prefix = new ArrayList<>();
+        private final ArrayDeque<Entry> history = new ArrayDeque<>();
+        private int prefixTokens;
+        private int historyTokens;
+        private String summaryText;
+        private Entry summary;
+        // Set while a summary is being written outside the lock, so only one compaction runs at a time
+        private boolean compacting;
+    }
+
+    // Role, separators and the like cost a few tokens on top of the content
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    private final TokenCounter tokenCounter;
+    private final int maxTokens;
+    private final int lowWaterTokens;
+    private final Summarizer summarizer;
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+
+    private final LongAdder countedTokens = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+
+    /**
+     * @param maxTokens budget for the messages of one request, excluding the completion
+     * @param lowWaterFraction fraction of the budget a history is cut back to when it overflows, e.g. 0.6
+     * @param summarizer folds dropped messages into a summary, or {@code null} to drop them outright
+     */
+    public ConversationStore(TokenCounter tokenCounter, int maxTokens, double lowWaterFraction,
+                             Summarizer summarizer) {
+        this.tokenCounter = tokenCounter;
+        this.maxTokens = maxTokens;
+        this.lowWaterTokens = (int) (maxTokens * lowWaterFraction);
+        this.summarizer = summarizer;
+    }
+
+    /**
+     * Sets the messages every request of the session starts with, such as the system prompt. They
+     * are never dropped, and keeping them identical across sessions lets sessions share cache hits.
+     */
+    public void setPrefix(String sessionId, List<? extends ChatRequestMessage> messages) {
+        Conversation conversation = conversation(sessionId);
+        synchronized (conversation) {
+            conversation.prefix.clear();
+            conversation.prefixTokens = 0;
+            for (ChatRequestMessage message : messages) {
+                Entry entry = entry(message);
+                conversation.prefix.add(entry);
+                conversation.prefixTokens += entry.tokens;
+            }
+        }
+    }
+
+    /**
+     * Appends messages, typically the user turn or the assistant reply and tool results. When the
+     * session outgrows the budget, the summarizer runs on this thread but outside the session's
+     * lock. If it throws, the history is left as it was and the next append tries again.
+     */
+    public void append(String sessionId, ChatRequestMessage... messages) {
+        Conversation conversation = conversation(sessionId);
+        List<ChatRequestMessage> dropped;
+        String previousSummary;
+        synchronized (conversation) {
+            for (ChatRequestMessage message : messages) {
+                Entry entry = entry(message);
+                conversation.history.addLast(entry);
+                conversation.historyTokens += entry.tokens;
+            }
+            if (tokens(conversation) <= maxTokens || conversation.compacting) {
+                return;
+            }
+            dropped = droppable(conversation);
+            if (summarizer == null || dropped.isEmpty()) {
+                drop(conversation, dropped.size());
+                return;
+            }
+            conversation.compacting = true;
+            previousSummary = conversation.summaryText;
+        }
+
+        String summaryText;
+        try {
+            summaryText = summarizer.summarize(previousSummary, dropped);
+        } catch (RuntimeException e) {
+            synchronized (conversation) {
+                conversation.compacting = false;
+            }
+            throw e;
+        }
+        Entry summary = entry(new ChatRequestSystemMessage("Summary of the earlier conversation: " + summaryText));
+        synchronized (conversation) {
+            // Appends only add at the end, so the summarized messages are still the oldest ones
+            drop(conversation, dropped.size());
+            conversation.summaryText = summaryText;
+            conversation.summary = summary;
+            conversation.compacting = false;
+        }
+    }
+
+    /**
+     * Messages to send for the session's next request, oldest first.
+     */
+    public List<ChatRequestMessage> messages(String sessionId) {
+        Conversation conversation = conversation(sessionId);
+        synchronized (conversation) {
+            List<ChatRequestMessage> messages = new ArrayList<>(
+                conversation.prefix.size() + conversation.history.size() + 1);
+            for (Entry entry : conversation.prefix) {
+                messages.add(entry.message);
+            }
+            if (conversation.summary != null) {
+                messages.add(conversation.summary.message);
+            }
+            for (Entry entry : conversation.history) {
+                messages.add(entry.message);
+            }
+            return messages;
+        }
+    }
+
+    public int getTokenCount(String sessionId) {
+        Conversation conversation = conversation(sessionId);
+        synchronized (conversation) {
+            return tokens(conversation);
+        }
+    }
+
+    public void remove(String sessionId) {
+        conversations.remove(sessionId);
+    }
+
+    public void printMetrics() {
+        System.out.printf("Conversations: sessions=%d, tokens counted=%d, compactions=%d.%n",
+            conversations.size(), countedTokens.sum(), compactions.sum());
+    }
+
+    private Conversation conversation(String sessionId) {
+        return conversations.computeIfAbsent(sessionId, ignored -> new Conversation());
+    }
+
+    private Entry entry(ChatRequestMessage message) {
+        int tokens = tokenCounter.count(BinaryData.fromObject(message).toString()) + MESSAGE_OVERHEAD_TOKENS;
+        countedTokens.add(tokens);
+        return new Entry(message, tokens);
+    }
+
+    private int tokens(Conversation conversation) {
+        return conversation.prefixTokens + conversation.historyTokens
+            + (conversation.summary == null ? 0 : conversation.summary.tokens);
+    }
+
+    /**
+     * Oldest messages to drop to bring the session under the low-water mark, keeping at least the
+     * newest message. A tool result is never left without the assistant message that requested it.
+     */
+    private List<ChatRequestMessage> droppable(Conversation conversation) {
+        List<ChatRequestMessage> dropped = new ArrayList<>();
+        int remainingTokens = tokens(conversation);
+        Iterator<Entry> entries = conversation.history.iterator();
+        while (conversation.history.size() - dropped.size() > 1) {
+            Entry entry = entries.next();
+            if (remainingTokens <= lowWaterTokens && !(entry.message instanceof ChatRequestToolMessage)) {
+                break;
+            }
+            remainingTokens -= entry.tokens;
+            dropped.add(entry.message);
+        }
+        return dropped;
+    }
+
+    private void drop(Conversation conversation, int count) {
+        compactions.increment();
+        for (int i = 0; i < count; i++) {
+            conversation.historyTokens -= conversation.history.removeFirst().tokens;
+        }
+    }
+}
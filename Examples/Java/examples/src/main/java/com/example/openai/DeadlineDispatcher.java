@@ -0,0 +1,252 @@
+package com.example.openai;
+
+import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.models.Batch;
+import com.azure.ai.openai.models.ChatCompletions;
+import com.azure.ai.openai.models.ChatCompletionsOptions;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chooses between the synchronous chat endpoint and the Batch API per request, based on the
+ * caller's deadline. Requests that can tolerate a batch turnaround are accumulated into batch
+ * shards; anything more urgent goes straight to {@link OpenAIClient#getChatCompletions}. The shards
+ * of one submission are awaited concurrently within a single batch turnaround. Batch requests that
+ * come back without a result are retried synchronously while their deadline allows.
+ */
+public class DeadlineDispatcher implements AutoCloseable {
+    private static class PendingRequest {
+        private final ChatCompletionsOptions options;
+        private final Instant deadline;
+        private final CompletableFuture<ChatCompletions> result = new CompletableFuture<>();
+
+        PendingRequest(ChatCompletionsOptions options, Instant deadline) {
+            this.options = options;
+            this.deadline = deadline;
+        }
+    }
+
+    private final OpenAIClient client;
+    private final String deploymentOrModelName;
+    private final BatchJobRunner batchRunner;
+    private final Duration batchTurnaround;
+    private final Duration maxAccumulation;
+    private final int maxBatchRequests;
+    private final double pricePerMillionTokens;
+    private final double batchDiscount;
+
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService flushTimer = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicLong requestIds = new AtomicLong();
+
+    private BatchJobRunner.ShardWriter shardWriter;
+    // Shards of one flush are joined concurrently, so their requests live in a concurrent map
+    private Map<String, PendingRequest> accumulated = new ConcurrentHashMap<>();
+    private Instant accumulationStart;
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder syncRequests = new LongAdder();
+    private final LongAdder batchRequests = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final DoubleAdder cost = new DoubleAdder();
+
+    /**
+     * @param batchTurnaround completion window to assume for a batch, e.g. 24 hours plus polling slack
+     * @param maxAccumulation longest a request waits before its batch is submitted
+     * @param maxBatchRequests batch is submitted as soon as it holds this many requests
+     * @param pricePerMillionTokens list price of the deployment, used for cost metrics
+     * @param batchDiscount fraction taken off the list price for batch requests, e.g. 0.5
+     */
+    public DeadlineDispatcher(OpenAIClient client, String deploymentOrModelName, BatchJobRunner batchRunner,
+                              Duration batchTurnaround, Duration maxAccumulation, int maxBatchRequests,
+                              double pricePerMillionTokens, double batchDiscount) {
+        this.client = client;
+        this.deploymentOrModelName = deploymentOrModelName;
+        this.batchRunner = batchRunner;
+        this.batchTurnaround = batchTurnaround;
+        this.maxAccumulation = maxAccumulation;
+        this.maxBatchRequests = maxBatchRequests;
+        this.pricePerMillionTokens = pricePerMillionTokens;
+        this.batchDiscount = batchDiscount;
+        long checkMillis = Math.max(1000, maxAccumulation.toMillis() / 10);
+        flushTimer.scheduleAtFixedRate(this::flushIfDue, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Routes the request. It goes to the Batch API only if it would still finish in time after the
+     * longest accumulation wait plus the batch turnaround.
+     */
+    public CompletableFuture<ChatCompletions> submit(ChatCompletionsOptions options, Instant deadline)
+        throws IOException {
+        PendingRequest request = new PendingRequest(options, deadline);
+        Instant latestBatchFinish = Instant.now().plus(maxAccumulation).plus(batchTurnaround);
+        if (latestBatchFinish.isAfter(deadline)) {
+            sendSync(request);
+            return request.result;
+        }
+
+        batchRequests.increment();
+        boolean full;
+        synchronized (this) {
+            if (shardWriter == null) {
+                shardWriter = batchRunner.newShardWriter("dispatch-" + System.currentTimeMillis());
+                accumulationStart = Instant.now();
+            }
+            String customId = "request-" + requestIds.incrementAndGet();
+            shardWriter.add(customId, options);
+            accumulated.put(customId, request);
+            full = accumulated.size() >= maxBatchRequests;
+        }
+        if (full) {
+            flush();
+        }
+        return request.result;
+    }
+
+    public long getSyncRequests() {
+        return syncRequests.sum();
+    }
+
+    public long getBatchRequests() {
+        return batchRequests.sum();
+    }
+
+    public double getThroughputPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds == 0 ? 0 : completed.sum() / seconds;
+    }
+
+    public double getCostPerRequest() {
+        long count = completed.sum();
+        return count == 0 ? 0 : cost.sum() / count;
+    }
+
+    public void printMetrics() {
+        System.out.printf("Dispatcher: sync=%d, batch=%d, completed=%d, throughput=%.2f/s, cost/request=%.6f.%n",
+            getSyncRequests(), getBatchRequests(), completed.sum(), getThroughputPerSecond(), getCostPerRequest());
+    }
+
+    /**
+     * Submits whatever has been accumulated and waits until every request has its result, which
+     * can take up to the batch turnaround.
+     */
+    @Override
+    public void close() {
+        flushTimer.shutdownNow();
+        flush();
+        workers.close();
+    }
+
+    private void flushIfDue() {
+        boolean due;
+        synchronized (this) {
+            due = accumulationStart != null
+                && Instant.now().isAfter(accumulationStart.plus(maxAccumulation));
+        }
+        if (due) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        BatchJobRunner.ShardWriter writer;
+        Map<String, PendingRequest> requests;
+        synchronized (this) {
+            if (shardWriter == null) {
+                return;
+            }
+            writer = shardWriter;
+            requests = accumulated;
+            shardWriter = null;
+            accumulated = new ConcurrentHashMap<>();
+            accumulationStart = null;
+        }
+        workers.submit(() -> runBatches(writer, requests));
+    }
+
+    private void runBatches(BatchJobRunner.ShardWriter writer, Map<String, PendingRequest> requests) {
+        try {
+            writer.close();
+            List<Batch> batches = batchRunner.submit(writer.getShards(), 4);
+            // Every shard shares the one turnaround the routing decision assumed
+            long deadlineNanos = System.nanoTime() + batchTurnaround.toNanos();
+            try (ExecutorService waiters = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (Batch batch : batches) {
+                    waiters.submit(() -> awaitAndJoin(batch, writer, requests, deadlineNanos));
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Batch dispatch failed: " + e.getMessage());
+        }
+
+        // Anything without a batch result falls back to the sync endpoint or fails at its deadline
+        for (PendingRequest request : requests.values()) {
+            if (Instant.now().isBefore(request.deadline)) {
+                // Already on a worker thread, and the executor may be shutting down, so call directly
+                syncRequests.increment();
+                callSync(request);
+            } else {
+                request.result.completeExceptionally(
+                    new TimeoutException("No batch result before the deadline " + request.deadline));
+            }
+        }
+    }
+
+    /**
+     * Waits for one shard's batch until {@code deadlineNanos} and completes the requests it answered.
+     * Failed lines and shards that miss the deadline leave their requests for the sync fallback.
+     */
+    private void awaitAndJoin(Batch batch, BatchJobRunner.ShardWriter writer, Map<String, PendingRequest> requests,
+                              long deadlineNanos) {
+        try {
+            Batch finished = batchRunner.awaitCompletion(batch.getId(), Duration.ofSeconds(30),
+                Duration.ofMinutes(15), Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime())));
+            batchRunner.join(finished, writer, (customId, requestLine, completions, error) -> {
+                if (completions != null) {
+                    PendingRequest request = requests.remove(customId);
+                    if (request != null) {
+                        record(completions, batchDiscount);
+                        request.result.complete(completions);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            System.err.println("Batch " + batch.getId() + " failed: " + e.getMessage());
+        }
+    }
+
+    private void sendSync(PendingRequest request) {
+        syncRequests.increment();
+        workers.submit(() -> callSync(request));
+    }
+
+    private void callSync(PendingRequest request) {
+        try {
+            ChatCompletions completions = client.getChatCompletions(deploymentOrModelName, request.options);
+            record(completions, 0);
+            request.result.complete(completions);
+        } catch (RuntimeException e) {
+            request.result.completeExceptionally(e);
+        }
+    }
+
+    private void record(ChatCompletions completions, double discount) {
+        completed.increment();
+        if (completions.getUsage() != null) {
+            cost.add(completions.getUsage().getTotalTokens() * pricePerMillionTokens / 1_000_000 * (1 - discount));
+        }
+    }
+}
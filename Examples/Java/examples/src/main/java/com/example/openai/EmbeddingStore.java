@@ -0,0 +1,197 @@
+package com.example.openai;
+
+import com.azure.ai.openai.models.EmbeddingItem;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds embedding vectors as primitive floats. Each {@link EmbeddingItem} is converted once from its
+ * boxed {@code List<Float>} into fixed-size {@code float[]} blocks, so a vector costs four bytes per
+ * dimension and no per-element objects. A block holds up to 4096 vectors; the last one starts small
+ * and doubles as it fills, so a small store does not pay for a full block. The store can be saved to
+ * and loaded from a memory-mapped file. Writers are serialized; readers take no lock, since every
+ * add publishes a new block table and then the new size.
+ */
+public class EmbeddingStore {
+    private static final int MAGIC = 0x454D4244; // "EMBD"
+    private static final int HEADER_BYTES = 12;
+    private static final int VECTORS_PER_BLOCK = 4096;
+    private static final int INITIAL_BLOCK_VECTORS = 16;
+
+    private final int dimensions;
+    private volatile float[][] blocks = new float[0][];
+    private volatile int size;
+
+    public EmbeddingStore(int dimensions) {
+        if (dimensions < 1) {
+            throw new IllegalArgumentException("dimensions must be at least 1");
+        }
+        this.dimensions = dimensions;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Appends the embedding of {@code item} and returns its row number.
+     */
+    public int add(EmbeddingItem item) {
+        List<Float> embedding = item.getEmbedding();
+        if (embedding.size() != dimensions) {
+            throw new IllegalArgumentException(
+                "Expected " + dimensions + " dimensions but got " + embedding.size());
+        }
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = embedding.get(i);
+        }
+        return add(vector);
+    }
+
+    /**
+     * Appends a copy of {@code vector} and returns its row number.
+     */
+    public synchronized int add(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException(
+                "Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        int row = size;
+        int blockIndex = row / VECTORS_PER_BLOCK;
+        float[][] table = blocks;
+        if (blockIndex == table.length) {
+            table = Arrays.copyOf(table, blockIndex + 1);
+            table[blockIndex] = new float[INITIAL_BLOCK_VECTORS * dimensions];
+        } else if (table[blockIndex].length < offset(row) + dimensions) {
+            float[] last = table[blockIndex];
+            int capacity = Math.min(VECTORS_PER_BLOCK, 2 * last.length / dimensions);
+            table = table.clone();
+            table[blockIndex] = Arrays.copyOf(last, capacity * dimensions);
+        }
+        // Rows at or past size are never read, so the copy is complete before readers can see it
+        System.arraycopy(vector, 0, table[blockIndex], offset(row), dimensions);
+        blocks = table;
+        size = row + 1;
+        return row;
+    }
+
+    /**
+     * Copies row {@code row} into {@code destination}, which must hold {@link #dimensions()} floats.
+     */
+    public void get(int row, float[] destination) {
+        checkRow(row);
+        System.arraycopy(block(row), offset(row), destination, 0, dimensions);
+    }
+
+    public float[] get(int row) {
+        float[] vector = new float[dimensions];
+        get(row, vector);
+        return vector;
+    }
+
+    /**
+     * Backing array of {@code row}. Together with {@link #offset(int)} this gives direct read access
+     * to a vector without copying it. The last block is replaced when it grows, so fetch the block
+     * again after adding rows. Takes no lock.
+     */
+    public float[] block(int row) {
+        return blocks[row / VECTORS_PER_BLOCK];
+    }
+
+    public int offset(int row) {
+        return (row % VECTORS_PER_BLOCK) * dimensions;
+    }
+
+    /**
+     * Independent copy of this store; later adds to either one are not seen by the other.
+     */
+    synchronized EmbeddingStore copy() {
+        EmbeddingStore copy = new EmbeddingStore(dimensions);
+        float[][] table = new float[blocks.length][];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = blocks[i].clone();
+        }
+        copy.blocks = table;
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Writes every vector to {@code path} through a memory-mapped region. The layout is a 12-byte
+     * header (magic, dimensions, count) followed by the vectors as little-endian floats.
+     */
+    public synchronized void save(Path path) throws IOException {
+        long vectorBytes = (long) dimensions * Float.BYTES;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN).putInt(MAGIC).putInt(dimensions).putInt(size);
+
+            // Map one block at a time to keep each mapping well under the 2 GB limit
+            long position = HEADER_BYTES;
+            for (int first = 0; first < size; first += VECTORS_PER_BLOCK) {
+                int count = Math.min(VECTORS_PER_BLOCK, size - first);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, position, count * vectorBytes);
+                region.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().put(block(first), 0, count * dimensions);
+                position += count * vectorBytes;
+            }
+        }
+    }
+
+    /**
+     * Loads a store written by {@link #save(Path)}. Vectors are bulk-copied from the mapped file
+     * into float blocks, without going through boxed values.
+     */
+    public static EmbeddingStore load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not an embedding store: " + path);
+            }
+            int dimensions = header.getInt();
+            int count = header.getInt();
+            long vectorBytes = (long) dimensions * Float.BYTES;
+            if (channel.size() < HEADER_BYTES + count * vectorBytes) {
+                throw new IOException("Embedding store is truncated: " + path);
+            }
+
+            EmbeddingStore store = new EmbeddingStore(dimensions);
+            List<float[]> blocks = new ArrayList<>();
+            long position = HEADER_BYTES;
+            for (int first = 0; first < count; first += VECTORS_PER_BLOCK) {
+                int blockCount = Math.min(VECTORS_PER_BLOCK, count - first);
+                // Full blocks are read as is; the last one is sized to its vectors and grows on add
+                float[] block = new float[blockCount * dimensions];
+                channel.map(FileChannel.MapMode.READ_ONLY, position, blockCount * vectorBytes)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asFloatBuffer()
+                    .get(block, 0, blockCount * dimensions);
+                blocks.add(block);
+                position += blockCount * vectorBytes;
+            }
+            store.blocks = blocks.toArray(new float[0][]);
+            store.size = count;
+            return store;
+        }
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size()) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of " + size());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.openai;
+
+import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.models.EmbeddingItem;
+import com.azure.ai.openai.models.Embeddings;
+import com.azure.ai.openai.models.EmbeddingsOptions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gathers single-text embedding calls from many threads into one {@code getEmbeddings} request.
+ * A batch is flushed when it reaches the item limit or the token limit, or when its oldest text
+ * has waited for the linger time. Each caller gets back the {@link EmbeddingItem} for its own
+ * text, matched through {@link EmbeddingItem#getPromptIndex()}.
+ */
+public class EmbeddingsBatcher implements AutoCloseable {
+    private static class PendingText {
+        private final String text;
+        private final int tokens;
+        private final CompletableFuture<EmbeddingItem> result = new CompletableFuture<>();
+
+        PendingText(String text, int tokens) {
+            this.text = text;
+            this.tokens = tokens;
+        }
+    }
+
+    private final OpenAIClient client;
+    private final String deploymentOrModelName;
+    private final int maxItems;
+    private final int maxTokens;
+    private final long lingerNanos;
+    private final TokenCounter tokenCounter;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchReady = lock.newCondition();
+    private List<PendingText> batch = new ArrayList<>();
+    private int batchTokens;
+    private long batchStartNanos;
+    private boolean closed;
+
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread flusher;
+
+    /**
+     * @param maxItems maximum number of texts in one request
+     * @param maxTokens maximum estimated tokens in one request
+     * @param linger maximum time a text waits for its batch to fill up
+     */
+    public EmbeddingsBatcher(OpenAIClient client, String deploymentOrModelName, int maxItems, int maxTokens,
+                             Duration linger, TokenCounter tokenCounter) {
+        if (maxItems < 1 || maxTokens < 1) {
+            throw new IllegalArgumentException("maxItems and maxTokens must be at least 1");
+        }
+        this.client = client;
+        this.deploymentOrModelName = deploymentOrModelName;
+        this.maxItems = maxItems;
+        this.maxTokens = maxTokens;
+        this.lingerNanos = linger.toNanos();
+        this.tokenCounter = tokenCounter;
+        this.flusher = Thread.ofVirtual().name("embeddings-batcher").start(this::flushLoop);
+    }
+
+    public EmbeddingsBatcher(OpenAIClient client, String deploymentOrModelName) {
+        this(client, deploymentOrModelName, 2048, 8191 * 16, Duration.ofMillis(10), TokenCounter.approximate());
+    }
+
+    /**
+     * Queues {@code text} for the next batch. The future completes when that batch returns.
+     */
+    public CompletableFuture<EmbeddingItem> submit(String text) {
+        PendingText pending = new PendingText(text, tokenCounter.count(text));
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Batcher is closed");
+            }
+            // A text that would overflow the token limit starts a new batch
+            if (!batch.isEmpty() && batchTokens + pending.tokens > maxTokens) {
+                dispatch(takeBatch());
+            }
+            if (batch.isEmpty()) {
+                batchStartNanos = System.nanoTime();
+            }
+            batch.add(pending);
+            batchTokens += pending.tokens;
+            if (batch.size() >= maxItems || batchTokens >= maxTokens) {
+                dispatch(takeBatch());
+            } else {
+                batchReady.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return pending.result;
+    }
+
+    /**
+     * Convenience for callers that want to block: submits and waits for the embedding.
+     */
+    public EmbeddingItem embed(String text) throws InterruptedException, ExecutionException {
+        return submit(text).get();
+    }
+
+    /**
+     * Flushes whatever is pending and waits for in-flight requests to finish.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            if (!batch.isEmpty()) {
+                dispatch(takeBatch());
+            }
+            batchReady.signal();
+        } finally {
+            lock.unlock();
+        }
+        flusher.interrupt();
+        senders.close();
+    }
+
+    private void flushLoop() {
+        lock.lock();
+        try {
+            while (!closed) {
+                if (batch.isEmpty()) {
+                    batchReady.await();
+                    continue;
+                }
+                long remaining = batchStartNanos + lingerNanos - System.nanoTime();
+                if (remaining <= 0) {
+                    dispatch(takeBatch());
+                } else {
+                    batchReady.awaitNanos(remaining);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<PendingText> takeBatch() {
+        List<PendingText> taken = batch;
+        batch = new ArrayList<>();
+        batchTokens = 0;
+        return taken;
+    }
+
+    private void dispatch(List<PendingText> pending) {
+        senders.submit(() -> send(pending));
+    }
+
+    private void send(List<PendingText> pending) {
+        List<String> texts = new ArrayList<>(pending.size());
+        for (PendingText text : pending) {
+            texts.add(text.text);
+        }
+        try {
+            Embeddings embeddings = client.getEmbeddings(deploymentOrModelName, new EmbeddingsOptions(texts));
+            for (EmbeddingItem item : embeddings.getData()) {
+                pending.get(item.getPromptIndex()).result.complete(item);
+            }
+            for (PendingText text : pending) {
+                text.result.completeExceptionally(
+                    new IllegalStateException("No embedding returned for prompt"));
+            }
+        } catch (RuntimeException e) {
+            for (PendingText text : pending) {
+                text.result.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.openai;
+
+import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.OpenAIClientBuilder;
+import com.azure.ai.openai.models.AudioTranscription;
+import com.azure.ai.openai.models.Batch;
+import com.azure.ai.openai.models.BatchCreateRequest;
+import com.azure.ai.openai.models.ChatChoice;
+import com.azure.ai.openai.models.ChatCompletions;
+import com.azure.ai.openai.models.ChatCompletionsOptions;
+import com.azure.ai.openai.models.ChatRequestMessage;
+import com.azure.ai.openai.models.ChatRequestSystemMessage;
+import com.azure.ai.openai.models.ChatRequestUserMessage;
+import com.azure.ai.openai.models.ChatResponseMessage;
+import com.azure.ai.openai.models.Choice;
+import com.azure.ai.openai.models.CompleteUploadRequest;
+import com.azure.ai.openai.models.Completions;
+import com.azure.ai.openai.models.CompletionsOptions;
+import com.azure.ai.openai.models.CreateUploadRequestPurpose;
+import com.azure.ai.openai.models.FileDetails;
+import com.azure.ai.openai.models.FilePurpose;
+import com.azure.ai.openai.models.OpenAIFile;
+import com.azure.ai.openai.models.SpeechGenerationOptions;
+import com.azure.ai.openai.models.SpeechVoice;
+import com.azure.ai.openai.models.Upload;
+import com.azure.core.http.ProxyOptions;
+import com.azure.core.util.BinaryData;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Example {
+    /**
+     * This sample demonstrates how to get completions from the OpenAI API with proper configuration.
+     */
+    public static void main(String[] args) throws Exception {
+        try {
+            // A single argument names a properties file; OPENAI_* environment variables override it
+            OpenAIConfig config = args.length == 1
+                ? OpenAIConfig.load(Paths.get(args[0]), System.getenv())
+                : new OpenAIConfig(args);
+            
+            // Both clients share one connection pool, opened before the first request
+            boolean failed;
+            try (SharedHttpTransport transport = new SharedHttpTransport(config.poolConfig.toPoolSettings())) {
+                transport.warmUp(config.endpoint, createProxyOptions(config), 4, Duration.ofSeconds(10));
+
+                // Initialize base client
+                OpenAIClient client = createOpenAIClient(config, transport);
+
+                // Independent examples run in parallel; only real dependencies are ordered
+                PipelineRunner pipeline = new PipelineRunner(config.pipelineConcurrency)
+                    .stage("completions", results -> {
+                        demonstrateCompletions(client, config);
+                        return null;
+                    })
+                    .stage("chatCompletions", results -> {
+                        demonstrateChatCompletions(client, config);
+                        return null;
+                    })
+                    .stage("audioTranscription", results -> {
+                        demonstrateAudioTranscription(transport, config);
+                        return null;
+                    })
+                    .stage("speechGeneration", results -> {
+                        demonstrateSpeechGeneration(transport, config);
+                        return null;
+                    })
+                    .stage("fileOperations", results -> demonstrateFileOperations(client, config))
+                    // The batch reads the file uploaded by fileOperations, so it waits for the upload
+                    .stage("batchOperations", results -> {
+                        demonstrateBatchOperations(client, transport, config,
+                            results.get("fileOperations", OpenAIFile.class).getId());
+                        return null;
+                    }, "fileOperations")
+                    .stage("createUpload", results -> createUpload(client, config))
+                    .stage("addUploadParts", results -> addUploadParts(client, config,
+                        results.get("createUpload", Upload.class)), "createUpload")
+                    .stage("completeUpload", results -> {
+                        completeUpload(client,
+                            results.get("createUpload", Upload.class),
+                            results.getList("addUploadParts", String.class));
+                        return null;
+                    }, "addUploadParts");
+
+                List<PipelineRunner.StageTiming> timings = pipeline.run();
+                PipelineRunner.printReport(timings);
+                transport.printPoolMetrics();
+                failed = PipelineRunner.anyFailed(timings);
+            }
+            if (failed) {
+                System.exit(1);
+            }
+
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static OpenAIClient createOpenAIClient(OpenAIConfig config, SharedHttpTransport transport) {
+        return createOpenAIClientBuilder(config, transport).buildClient();
+    }
+
+    private static OpenAIClientBuilder createOpenAIClientBuilder(OpenAIConfig config, SharedHttpTransport transport) {
+        // Sends the key as a header on http:// endpoints such as MockOpenAIServer, as a credential otherwise
+        return MockOpenAIServer.clientBuilder(config.endpoint, config.apiKey)
+            .httpClient(transport.getHttpClient(createProxyOptions(config)));
+    }
+
+    private static ProxyOptions createProxyOptions(OpenAIConfig config) {
+        // Without proxy.hostname, connections go out directly
+        if (config.proxyConfig == null) {
+            return null;
+        }
+        ProxyOptions proxyOptions = new ProxyOptions(
+            ProxyOptions.Type.HTTP,
+            new InetSocketAddress(config.proxyConfig.hostname, config.proxyConfig.port));
+        // Anonymous proxies leave proxy.username and proxy.password unset
+        if (config.proxyConfig.hasCredentials()) {
+            proxyOptions.setCredentials(config.proxyConfig.username, config.proxyConfig.password);
+        }
+        return proxyOptions;
+    }
+
+    private static void demonstrateCompletions(OpenAIClient client, OpenAIConfig config) {
+        List<String> prompt = new ArrayList<>();
+        prompt.add("Say this is a test");
+
+        Completions completions = client.getCompletions(
+            config.deploymentModelName,
+            new CompletionsOptions(prompt));
+
+        System.out.printf("Model ID=%s is created at %s.%n",
+            completions.getId(),
+            completions.getCreatedAt());
+
+        for (Choice choice : completions.getChoices()) {
+            System.out.printf("Index: %d, Text: %s.%n",
+                choice.getIndex(),
+                choice.getText());
+        }
+    }
+
+    private static void demonstrateChatCompletions(OpenAIClient client, OpenAIConfig config) {
+        List<ChatRequestMessage> chatMessages = new ArrayList<>();
+        chatMessages.add(new ChatRequestSystemMessage(
+            "You are a helpful assistant. You will talk like a pirate."));
+        chatMessages.add(new ChatRequestUserMessage("Can you help me?"));
+
+        ChatCompletions chatCompletions = client.getChatCompletions(
+            config.deploymentModelName,
+            new ChatCompletionsOptions(chatMessages));
+
+        for (ChatChoice choice : chatCompletions.getChoices()) {
+            ChatResponseMessage message = choice.getMessage();
+            System.out.printf("Index: %d, Chat Role: %s.%n",
+                choice.getIndex(),
+                message.getRole());
+            System.out.println("Message: " + message.getContent());
+        }
+    }
+
+    private static void demonstrateAudioTranscription(SharedHttpTransport transport, OpenAIConfig config)
+        throws IOException {
+        Path filePath = Paths.get(config.fileConfig.audioFilePath, config.fileConfig.audioFileName);
+
+        // The audio is streamed from disk into the request instead of being read into a byte[]
+        AudioTranscription transcription = new StreamingTranscriber(
+            transport.getHttpClient(createProxyOptions(config)), config.endpoint, config.apiKey,
+            config.deploymentModelName)
+            .transcribe(filePath);
+
+        System.out.println("Transcription: " + transcription.getText());
+    }
+
+    private static void demonstrateSpeechGeneration(SharedHttpTransport transport, OpenAIConfig config) {
+        SpeechGenerationOptions speechOptions = new SpeechGenerationOptions(
+            "Today is a wonderful day to build something people love!",
+            SpeechVoice.ALLOY);
+
+        // Audio chunks are written to disk as they arrive instead of being buffered first
+        StreamingSpeechWriter.SpeechResult result = new StreamingSpeechWriter(
+            transport.getHttpClient(createProxyOptions(config)), config.endpoint, config.apiKey,
+            config.deploymentModelId)
+            .write(speechOptions, Paths.get(config.fileConfig.speechOutputPath, "speech.wav"))
+            .block();
+
+        System.out.println("Speech written: " + result);
+    }
+
+    private static OpenAIFile demonstrateFileOperations(OpenAIClient client, OpenAIConfig config) throws IOException {
+        FileDetails fileDetails = new FileDetails(
+            BinaryData.fromFile(Paths.get(config.fileConfig.batchTasksPath, "batch_tasks.jsonl")),
+            "batch_tasks.jsonl");
+
+        OpenAIFile file = client.uploadFile(fileDetails, FilePurpose.BATCH);
+        System.out.println("Uploaded file ID: " + file.getId());
+        return file;
+    }
+
+    private static void demonstrateBatchOperations(OpenAIClient client, SharedHttpTransport transport,
+                                                   OpenAIConfig config, String inputFileId)
+        throws IOException, InterruptedException, TimeoutException {
+        Batch batch = client.createBatch(
+            new BatchCreateRequest("/chat/completions", inputFileId, "24h"));
+
+        System.out.println("Created batch ID: " + batch.getId());
+
+        // The output file only exists once the batch has finished, so poll with backoff first
+        BatchJobRunner runner = new BatchJobRunner(client, transport.getHttpClient(createProxyOptions(config)),
+            config.endpoint, config.apiKey, config.deploymentModelName,
+            Paths.get(config.fileConfig.batchWorkDirectory));
+        Batch finished = runner.awaitCompletion(batch.getId(),
+            Duration.ofSeconds(10), Duration.ofMinutes(10), Duration.ofHours(24));
+        System.out.println("Batch finished with status: " + finished.getStatus());
+
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        runner.join(finished, null, (customId, requestLine, completions, error) -> {
+            if (completions != null) {
+                succeeded.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+            }
+        });
+        System.out.printf("Batch results: %d succeeded, %d failed.%n", succeeded.get(), failed.get());
+    }
+
+    private static Upload createUpload(OpenAIClient client, OpenAIConfig config) throws IOException {
+        return new ChunkedUploader(client).create(
+            Paths.get(config.fileConfig.batchTasksPath),
+            "upload.txt",
+            CreateUploadRequestPurpose.ASSISTANTS,
+            "text/plain");
+    }
+
+    private static List<String> addUploadParts(OpenAIClient client, OpenAIConfig config, Upload upload)
+        throws IOException, InterruptedException {
+        // Parts are memory-mapped slices of the file, sent a few at a time. Parts that succeeded
+        // stay in completedParts, so a failed pass resumes with only the missing parts.
+        ChunkedUploader uploader = new ChunkedUploader(client);
+        Map<Integer, String> completedParts = new ConcurrentHashMap<>();
+        for (int pass = 1; ; pass++) {
+            try {
+                return uploader.uploadParts(upload.getId(), Paths.get(config.fileConfig.batchTasksPath),
+                    completedParts);
+            } catch (IOException e) {
+                if (pass == 3) {
+                    throw e;
+                }
+                System.err.printf("Upload pass %d failed after %d parts, resuming: %s%n",
+                    pass, completedParts.size(), e.getMessage());
+            }
+        }
+    }
+
+    private static void completeUpload(OpenAIClient client, Upload upload, List<String> partIds) {
+        CompleteUploadRequest completeUploadRequest = new CompleteUploadRequest(partIds);
+
+        Upload completeUpload = client.completeUpload(
+            upload.getId(),
+            completeUploadRequest);
+
+        System.out.println("Upload completed, upload ID = " + completeUpload.getId());
+    }
+}
\ No newline at end of file
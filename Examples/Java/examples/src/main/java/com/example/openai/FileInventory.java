@@ -0,0 +1,340 @@
+package com.example.openai;
+
+import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.models.Batch;
+import com.azure.ai.openai.models.BatchStatus;
+import com.azure.ai.openai.models.FilePurpose;
+import com.azure.ai.openai.models.OpenAIFile;
+import com.azure.ai.openai.models.PageableList;
+import com.azure.core.exception.HttpResponseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Inventory of the files and batches in an account. Batches are listed lazily, one page at a time;
+ * this SDK version returns the file list in a single response, without a cursor. Only a compact
+ * entry per file is kept, indexed by purpose and creation time. Garbage collection deletes expired
+ * files concurrently under a request rate limit and leaves files used by active batches alone.
+ */
+public class FileInventory {
+    /**
+     * What the index keeps of one file.
+     */
+    public static class FileEntry {
+        private final String id;
+        private final String filename;
+        private final FilePurpose purpose;
+        private final long bytes;
+        private final long createdAtSeconds;
+
+        FileEntry(OpenAIFile file) {
+            this.id = file.getId();
+            this.filename = file.getFilename();
+            this.purpose = file.getPurpose();
+            this.bytes = file.getBytes();
+            this.createdAtSeconds = file.getCreatedAt().toEpochSecond();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        public FilePurpose getPurpose() {
+            return purpose;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public Instant getCreatedAt() {
+            return Instant.ofEpochSecond(createdAtSeconds);
+        }
+    }
+
+    public static class CollectionResult {
+        private final int deleted;
+        private final int failed;
+        private final long bytesFreed;
+
+        CollectionResult(int deleted, int failed, long bytesFreed) {
+            this.deleted = deleted;
+            this.failed = failed;
+            this.bytesFreed = bytesFreed;
+        }
+
+        public int getDeleted() {
+            return deleted;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public long getBytesFreed() {
+            return bytesFreed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("deleted=%d, failed=%d, freed=%d bytes", deleted, failed, bytesFreed);
+        }
+    }
+
+    private static final Set<BatchStatus> ACTIVE_BATCH_STATUSES = new HashSet<>(Arrays.asList(
+        BatchStatus.VALIDATING, BatchStatus.IN_PROGRESS, BatchStatus.FINALIZING, BatchStatus.CANCELLING));
+
+    private static final Comparator<FileEntry> BY_AGE = Comparator
+        .comparingLong((FileEntry entry) -> entry.createdAtSeconds)
+        .thenComparing(entry -> entry.id);
+
+    private final OpenAIClient client;
+    private final int pageSize;
+    private final Map<String, FileEntry> files = new ConcurrentHashMap<>();
+    private final Map<FilePurpose, NavigableSet<FileEntry>> filesByPurpose = new ConcurrentHashMap<>();
+    private final Set<String> filesInUse = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param pageSize batches requested per list call
+     */
+    public FileInventory(OpenAIClient client, int pageSize) {
+        this.client = client;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Files in the account, or only those of {@code purpose} if it is not {@code null}. The files
+     * endpoint is not cursor-paged in this SDK version, so they arrive in one response.
+     */
+    public List<OpenAIFile> listFiles(FilePurpose purpose) {
+        return purpose == null ? client.listFiles() : client.listFiles(purpose);
+    }
+
+    /**
+     * Batches in the account, fetched a page at a time as the iteration advances.
+     */
+    public Iterable<Batch> listBatches() {
+        return () -> new PagedIterator<>(after -> client.listBatches(after, pageSize));
+    }
+
+    /**
+     * Rebuilds the index from the service: every file, and the files referenced by batches that
+     * are still running.
+     *
+     * @return number of files indexed
+     */
+    public int refresh() {
+        files.clear();
+        filesByPurpose.clear();
+        filesInUse.clear();
+        for (OpenAIFile file : listFiles(null)) {
+            add(new FileEntry(file));
+        }
+        for (Batch batch : listBatches()) {
+            if (ACTIVE_BATCH_STATUSES.contains(batch.getStatus())) {
+                filesInUse.add(batch.getInputFileId());
+                if (batch.getOutputFileId() != null) {
+                    filesInUse.add(batch.getOutputFileId());
+                }
+                if (batch.getErrorFileId() != null) {
+                    filesInUse.add(batch.getErrorFileId());
+                }
+            }
+        }
+        return files.size();
+    }
+
+    public int size() {
+        return files.size();
+    }
+
+    /**
+     * Indexed files of {@code purpose} created before {@code cutoff}, oldest first.
+     */
+    public List<FileEntry> createdBefore(FilePurpose purpose, Instant cutoff) {
+        NavigableSet<FileEntry> entries = filesByPurpose.get(purpose);
+        if (entries == null) {
+            return Collections.emptyList();
+        }
+        List<FileEntry> result = new ArrayList<>();
+        for (FileEntry entry : entries) {
+            if (entry.createdAtSeconds >= cutoff.getEpochSecond()) {
+                break;
+            }
+            result.add(entry);
+        }
+        return result;
+    }
+
+    /**
+     * Indexed files of {@code purpose} of at least {@code minBytes}, largest first.
+     */
+    public List<FileEntry> largerThan(FilePurpose purpose, long minBytes) {
+        NavigableSet<FileEntry> entries = filesByPurpose.get(purpose);
+        if (entries == null) {
+            return Collections.emptyList();
+        }
+        List<FileEntry> result = new ArrayList<>();
+        for (FileEntry entry : entries) {
+            if (entry.bytes >= minBytes) {
+                result.add(entry);
+            }
+        }
+        result.sort(Comparator.comparingLong(FileEntry::getBytes).reversed());
+        return result;
+    }
+
+    public long totalBytes(FilePurpose purpose) {
+        NavigableSet<FileEntry> entries = filesByPurpose.get(purpose);
+        return entries == null ? 0 : entries.stream().mapToLong(FileEntry::getBytes).sum();
+    }
+
+    public void printSummary() {
+        filesByPurpose.forEach((purpose, entries) ->
+            System.out.printf("Files with purpose %s: count=%d, bytes=%d.%n", purpose, entries.size(),
+                totalBytes(purpose)));
+        System.out.printf("Files used by active batches: %d.%n", filesInUse.size());
+    }
+
+    /**
+     * Deletes indexed files older than the maximum age for their purpose; purposes without an
+     * entry are kept. Deletions run concurrently, at most {@code maxConcurrency} at a time and at
+     * most {@code deletesPerMinute} in total, and back off on 429 responses.
+     */
+    public CollectionResult collectGarbage(Map<FilePurpose, Duration> maxAge, int deletesPerMinute,
+                                           int maxConcurrency) {
+        List<FileEntry> expired = new ArrayList<>();
+        Instant now = Instant.now();
+        maxAge.forEach((purpose, age) -> {
+            for (FileEntry entry : createdBefore(purpose, now.minus(age))) {
+                if (!filesInUse.contains(entry.id)) {
+                    expired.add(entry);
+                }
+            }
+        });
+
+        TokenBucket rate = new TokenBucket(deletesPerMinute, Duration.ofMinutes(1));
+        Semaphore concurrency = new Semaphore(maxConcurrency);
+        AtomicInteger deleted = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong bytesFreed = new AtomicLong();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (FileEntry entry : expired) {
+                executor.submit(() -> {
+                    if (delete(entry, rate, concurrency)) {
+                        deleted.incrementAndGet();
+                        bytesFreed.addAndGet(entry.bytes);
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                });
+            }
+        }
+        return new CollectionResult(deleted.get(), failed.get(), bytesFreed.get());
+    }
+
+    private boolean delete(FileEntry entry, TokenBucket rate, Semaphore concurrency) {
+        for (int attempt = 0; attempt < 5; attempt++) {
+            try {
+                rate.acquire(1);
+                concurrency.acquire();
+                try {
+                    client.deleteFile(entry.id);
+                } finally {
+                    concurrency.release();
+                }
+                remove(entry);
+                return true;
+            } catch (HttpResponseException e) {
+                int status = e.getResponse() == null ? 0 : e.getResponse().getStatusCode();
+                if (status == 404) {
+                    // Already gone
+                    remove(entry);
+                    return true;
+                }
+                if (status != 429) {
+                    System.err.println("Deleting " + entry.id + " failed: " + e.getMessage());
+                    return false;
+                }
+                rate.pause(RateLimitedOpenAIClient.retryAfter(e.getResponse()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void add(FileEntry entry) {
+        files.put(entry.id, entry);
+        filesByPurpose.computeIfAbsent(entry.purpose, ignored -> new ConcurrentSkipListSet<>(BY_AGE)).add(entry);
+    }
+
+    private void remove(FileEntry entry) {
+        files.remove(entry.id);
+        NavigableSet<FileEntry> entries = filesByPurpose.get(entry.purpose);
+        if (entries != null) {
+            entries.remove(entry);
+        }
+    }
+
+    /**
+     * Iterates a cursor-paged list. The next page is requested only when the current one is used
+     * up, so at most one page is held in memory.
+     */
+    private static class PagedIterator<T> implements Iterator<T> {
+        private final Function<String, PageableList<T>> fetch;
+        private List<T> page = Collections.emptyList();
+        private int position;
+        private boolean hasMore = true;
+        private String after;
+
+        PagedIterator(Function<String, PageableList<T>> fetch) {
+            this.fetch = fetch;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position == page.size() && hasMore) {
+                PageableList<T> list = fetch.apply(after);
+                page = list.getData() == null ? Collections.emptyList() : list.getData();
+                position = 0;
+                // Services that ignore the cursor return everything at once and no has_more flag
+                hasMore = list.isHasMore() && !page.isEmpty() && list.getLastId() != null;
+                after = list.getLastId();
+            }
+            return position < page.size();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.get(position++);
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.example.openai;
+
+import com.azure.ai.openai.models.ChatMessageImageContentItem;
+import com.azure.ai.openai.models.ChatMessageImageUrl;
+import com.azure.ai.openai.models.ImageGenerationData;
+import com.azure.ai.openai.models.ImageGenerations;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local store for generated and referenced images. Downloads stream straight to disk through
+ * {@link java.net.http.HttpClient} and run in parallel. Files are stored under the SHA-256 of their
+ * content, so the same image fetched from different URLs is kept once. A URL index remembers what
+ * was already fetched, and cached images are served as base64 data URLs for
+ * {@link ChatMessageImageContentItem} without another download. The least recently used images are
+ * evicted once the store exceeds its size limit.
+ */
+public class ImageCache implements AutoCloseable {
+    private static final String INDEX_FILE = "urls.tsv";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Semaphore downloads;
+    private final java.net.http.HttpClient httpClient;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Stored file name to size, in access order; guarded by this
+    private final LinkedHashMap<String, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private final Map<String, String> urlIndex = new ConcurrentHashMap<>();
+    // Lines in the index file, including ones for evicted images; guarded by this
+    private int indexLines;
+    private final Map<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, String> dataUrls;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder downloaded = new LongAdder();
+    private final LongAdder downloadedBytes = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    /**
+     * @param maxBytes total size of stored images before the least recently used are evicted
+     * @param maxConcurrentDownloads downloads running at the same time
+     * @param maxDataUrls encoded data URLs kept in memory for the most recently used images
+     */
+    public ImageCache(Path directory, long maxBytes, int maxConcurrentDownloads, int maxDataUrls)
+        throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.downloads = new Semaphore(maxConcurrentDownloads);
+        this.httpClient = java.net.http.HttpClient.newBuilder()
+            .followRedirects(java.net.http.HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+        this.dataUrls = Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxDataUrls;
+            }
+        });
+        Files.createDirectories(directory);
+        loadExisting();
+    }
+
+    /**
+     * Stores every image of a generation response, downloading URL results in parallel and
+     * decoding base64 results. Paths are returned in the order of {@code images.getData()}.
+     */
+    public List<Path> saveAll(ImageGenerations images) throws IOException {
+        List<CompletableFuture<Path>> pending = new ArrayList<>();
+        for (ImageGenerationData data : images.getData()) {
+            if (data.getUrl() != null) {
+                pending.add(fetch(data.getUrl()));
+            } else {
+                pending.add(CompletableFuture.completedFuture(store(Base64.getDecoder().decode(data.getBase64Data()))));
+            }
+        }
+        List<Path> paths = new ArrayList<>(pending.size());
+        for (CompletableFuture<Path> path : pending) {
+            paths.add(join(path));
+        }
+        return paths;
+    }
+
+    /**
+     * Local copy of the image at {@code url}, downloaded on first use.
+     */
+    public Path get(String url) throws IOException {
+        return join(fetch(url));
+    }
+
+    /**
+     * The image at {@code url} as a {@code data:} URL, so the service does not fetch it either.
+     */
+    public ChatMessageImageUrl imageUrl(String url) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            Path path = get(url);
+            String fileName = path.getFileName().toString();
+            String dataUrl = dataUrls.get(fileName);
+            if (dataUrl == null) {
+                byte[] image;
+                try {
+                    image = Files.readAllBytes(path);
+                } catch (NoSuchFileException e) {
+                    // Evicted between the lookup and the read; the next fetch downloads it again
+                    if (attempt > 0) {
+                        throw e;
+                    }
+                    continue;
+                }
+                dataUrl = "data:" + mimeType(fileName) + ";base64," + Base64.getEncoder().encodeToString(image);
+                dataUrls.put(fileName, dataUrl);
+            }
+            return new ChatMessageImageUrl(dataUrl);
+        }
+    }
+
+    public ChatMessageImageContentItem contentItem(String url) throws IOException {
+        return new ChatMessageImageContentItem(imageUrl(url));
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void printMetrics() {
+        System.out.printf("Images: hits=%d, downloads=%d (%d bytes), evicted=%d, stored=%d bytes.%n",
+            hits.sum(), downloaded.sum(), downloadedBytes.sum(), evicted.sum(), getTotalBytes());
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    /**
+     * Downloads {@code url} unless it is indexed and still on disk. Concurrent requests for the same
+     * URL share one download.
+     */
+    private CompletableFuture<Path> fetch(String url) {
+        String fileName = urlIndex.get(url);
+        if (fileName != null && touch(fileName)) {
+            hits.increment();
+            return CompletableFuture.completedFuture(directory.resolve(fileName));
+        }
+        CompletableFuture<Path> created = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(url, created);
+        if (existing != null) {
+            return existing;
+        }
+        executor.submit(() -> {
+            try {
+                created.complete(download(url));
+            } catch (Exception e) {
+                created.completeExceptionally(e);
+            } finally {
+                inFlight.remove(url, created);
+            }
+        });
+        return created;
+    }
+
+    private Path download(String url) throws IOException, InterruptedException {
+        Path temporary = Files.createTempFile(directory, "download", ".tmp");
+        downloads.acquire();
+        try {
+            java.net.http.HttpResponse<Path> response = httpClient.send(
+                java.net.http.HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofMinutes(2)).GET().build(),
+                java.net.http.HttpResponse.BodyHandlers.ofFile(temporary));
+            if (response.statusCode() != 200) {
+                throw new IOException("Downloading " + url + " failed with status " + response.statusCode());
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        } finally {
+            downloads.release();
+        }
+        downloaded.increment();
+        downloadedBytes.add(Files.size(temporary));
+
+        Path stored = moveIntoStore(temporary);
+        urlIndex.put(url, stored.getFileName().toString());
+        appendToIndex(url, stored.getFileName().toString());
+        return stored;
+    }
+
+    private Path store(byte[] image) throws IOException {
+        Path temporary = Files.createTempFile(directory, "decoded", ".tmp");
+        Files.write(temporary, image);
+        return moveIntoStore(temporary);
+    }
+
+    /**
+     * Names the file after its content hash and image type, dropping it if that content is
+     * already stored.
+     */
+    private Path moveIntoStore(Path temporary) throws IOException {
+        String fileName = hash(temporary) + extension(temporary);
+        Path target = directory.resolve(fileName);
+        long size = Files.size(temporary);
+        synchronized (this) {
+            if (files.containsKey(fileName)) {
+                Files.delete(temporary);
+                return target;
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            files.put(fileName, size);
+            totalBytes += size;
+            evictIfNeeded(fileName);
+        }
+        return target;
+    }
+
+    /**
+     * Marks a stored file as used; returns {@code false} if it has been evicted.
+     */
+    private synchronized boolean touch(String fileName) {
+        return files.get(fileName) != null;
+    }
+
+    private void evictIfNeeded(String keep) throws IOException {
+        Set<String> removed = new HashSet<>();
+        Iterator<Map.Entry<String, Long>> eldest = files.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            Files.deleteIfExists(directory.resolve(entry.getKey()));
+            dataUrls.remove(entry.getKey());
+            totalBytes -= entry.getValue();
+            eldest.remove();
+            removed.add(entry.getKey());
+            evicted.increment();
+        }
+        if (!removed.isEmpty()) {
+            urlIndex.values().removeIf(removed::contains);
+            compactIndexIfNeeded();
+        }
+    }
+
+    /**
+     * Rebuilds the LRU order from file modification times and reloads the URL index, dropping
+     * entries whose file is gone.
+     */
+    private void loadExisting() throws IOException {
+        List<Path> stored = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(path);
+                } else if (!name.equals(INDEX_FILE)) {
+                    stored.add(path);
+                }
+            }
+        }
+        stored.sort(Comparator.comparing(path -> path.toFile().lastModified()));
+        for (Path path : stored) {
+            long size = Files.size(path);
+            files.put(path.getFileName().toString(), size);
+            totalBytes += size;
+        }
+
+        Path index = directory.resolve(INDEX_FILE);
+        if (Files.exists(index)) {
+            for (String line : Files.readAllLines(index, StandardCharsets.UTF_8)) {
+                int tab = line.lastIndexOf('\t');
+                if (tab > 0 && files.containsKey(line.substring(tab + 1))) {
+                    urlIndex.put(line.substring(0, tab), line.substring(tab + 1));
+                }
+            }
+            rewriteIndex();
+        }
+    }
+
+    private synchronized void appendToIndex(String url, String fileName) throws IOException {
+        Files.writeString(directory.resolve(INDEX_FILE), url + '\t' + fileName + '\n', StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        indexLines++;
+        compactIndexIfNeeded();
+    }
+
+    /**
+     * Rewrites the index once most of its lines point at evicted images or repeat a URL.
+     */
+    private void compactIndexIfNeeded() throws IOException {
+        if (indexLines > 2 * urlIndex.size() + 64) {
+            rewriteIndex();
+        }
+    }
+
+    private synchronized void rewriteIndex() throws IOException {
+        Path temporary = Files.createTempFile(directory, "index", ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> entry : urlIndex.entrySet()) {
+                writer.write(entry.getKey() + '\t' + entry.getValue() + '\n');
+            }
+        }
+        Files.move(temporary, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        indexLines = urlIndex.size();
+    }
+
+    private static String hash(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Extension from the file's magic bytes, defaulting to {@code .png}.
+     */
+    private static String extension(Path file) throws IOException {
+        byte[] header = new byte[12];
+        try (InputStream input = Files.newInputStream(file)) {
+            input.readNBytes(header, 0, header.length);
+        }
+        if ((header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8) {
+            return ".jpg";
+        }
+        if (header[0] == 'G' && header[1] == 'I' && header[2] == 'F') {
+            return ".gif";
+        }
+        if (header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F'
+            && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return ".webp";
+        }
+        return ".png";
+    }
+
+    private static String mimeType(String fileName) {
+        if (fileName.endsWith(".jpg")) {
+            return "image/jpeg";
+        }
+        if (fileName.endsWith(".gif")) {
+            return "image/gif";
+        }
+        if (fileName.endsWith(".webp")) {
+            return "image/webp";
+        }
+        return "image/png";
+    }
+
+    private static Path join(CompletableFuture<Path> path) throws IOException {
+        try {
+            return path.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
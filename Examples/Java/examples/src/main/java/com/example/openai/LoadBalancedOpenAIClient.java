@@ -0,0 +1,285 @@
+package com.example.openai;
+
+import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.models.ChatCompletions;
+import com.azure.ai.openai.models.ChatCompletionsOptions;
+import com.azure.ai.openai.models.Completions;
+import com.azure.ai.openai.models.CompletionsOptions;
+import com.azure.ai.openai.models.Embeddings;
+import com.azure.ai.openai.models.EmbeddingsOptions;
+import com.azure.core.exception.HttpResponseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Spreads calls over several (endpoint, credential, deployment) backends. Each call goes to the
+ * backend with the fewest outstanding requests, or is picked with probability inversely
+ * proportional to expected latency, and fails over to another backend on 429, 5xx or connection
+ * errors. Backends that keep failing are taken out of rotation by a circuit breaker and probed
+ * again after a cool-down.
+ */
+public class LoadBalancedOpenAIClient {
+    public enum Strategy {
+        LEAST_OUTSTANDING,
+        LATENCY_WEIGHTED
+    }
+
+    /**
+     * One deployment reachable through one client.
+     */
+    public static class Backend {
+        private final String name;
+        private final OpenAIClient client;
+        private final String deploymentOrModelName;
+
+        private volatile double weight = 1;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private double smoothedLatencyNanos;
+
+        // Circuit breaker state, guarded by this
+        private int consecutiveFailures;
+        private long openUntilNanos;
+        private boolean probing;
+        private long throttledUntilNanos;
+
+        public Backend(String name, OpenAIClient client, String deploymentOrModelName) {
+            this.name = name;
+            this.client = client;
+            this.deploymentOrModelName = deploymentOrModelName;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Relative share of traffic. A weight of 0 drains the backend without removing it.
+         */
+        public Backend setWeight(double weight) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight must not be negative: " + weight);
+            }
+            this.weight = weight;
+            return this;
+        }
+
+        synchronized boolean isAvailable(long now) {
+            if (now < throttledUntilNanos) {
+                return false;
+            }
+            if (openUntilNanos == 0) {
+                return true;
+            }
+            // Half-open: after the cool-down a single probe request is let through
+            return now >= openUntilNanos && !probing;
+        }
+
+        /**
+         * Claims the backend for one call. A half-open backend is claimed by at most one caller, the
+         * probe, until its outcome is recorded.
+         */
+        synchronized boolean tryStart(long now) {
+            if (!isAvailable(now)) {
+                return false;
+            }
+            if (openUntilNanos != 0) {
+                probing = true;
+            }
+            return true;
+        }
+
+        synchronized void onSuccess(long latencyNanos) {
+            smoothedLatencyNanos = smoothedLatencyNanos == 0
+                ? latencyNanos
+                : smoothedLatencyNanos * 0.8 + latencyNanos * 0.2;
+            consecutiveFailures = 0;
+            openUntilNanos = 0;
+            probing = false;
+        }
+
+        synchronized void onFailure(long now, int failureThreshold, Duration openDuration) {
+            failures.increment();
+            consecutiveFailures++;
+            if (probing || consecutiveFailures >= failureThreshold) {
+                openUntilNanos = now + openDuration.toNanos();
+                probing = false;
+            }
+        }
+
+        /**
+         * The backend answered but rejected the request itself, so it is reachable: close the circuit.
+         */
+        synchronized void onRejected() {
+            consecutiveFailures = 0;
+            openUntilNanos = 0;
+            probing = false;
+        }
+
+        synchronized void onThrottled(long now, Duration retryAfter) {
+            throttledUntilNanos = now + retryAfter.toNanos();
+            // A throttled probe proves nothing either way; probe again once the throttle lifts
+            probing = false;
+        }
+
+        synchronized double expectedLatency() {
+            // Untried backends look fast so they get traffic and a latency estimate
+            double latency = smoothedLatencyNanos == 0 ? 1 : smoothedLatencyNanos;
+            return latency * (outstanding.get() + 1);
+        }
+    }
+
+    private final List<Backend> backends;
+    private final Strategy strategy;
+    private final int failureThreshold;
+    private final Duration openDuration;
+
+    /**
+     * @param failureThreshold consecutive failures that open a backend's circuit
+     * @param openDuration how long an open circuit keeps the backend out of rotation
+     */
+    public LoadBalancedOpenAIClient(List<Backend> backends, Strategy strategy, int failureThreshold,
+                                    Duration openDuration) {
+        if (backends.isEmpty()) {
+            throw new IllegalArgumentException("At least one backend is required");
+        }
+        this.backends = new ArrayList<>(backends);
+        this.strategy = strategy;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Changes a backend's routing weight while calls are in flight.
+     */
+    public void setWeight(String backendName, double weight) {
+        for (Backend backend : backends) {
+            if (backend.name.equals(backendName)) {
+                backend.setWeight(weight);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Unknown backend " + backendName);
+    }
+
+    public ChatCompletions getChatCompletions(ChatCompletionsOptions options) {
+        return execute((client, deployment) -> client.getChatCompletions(deployment, options));
+    }
+
+    public Completions getCompletions(CompletionsOptions options) {
+        return execute((client, deployment) -> client.getCompletions(deployment, options));
+    }
+
+    public Embeddings getEmbeddings(EmbeddingsOptions options) {
+        return execute((client, deployment) -> client.getEmbeddings(deployment, options));
+    }
+
+    /**
+     * Runs {@code call} against a selected backend, trying each available backend at most once.
+     * Errors that another backend cannot fix, such as a 400, are thrown immediately.
+     */
+    public <T> T execute(BiFunction<OpenAIClient, String, T> call) {
+        Set<Backend> tried = new HashSet<>();
+        RuntimeException lastFailure = null;
+        while (tried.size() < backends.size()) {
+            long now = System.nanoTime();
+            Backend backend = select(tried, now);
+            if (backend == null) {
+                break;
+            }
+            tried.add(backend);
+            if (!backend.tryStart(now)) {
+                // Another caller claimed the half-open probe between select and here
+                continue;
+            }
+            backend.outstanding.incrementAndGet();
+            backend.calls.increment();
+            try {
+                T result = call.apply(backend.client, backend.deploymentOrModelName);
+                backend.onSuccess(System.nanoTime() - now);
+                return result;
+            } catch (HttpResponseException e) {
+                int status = e.getResponse() == null ? 0 : e.getResponse().getStatusCode();
+                if (status == 429) {
+                    backend.onThrottled(System.nanoTime(), RateLimitedOpenAIClient.retryAfter(e.getResponse()));
+                } else if (status >= 500 || status == 0) {
+                    backend.onFailure(System.nanoTime(), failureThreshold, openDuration);
+                } else {
+                    backend.onRejected();
+                    throw e;
+                }
+                lastFailure = e;
+            } catch (RuntimeException e) {
+                // Connection resets, timeouts and the like
+                backend.onFailure(System.nanoTime(), failureThreshold, openDuration);
+                lastFailure = e;
+            } finally {
+                backend.outstanding.decrementAndGet();
+            }
+        }
+        if (lastFailure != null) {
+            throw lastFailure;
+        }
+        throw new IllegalStateException("No backend available: all circuits are open or throttled");
+    }
+
+    public void printMetrics() {
+        for (Backend backend : backends) {
+            System.out.printf("Backend %s: calls=%d, failures=%d, outstanding=%d, available=%b.%n",
+                backend.name,
+                backend.calls.sum(),
+                backend.failures.sum(),
+                backend.outstanding.get(),
+                backend.isAvailable(System.nanoTime()));
+        }
+    }
+
+    private Backend select(Set<Backend> tried, long now) {
+        List<Backend> candidates = new ArrayList<>(backends.size());
+        for (Backend backend : backends) {
+            if (!tried.contains(backend) && backend.weight > 0 && backend.isAvailable(now)) {
+                candidates.add(backend);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        if (strategy == Strategy.LEAST_OUTSTANDING) {
+            // Start from a random offset so ties do not all land on the first backend
+            int offset = ThreadLocalRandom.current().nextInt(candidates.size());
+            Backend best = null;
+            for (int i = 0; i < candidates.size(); i++) {
+                Backend backend = candidates.get((offset + i) % candidates.size());
+                if (best == null
+                    || backend.outstanding.get() / backend.weight < best.outstanding.get() / best.weight) {
+                    best = backend;
+                }
+            }
+            return best;
+        }
+
+        double[] weights = new double[candidates.size()];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = candidates.get(i).weight / candidates.get(i).expectedLatency();
+            total += weights[i];
+        }
+        double pick = ThreadLocalRandom.current().nextDouble(total);
+        for (int i = 0; i < weights.length; i++) {
+            pick -= weights[i];
+            if (pick <= 0) {
+                return candidates.get(i);
+            }
+        }
+        return candidates.get(candidates.size() - 1);
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.openai;
+
+import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.models.ChatCompletions;
+import com.azure.ai.openai.models.ChatCompletionsOptions;
+import com.azure.ai.openai.models.ChatRequestMessage;
+import com.azure.ai.openai.models.ChatRequestSystemMessage;
+import com.azure.ai.openai.models.ChatRequestUserMessage;
+import com.azure.ai.openai.models.CompletionsOptions;
+import com.azure.ai.openai.models.EmbeddingsOptions;
+import com.azure.core.exception.HttpResponseException;
+import com.azure.core.http.policy.ExponentialBackoffOptions;
+import com.azure.core.http.policy.RetryOptions;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load test for the client: a fixed number of workers each send one request at a time
+ * for a fixed duration, and the run reports throughput, latency percentiles and allocation. Without
+ * an {@code endpoint} it starts a {@link MockOpenAIServer} in the same process, so client overhead
+ * can be measured offline and with controlled service latency, errors and throttling.
+ *
+ * <pre>
+ * java -Dsun.net.httpserver.nodelay=true com.example.openai.LoadGenerator operation=stream concurrency=64 \
+ *     durationSeconds=30 mock.throttleRate=0.02
+ * </pre>
+ *
+ * Arguments are {@code name=value} pairs:
+ * <ul>
+ *     <li>{@code endpoint}, {@code apiKey}, {@code deployment}: service to drive; a mock by default.
+ *     On {@code http://} endpoints the key is sent as a plain {@code api-key} header.</li>
+ *     <li>{@code operation}: {@code chat}, {@code stream}, {@code completions} or {@code embeddings}</li>
+ *     <li>{@code concurrency}, {@code durationSeconds}, {@code warmupSeconds}, {@code maxTokens},
+ *     {@code maxConnections}</li>
+ *     <li>{@code retries}: retries the client's pipeline makes after a failed request, 0 by default
+ *     so that errors and throttling show up in the failure counts rather than as latency</li>
+ *     <li>{@code mock.medianLatencyMillis}, {@code mock.latencySigma}, {@code mock.tokensPerSecond},
+ *     {@code mock.errorRate}, {@code mock.throttleRate}</li>
+ * </ul>
+ *
+ * Workers are platform threads so that their allocation can be read per thread; the figure per
+ * request covers the calling thread, the process rate also includes the transport's event loops.
+ * With the in-process mock, start the JVM with {@code -Dsun.net.httpserver.nodelay=true}, or the
+ * mock's delayed ACKs dominate the latency figures.
+ */
+public class LoadGenerator {
+    private final OpenAIClient client;
+    private final String deployment;
+    private final String operation;
+    private final int maxTokens;
+
+    private final LatencyHistogram latency;
+    private final LatencyHistogram timeToFirstToken = new LatencyHistogram("Time to first token");
+    private final LongAdder succeeded = new LongAdder();
+    private final Map<Integer, LongAdder> failures = new ConcurrentHashMap<>();
+    // First exception of each type, so a run that only fails still says why
+    private final Map<String, Throwable> firstErrors = new ConcurrentHashMap<>();
+    private final LongAdder callerAllocatedBytes = new LongAdder();
+
+    public LoadGenerator(OpenAIClient client, String deployment, String operation, int maxTokens) {
+        this.client = client;
+        this.deployment = deployment;
+        this.operation = operation;
+        this.maxTokens = maxTokens;
+        this.latency = new LatencyHistogram("Latency (" + operation + ")");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Expected name=value, got " + arg);
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        String operation = options.getOrDefault("operation", "chat");
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("durationSeconds", "30")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmupSeconds", "5")));
+        int maxTokens = Integer.parseInt(options.getOrDefault("maxTokens", "16"));
+        int maxConnections = Integer.parseInt(options.getOrDefault("maxConnections", String.valueOf(concurrency)));
+        int retries = Integer.parseInt(options.getOrDefault("retries", "0"));
+
+        MockOpenAIServer mock = null;
+        String endpoint = options.get("endpoint");
+        if (endpoint == null) {
+            long medianMillis = Long.parseLong(options.getOrDefault("mock.medianLatencyMillis", "50"));
+            mock = new MockOpenAIServer(0, new MockOpenAIServer.Settings()
+                .setMedianLatency(Duration.ofMillis(medianMillis))
+                .setLatencySigma(Double.parseDouble(options.getOrDefault("mock.latencySigma", "0.5")))
+                .setTokensPerSecond(Double.parseDouble(options.getOrDefault("mock.tokensPerSecond", "500")))
+                .setErrorRate(Double.parseDouble(options.getOrDefault("mock.errorRate", "0")))
+                .setThrottleRate(Double.parseDouble(options.getOrDefault("mock.throttleRate", "0"))));
+            endpoint = mock.getEndpoint();
+        }
+
+        try (SharedHttpTransport transport = new SharedHttpTransport(
+            new SharedHttpTransport.PoolSettings().setMaxConnections(maxConnections))) {
+            transport.warmUp(endpoint, null, Math.min(maxConnections, concurrency), Duration.ofSeconds(10));
+            OpenAIClient client = MockOpenAIServer.clientBuilder(endpoint, options.getOrDefault("apiKey", "mock"))
+                .httpClient(transport.getHttpClient())
+                .retryOptions(new RetryOptions(new ExponentialBackoffOptions().setMaxRetries(retries)))
+                .buildClient();
+
+            System.out.printf("Driving %s at %s with %d workers for %ds after a %ds warmup.%n",
+                operation, endpoint, concurrency, duration.toSeconds(), warmup.toSeconds());
+            String deployment = options.getOrDefault("deployment", "gpt-4o");
+            // Warm up on a throwaway generator so JIT compilation stays out of the measured run
+            new LoadGenerator(client, deployment, operation, maxTokens).run(concurrency, warmup);
+            new LoadGenerator(client, deployment, operation, maxTokens).run(concurrency, duration).print();
+            transport.printPoolMetrics();
+        } finally {
+            if (mock != null) {
+                mock.printMetrics();
+                mock.close();
+            }
+        }
+    }
+
+    /**
+     * Keeps {@code concurrency} requests in flight for {@code duration}.
+     */
+    public Report run(int concurrency, Duration duration) throws InterruptedException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long deadline = System.nanoTime() + duration.toNanos();
+        long startAllocated = threads.getTotalThreadAllocatedBytes();
+        long start = System.nanoTime();
+
+        List<Thread> workers = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Thread worker = Thread.ofPlatform().name("load-" + i).start(() -> {
+                long threadStart = threads.getCurrentThreadAllocatedBytes();
+                while (System.nanoTime() < deadline) {
+                    send();
+                }
+                callerAllocatedBytes.add(threads.getCurrentThreadAllocatedBytes() - threadStart);
+            });
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return new Report(System.nanoTime() - start, threads.getTotalThreadAllocatedBytes() - startAllocated);
+    }
+
+    private void send() {
+        long start = System.nanoTime();
+        try {
+            switch (operation) {
+                case "chat":
+                    client.getChatCompletions(deployment, chatOptions());
+                    break;
+                case "stream":
+                    boolean first = true;
+                    for (ChatCompletions chunk : client.getChatCompletionsStream(deployment, chatOptions())) {
+                        if (first && !chunk.getChoices().isEmpty()) {
+                            timeToFirstToken.record(System.nanoTime() - start);
+                            first = false;
+                        }
+                    }
+                    break;
+                case "completions":
+                    client.getCompletions(deployment,
+                        new CompletionsOptions(Arrays.asList("Say this is a test")).setMaxTokens(maxTokens));
+                    break;
+                case "embeddings":
+                    client.getEmbeddings(deployment,
+                        new EmbeddingsOptions(Arrays.asList("Your text string goes here")));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown operation " + operation);
+            }
+            latency.record(System.nanoTime() - start);
+            succeeded.increment();
+        } catch (HttpResponseException e) {
+            int status = e.getResponse() == null ? 0 : e.getResponse().getStatusCode();
+            failures.computeIfAbsent(status, ignored -> new LongAdder()).increment();
+            firstErrors.putIfAbsent(e.getClass().getName() + " " + status, e);
+        } catch (RuntimeException e) {
+            if (e instanceof IllegalArgumentException) {
+                throw e;
+            }
+            failures.computeIfAbsent(0, ignored -> new LongAdder()).increment();
+            firstErrors.putIfAbsent(e.getClass().getName(), e);
+        }
+    }
+
+    private ChatCompletionsOptions chatOptions() {
+        List<ChatRequestMessage> messages = Arrays.asList(
+            new ChatRequestSystemMessage("You are a helpful assistant."),
+            new ChatRequestUserMessage("Say this is a test"));
+        return new ChatCompletionsOptions(messages).setMaxTokens(maxTokens);
+    }
+
+    /**
+     * Results of one {@link #run}.
+     */
+    public class Report {
+        private final long elapsedNanos;
+        private final long processAllocatedBytes;
+
+        Report(long elapsedNanos, long processAllocatedBytes) {
+            this.elapsedNanos = elapsedNanos;
+            this.processAllocatedBytes = processAllocatedBytes;
+        }
+
+        public double getRequestsPerSecond() {
+            return succeeded.sum() / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * Bytes allocated by the calling thread per successful request.
+         */
+        public double getAllocatedBytesPerRequest() {
+            long count = succeeded.sum();
+            return count == 0 ? 0 : (double) callerAllocatedBytes.sum() / count;
+        }
+
+        public double getAllocatedMegabytesPerSecond() {
+            return processAllocatedBytes / 1e6 / (elapsedNanos / 1e9);
+        }
+
+        public void print() {
+            System.out.printf("Throughput: %.1f requests/s, succeeded=%d, failed=%s.%n",
+                getRequestsPerSecond(), succeeded.sum(), failures);
+            firstErrors.forEach((kind, error) -> System.out.printf("  First %s: %s%n", kind, error.getMessage()));
+            latency.print();
+            if (timeToFirstToken.count() > 0) {
+                timeToFirstToken.print();
+            }
+            System.out.printf("Allocation: %.1f KB/request on the calling thread, %.1f MB/s in the process.%n",
+                getAllocatedBytesPerRequest() / 1024, getAllocatedMegabytesPerSecond());
+        }
+    }
+}
@@ -0,0 +1,818 @@
+package com.example.openai;
+
+import com.azure.ai.openai.OpenAIClientBuilder;
+import com.azure.core.credential.AzureKeyCredential;
+import com.azure.core.http.HttpHeaderName;
+import com.azure.core.http.HttpHeaders;
+import com.azure.core.http.policy.AddHeadersPolicy;
+import com.azure.json.JsonProviders;
+import com.azure.json.JsonReader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for an Azure OpenAI endpoint, for running the examples and load tests
+ * without a real service. Implements the completions, chat (including SSE streaming), embeddings,
+ * audio, image, files, uploads and batch routes under {@code /openai}, with responses shaped like
+ * the service's. Latency follows a log-normal distribution around a configurable median, output
+ * is produced at a configurable token rate, and a configurable share of requests fails with a
+ * 500 or is throttled with a 429 and Retry-After. The mock serves plain HTTP, where the SDK's key
+ * credentials refuse to send a key, so build clients for {@link #getEndpoint()} with
+ * {@link #clientBuilder(String, String)}; any key is accepted.
+ *
+ * <p>The JDK server leaves Nagle's algorithm on, which with delayed ACKs adds about 40 ms to small
+ * responses. Start the JVM with {@code -Dsun.net.httpserver.nodelay=true} when measuring latency.
+ */
+public final class MockOpenAIServer implements AutoCloseable {
+    /**
+     * Behavior of the mock. Defaults are a fast, error-free service.
+     */
+    public static class Settings {
+        private Duration medianLatency = Duration.ofMillis(50);
+        private double latencySigma = 0.5;
+        private double tokensPerSecond = 500;
+        private int defaultCompletionTokens = 16;
+        private double errorRate;
+        private double throttleRate;
+        private Duration retryAfter = Duration.ofSeconds(1);
+        private int embeddingDimensions = 1536;
+        private Duration batchDuration = Duration.ofSeconds(5);
+
+        /**
+         * Median time before the first byte of a response.
+         */
+        public Settings setMedianLatency(Duration medianLatency) {
+            this.medianLatency = medianLatency;
+            return this;
+        }
+
+        /**
+         * Spread of the log-normal latency distribution; 0 makes every request take the median.
+         */
+        public Settings setLatencySigma(double latencySigma) {
+            this.latencySigma = latencySigma;
+            return this;
+        }
+
+        /**
+         * Output rate of completions; a response of n tokens takes n / rate seconds after the first byte.
+         */
+        public Settings setTokensPerSecond(double tokensPerSecond) {
+            this.tokensPerSecond = tokensPerSecond;
+            return this;
+        }
+
+        public Settings setDefaultCompletionTokens(int defaultCompletionTokens) {
+            this.defaultCompletionTokens = defaultCompletionTokens;
+            return this;
+        }
+
+        /**
+         * Share of requests answered with a 500.
+         */
+        public Settings setErrorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * Share of requests answered with a 429 carrying {@link #setRetryAfter}.
+         */
+        public Settings setThrottleRate(double throttleRate) {
+            this.throttleRate = throttleRate;
+            return this;
+        }
+
+        public Settings setRetryAfter(Duration retryAfter) {
+            this.retryAfter = retryAfter;
+            return this;
+        }
+
+        public Settings setEmbeddingDimensions(int embeddingDimensions) {
+            this.embeddingDimensions = embeddingDimensions;
+            return this;
+        }
+
+        /**
+         * How long a batch stays in progress before it completes.
+         */
+        public Settings setBatchDuration(Duration batchDuration) {
+            this.batchDuration = batchDuration;
+            return this;
+        }
+    }
+
+    private static class StoredFile {
+        private final String id;
+        private final String filename;
+        private final String purpose;
+        private final byte[] content;
+        private final long createdAt;
+
+        StoredFile(String id, String filename, String purpose, byte[] content) {
+            this.id = id;
+            this.filename = filename;
+            this.purpose = purpose;
+            this.content = content;
+            this.createdAt = Instant.now().getEpochSecond();
+        }
+    }
+
+    private static class StoredUpload {
+        private final String id;
+        private final String filename;
+        private final String purpose;
+        private final long bytes;
+        private final long createdAt = Instant.now().getEpochSecond();
+        private final Map<String, byte[]> parts = new ConcurrentHashMap<>();
+        private volatile String status = "pending";
+        private volatile StoredFile file;
+
+        StoredUpload(String id, String filename, String purpose, long bytes) {
+            this.id = id;
+            this.filename = filename;
+            this.purpose = purpose;
+            this.bytes = bytes;
+        }
+    }
+
+    private static class StoredBatch {
+        private final String id;
+        private final String endpoint;
+        private final String inputFileId;
+        private final String completionWindow;
+        private final long createdAtNanos = System.nanoTime();
+        private final long createdAt = Instant.now().getEpochSecond();
+        private volatile String status = "in_progress";
+        private volatile String outputFileId;
+        private volatile int total;
+
+        StoredBatch(String id, String endpoint, String inputFileId, String completionWindow) {
+            this.id = id;
+            this.endpoint = endpoint;
+            this.inputFileId = inputFileId;
+            this.completionWindow = completionWindow;
+        }
+    }
+
+    // Smallest valid PNG: one transparent pixel
+    private static final byte[] PIXEL_PNG = Base64.getDecoder().decode(
+        "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNkYPhfDwAChwGA60e6kgAAAABJRU5ErkJggg==");
+
+    private final Settings settings;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<String, StoredFile> files = new ConcurrentSkipListMap<>();
+    private final Map<String, StoredUpload> uploads = new ConcurrentHashMap<>();
+    private final Map<String, StoredBatch> batches = new ConcurrentSkipListMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+    private final LongAdder injectedThrottles = new LongAdder();
+
+    /**
+     * Starts the server on {@code port}, or on a free port when it is 0.
+     */
+    public MockOpenAIServer(int port, Settings settings) throws IOException {
+        this.settings = settings;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Runs a mock server until the process is stopped:
+     * {@code java -Dsun.net.httpserver.nodelay=true com.example.openai.MockOpenAIServer [port]}.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        MockOpenAIServer mock = new MockOpenAIServer(port, new Settings());
+        // Ctrl-C or a kill stops the process; report and close the server on the way out
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            mock.printMetrics();
+            mock.close();
+        }));
+        System.out.println("Mock OpenAI endpoint listening on " + mock.getEndpoint());
+    }
+
+    /**
+     * Client builder for {@code endpoint} authenticated with {@code apiKey}. On {@code http://}
+     * endpoints the key goes out as an {@code api-key} header added by a pipeline policy, since
+     * {@link AzureKeyCredential} only works over HTTPS.
+     */
+    public static OpenAIClientBuilder clientBuilder(String endpoint, String apiKey) {
+        OpenAIClientBuilder builder = new OpenAIClientBuilder().endpoint(endpoint);
+        if (endpoint.startsWith("http://")) {
+            return builder.addPolicy(new AddHeadersPolicy(
+                new HttpHeaders().set(HttpHeaderName.fromString("api-key"), apiKey)));
+        }
+        return builder.credential(new AzureKeyCredential(apiKey));
+    }
+
+    public String getEndpoint() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public void printMetrics() {
+        System.out.printf("Mock server: requests=%d, injected errors=%d, injected throttles=%d.%n",
+            requests.sum(), injectedErrors.sum(), injectedThrottles.sum());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.increment();
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            if (path.startsWith("/mock/images/")) {
+                send(exchange, 200, "image/png", PIXEL_PNG);
+                return;
+            }
+            if ("HEAD".equals(method)) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            if (injectFault(exchange)) {
+                return;
+            }
+            String route = path.startsWith("/openai") ? path.substring("/openai".length())
+                : path.startsWith("/v1") ? path.substring("/v1".length()) : path;
+            route(exchange, method, route.split("/"), body);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, String.valueOf(e));
+        }
+    }
+
+    /**
+     * Dispatches on the path segments after {@code /openai}; {@code segments[0]} is empty.
+     */
+    private void route(HttpExchange exchange, String method, String[] segments, byte[] body)
+        throws IOException, InterruptedException {
+        String resource = segments.length > 1 ? segments[1] : "";
+        switch (resource) {
+            case "deployments":
+                if (segments.length < 4) {
+                    break;
+                }
+                String operation = String.join("/", Arrays.copyOfRange(segments, 3, segments.length));
+                switch (operation) {
+                    case "completions":
+                        completions(exchange, readObject(body));
+                        return;
+                    case "chat/completions":
+                        chatCompletions(exchange, readObject(body));
+                        return;
+                    case "embeddings":
+                        embeddings(exchange, readObject(body));
+                        return;
+                    case "audio/transcriptions":
+                    case "audio/translations":
+                        delay(latency());
+                        send(exchange, 200, "application/json",
+                            "{\"text\":\"This is a mock transcription.\",\"language\":\"english\",\"duration\":1.0}");
+                        return;
+                    case "audio/speech":
+                        delay(latency());
+                        send(exchange, 200, "audio/wav", new byte[32 * 1024]);
+                        return;
+                    case "images/generations":
+                        imageGenerations(exchange, readObject(body));
+                        return;
+                    default:
+                        break;
+                }
+                break;
+            case "files":
+                files(exchange, method, segments, body);
+                return;
+            case "uploads":
+                uploads(exchange, method, segments, body);
+                return;
+            case "batches":
+                batches(exchange, method, segments, body);
+                return;
+            default:
+                break;
+        }
+        sendError(exchange, 404, "No mock route for " + method + " " + String.join("/", segments));
+    }
+
+    private void completions(HttpExchange exchange, Map<String, Object> request)
+        throws IOException, InterruptedException {
+        List<?> prompts = asList(request.get("prompt"));
+        int n = intValue(request.get("n"), 1);
+        int completionTokens = intValue(request.get("max_tokens"), settings.defaultCompletionTokens);
+        delay(latency().plus(generationTime(completionTokens)));
+
+        StringBuilder json = new StringBuilder("{\"id\":\"cmpl-").append(ids.incrementAndGet())
+            .append("\",\"object\":\"text_completion\",\"created\":").append(Instant.now().getEpochSecond())
+            .append(",\"choices\":[");
+        int promptTokens = 0;
+        for (int p = 0; p < prompts.size(); p++) {
+            promptTokens += TokenCounter.approximate().count(String.valueOf(prompts.get(p)));
+            for (int c = 0; c < n; c++) {
+                if (p + c > 0) {
+                    json.append(',');
+                }
+                json.append("{\"text\":\"").append(text(completionTokens)).append("\",\"index\":").append(p * n + c)
+                    .append(",\"logprobs\":null,\"finish_reason\":\"stop\"}");
+            }
+        }
+        json.append("],");
+        usage(json, promptTokens, completionTokens * prompts.size() * n);
+        json.append('}');
+        send(exchange, 200, "application/json", json.toString());
+    }
+
+    private void chatCompletions(HttpExchange exchange, Map<String, Object> request)
+        throws IOException, InterruptedException {
+        int completionTokens = intValue(request.get("max_tokens"), settings.defaultCompletionTokens);
+        int promptTokens = TokenCounter.approximate().count(String.valueOf(request.get("messages")));
+        String id = "chatcmpl-" + ids.incrementAndGet();
+        long created = Instant.now().getEpochSecond();
+
+        if (Boolean.TRUE.equals(request.get("stream"))) {
+            delay(latency());
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream output = exchange.getResponseBody();
+            long tokenNanos = (long) (1e9 / settings.tokensPerSecond);
+            for (int i = 0; i <= completionTokens; i++) {
+                String delta = i == 0 ? "{\"role\":\"assistant\",\"content\":\"\"}"
+                    : "{\"content\":\"" + text(1) + "\"}";
+                writeEvent(output, "{\"id\":\"" + id + "\",\"object\":\"chat.completion.chunk\",\"created\":" + created
+                    + ",\"choices\":[{\"index\":0,\"delta\":" + delta + ",\"finish_reason\":null}]}");
+                if (i > 0) {
+                    delay(Duration.ofNanos(tokenNanos));
+                }
+            }
+            writeEvent(output, "{\"id\":\"" + id + "\",\"object\":\"chat.completion.chunk\",\"created\":" + created
+                + ",\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}]}");
+            writeEvent(output, "[DONE]");
+            return;
+        }
+
+        delay(latency().plus(generationTime(completionTokens)));
+        StringBuilder json = new StringBuilder("{\"id\":\"").append(id)
+            .append("\",\"object\":\"chat.completion\",\"created\":").append(created)
+            .append(",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"")
+            .append(text(completionTokens)).append("\"},\"finish_reason\":\"stop\"}],");
+        usage(json, promptTokens, completionTokens);
+        json.append('}');
+        send(exchange, 200, "application/json", json.toString());
+    }
+
+    private void embeddings(HttpExchange exchange, Map<String, Object> request)
+        throws IOException, InterruptedException {
+        List<?> inputs = asList(request.get("input"));
+        delay(latency());
+        StringBuilder json = new StringBuilder("{\"object\":\"list\",\"data\":[");
+        int promptTokens = 0;
+        for (int i = 0; i < inputs.size(); i++) {
+            String input = String.valueOf(inputs.get(i));
+            promptTokens += TokenCounter.approximate().count(input);
+            // Deterministic per input, so equal inputs embed identically
+            Random random = new Random(input.hashCode());
+            json.append(i == 0 ? "" : ",").append("{\"object\":\"embedding\",\"index\":").append(i)
+                .append(",\"embedding\":[");
+            for (int d = 0; d < settings.embeddingDimensions; d++) {
+                json.append(d == 0 ? "" : ",").append((float) random.nextGaussian() * 0.03f);
+            }
+            json.append("]}");
+        }
+        json.append("],\"usage\":{\"prompt_tokens\":").append(promptTokens)
+            .append(",\"total_tokens\":").append(promptTokens).append("}}");
+        send(exchange, 200, "application/json", json.toString());
+    }
+
+    private void imageGenerations(HttpExchange exchange, Map<String, Object> request)
+        throws IOException, InterruptedException {
+        int n = intValue(request.get("n"), 1);
+        delay(latency());
+        StringBuilder json = new StringBuilder("{\"created\":").append(Instant.now().getEpochSecond())
+            .append(",\"data\":[");
+        for (int i = 0; i < n; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"url\":\"").append(getEndpoint())
+                .append("/mock/images/").append(ids.incrementAndGet()).append(".png\"}");
+        }
+        json.append("]}");
+        send(exchange, 200, "application/json", json.toString());
+    }
+
+    private void files(HttpExchange exchange, String method, String[] segments, byte[] body) throws IOException {
+        if (segments.length == 2 && "POST".equals(method)) {
+            Map<String, Map.Entry<String, byte[]>> parts = readMultipart(exchange, body);
+            Map.Entry<String, byte[]> file = parts.get("file");
+            Map.Entry<String, byte[]> purpose = parts.get("purpose");
+            if (file == null || purpose == null) {
+                throw new IllegalArgumentException("file and purpose are required");
+            }
+            StoredFile stored = new StoredFile(nextId("file"), file.getKey(),
+                new String(purpose.getValue(), StandardCharsets.UTF_8), file.getValue());
+            files.put(stored.id, stored);
+            send(exchange, 200, "application/json", fileJson(stored));
+            return;
+        }
+        if (segments.length == 2) {
+            String purpose = query(exchange, "purpose");
+            List<String> items = new ArrayList<>();
+            List<String> keys = new ArrayList<>();
+            for (StoredFile file : files.values()) {
+                if (purpose == null || purpose.equals(file.purpose)) {
+                    keys.add(file.id);
+                    items.add(fileJson(file));
+                }
+            }
+            send(exchange, 200, "application/json", page(exchange, keys, items));
+            return;
+        }
+        StoredFile file = files.get(segments[2]);
+        if (file == null) {
+            sendError(exchange, 404, "No file " + segments[2]);
+        } else if (segments.length == 4 && "content".equals(segments[3])) {
+            send(exchange, 200, "application/octet-stream", file.content);
+        } else if ("DELETE".equals(method)) {
+            files.remove(file.id);
+            send(exchange, 200, "application/json",
+                "{\"id\":\"" + file.id + "\",\"object\":\"file\",\"deleted\":true}");
+        } else {
+            send(exchange, 200, "application/json", fileJson(file));
+        }
+    }
+
+    private void uploads(HttpExchange exchange, String method, String[] segments, byte[] body) throws IOException {
+        if (segments.length == 2) {
+            Map<String, Object> request = readObject(body);
+            StoredUpload upload = new StoredUpload(nextId("upload"),
+                String.valueOf(request.get("filename")), String.valueOf(request.get("purpose")),
+                longValue(request.get("bytes")));
+            uploads.put(upload.id, upload);
+            send(exchange, 200, "application/json", uploadJson(upload));
+            return;
+        }
+        StoredUpload upload = uploads.get(segments[2]);
+        if (upload == null) {
+            sendError(exchange, 404, "No upload " + segments[2]);
+            return;
+        }
+        String action = segments.length > 3 ? segments[3] : "";
+        switch (action) {
+            case "parts":
+                Map.Entry<String, byte[]> data = readMultipart(exchange, body).get("data");
+                if (data == null) {
+                    throw new IllegalArgumentException("data is required");
+                }
+                String partId = nextId("part");
+                upload.parts.put(partId, data.getValue());
+                send(exchange, 200, "application/json", "{\"id\":\"" + partId + "\",\"object\":\"upload.part\""
+                    + ",\"created_at\":" + Instant.now().getEpochSecond() + ",\"upload_id\":\"" + upload.id + "\"}");
+                return;
+            case "complete":
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                for (Object partIdValue : asList(readObject(body).get("part_ids"))) {
+                    byte[] part = upload.parts.get(String.valueOf(partIdValue));
+                    if (part == null) {
+                        throw new IllegalArgumentException("Unknown part " + partIdValue);
+                    }
+                    content.write(part);
+                }
+                StoredFile file = new StoredFile(nextId("file"), upload.filename, upload.purpose,
+                    content.toByteArray());
+                files.put(file.id, file);
+                upload.file = file;
+                upload.status = "completed";
+                send(exchange, 200, "application/json", uploadJson(upload));
+                return;
+            case "cancel":
+                upload.status = "cancelled";
+                send(exchange, 200, "application/json", uploadJson(upload));
+                return;
+            default:
+                sendError(exchange, 404, "No upload action " + action);
+        }
+    }
+
+    private void batches(HttpExchange exchange, String method, String[] segments, byte[] body) throws IOException {
+        if (segments.length == 2 && "POST".equals(method)) {
+            Map<String, Object> request = readObject(body);
+            String inputFileId = String.valueOf(request.get("input_file_id"));
+            if (!files.containsKey(inputFileId)) {
+                throw new IllegalArgumentException("No input file " + inputFileId);
+            }
+            StoredBatch batch = new StoredBatch(nextId("batch"), String.valueOf(request.get("endpoint")),
+                inputFileId, String.valueOf(request.get("completion_window")));
+            batches.put(batch.id, batch);
+            send(exchange, 200, "application/json", batchJson(batch));
+            return;
+        }
+        if (segments.length == 2) {
+            List<String> keys = new ArrayList<>();
+            List<String> items = new ArrayList<>();
+            for (StoredBatch batch : batches.values()) {
+                keys.add(batch.id);
+                items.add(batchJson(advance(batch)));
+            }
+            send(exchange, 200, "application/json", page(exchange, keys, items));
+            return;
+        }
+        StoredBatch batch = batches.get(segments[2]);
+        if (batch == null) {
+            sendError(exchange, 404, "No batch " + segments[2]);
+            return;
+        }
+        if (segments.length == 4 && "cancel".equals(segments[3])) {
+            batch.status = "cancelled";
+        }
+        send(exchange, 200, "application/json", batchJson(advance(batch)));
+    }
+
+    /**
+     * Completes a batch once its duration has passed, writing one chat completion per input line.
+     */
+    private synchronized StoredBatch advance(StoredBatch batch) {
+        if (!"in_progress".equals(batch.status)
+            || System.nanoTime() - batch.createdAtNanos < settings.batchDuration.toNanos()) {
+            return batch;
+        }
+        StoredFile input = files.get(batch.inputFileId);
+        StringBuilder output = new StringBuilder();
+        int total = 0;
+        for (String line : new String(input.content, StandardCharsets.UTF_8).split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            total++;
+            Object customId = readObject(line.getBytes(StandardCharsets.UTF_8)).get("custom_id");
+            output.append("{\"id\":\"response-").append(total).append("\",\"custom_id\":\"").append(customId)
+                .append("\",\"response\":{\"status_code\":200,\"request_id\":\"").append(ids.incrementAndGet())
+                .append("\",\"body\":{\"id\":\"chatcmpl-").append(ids.incrementAndGet())
+                .append("\",\"object\":\"chat.completion\",\"created\":").append(Instant.now().getEpochSecond())
+                .append(",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"")
+                .append(text(settings.defaultCompletionTokens)).append("\"},\"finish_reason\":\"stop\"}],");
+            usage(output, 10, settings.defaultCompletionTokens);
+            output.append("}},\"error\":null}\n");
+        }
+        StoredFile outputFile = new StoredFile(nextId("file"), batch.id + "_output.jsonl",
+            "batch_output", output.toString().getBytes(StandardCharsets.UTF_8));
+        files.put(outputFile.id, outputFile);
+        batch.total = total;
+        batch.outputFileId = outputFile.id;
+        batch.status = "completed";
+        return batch;
+    }
+
+    private boolean injectFault(HttpExchange exchange) throws IOException {
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < settings.throttleRate) {
+            injectedThrottles.increment();
+            exchange.getResponseHeaders().set("retry-after-ms", String.valueOf(settings.retryAfter.toMillis()));
+            exchange.getResponseHeaders().set("Retry-After",
+                String.valueOf(Math.max(1, settings.retryAfter.toSeconds())));
+            sendError(exchange, 429, "Rate limit is exceeded. Try again later.");
+            return true;
+        }
+        if (roll < settings.throttleRate + settings.errorRate) {
+            injectedErrors.increment();
+            sendError(exchange, 500, "Injected server error");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Ids are zero-padded so the sorted stores list them in creation order.
+     */
+    private String nextId(String prefix) {
+        return String.format("%s-%012d", prefix, ids.incrementAndGet());
+    }
+
+    private Duration latency() {
+        double factor = Math.exp(settings.latencySigma * ThreadLocalRandom.current().nextGaussian());
+        return Duration.ofNanos((long) (settings.medianLatency.toNanos() * factor));
+    }
+
+    private Duration generationTime(int tokens) {
+        return Duration.ofNanos((long) (tokens * 1e9 / settings.tokensPerSecond));
+    }
+
+    private static void delay(Duration duration) throws InterruptedException {
+        if (!duration.isZero()) {
+            Thread.sleep(duration);
+        }
+    }
+
+    private static String text(int tokens) {
+        StringBuilder text = new StringBuilder(tokens * 5);
+        for (int i = 0; i < tokens; i++) {
+            text.append("mock ");
+        }
+        return text.toString();
+    }
+
+    private static void usage(StringBuilder json, int promptTokens, int completionTokens) {
+        json.append("\"usage\":{\"prompt_tokens\":").append(promptTokens)
+            .append(",\"completion_tokens\":").append(completionTokens)
+            .append(",\"total_tokens\":").append(promptTokens + completionTokens).append('}');
+    }
+
+    private static String fileJson(StoredFile file) {
+        return "{\"object\":\"file\",\"id\":\"" + file.id + "\",\"bytes\":" + file.content.length
+            + ",\"created_at\":" + file.createdAt + ",\"filename\":\"" + escape(file.filename)
+            + "\",\"purpose\":\"" + file.purpose + "\",\"status\":\"processed\"}";
+    }
+
+    private static String uploadJson(StoredUpload upload) {
+        return "{\"object\":\"upload\",\"id\":\"" + upload.id + "\",\"bytes\":" + upload.bytes
+            + ",\"created_at\":" + upload.createdAt + ",\"expires_at\":" + (upload.createdAt + 3600)
+            + ",\"filename\":\"" + escape(upload.filename) + "\",\"purpose\":\"" + upload.purpose
+            + "\",\"status\":\"" + upload.status + "\""
+            + (upload.file == null ? "" : ",\"file\":" + fileJson(upload.file)) + "}";
+    }
+
+    private static String batchJson(StoredBatch batch) {
+        boolean completed = "completed".equals(batch.status);
+        return "{\"object\":\"batch\",\"id\":\"" + batch.id + "\",\"endpoint\":\"" + batch.endpoint
+            + "\",\"input_file_id\":\"" + batch.inputFileId + "\",\"completion_window\":\"" + batch.completionWindow
+            + "\",\"status\":\"" + batch.status + "\",\"created_at\":" + batch.createdAt
+            + ",\"output_file_id\":" + (batch.outputFileId == null ? "null" : "\"" + batch.outputFileId + "\"")
+            + ",\"error_file_id\":null,\"request_counts\":{\"total\":" + batch.total
+            + ",\"completed\":" + (completed ? batch.total : 0) + ",\"failed\":0}}";
+    }
+
+    /**
+     * A cursor page of a list, honoring {@code limit} and {@code after}.
+     */
+    private static String page(HttpExchange exchange, List<String> keys, List<String> items) {
+        String after = query(exchange, "after");
+        String limitValue = query(exchange, "limit");
+        int limit = limitValue == null ? 10_000 : Integer.parseInt(limitValue);
+        int start = after == null ? 0 : keys.indexOf(after) + 1;
+        int end = Math.min(items.size(), start + limit);
+        StringBuilder json = new StringBuilder("{\"object\":\"list\",\"data\":[");
+        for (int i = start; i < end; i++) {
+            json.append(i == start ? "" : ",").append(items.get(i));
+        }
+        json.append("],\"has_more\":").append(end < items.size());
+        if (end > start) {
+            json.append(",\"first_id\":\"").append(keys.get(start))
+                .append("\",\"last_id\":\"").append(keys.get(end - 1)).append('"');
+        }
+        return json.append('}').toString();
+    }
+
+    private static String query(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0 && pair.substring(0, equals).equals(name)) {
+                return URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> readObject(byte[] body) {
+        try (JsonReader reader = JsonProviders.createReader(body)) {
+            reader.nextToken();
+            Object value = reader.readUntyped();
+            if (!(value instanceof Map)) {
+                throw new IllegalArgumentException("Request body must be a JSON object");
+            }
+            return (Map<String, Object>) value;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid JSON body: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parts of a multipart/form-data body, keyed by field name, with the file name (or field
+     * name) and content of each.
+     */
+    private static Map<String, Map.Entry<String, byte[]>> readMultipart(HttpExchange exchange, byte[] body) {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        int boundaryStart = contentType == null ? -1 : contentType.indexOf("boundary=");
+        if (boundaryStart < 0) {
+            throw new IllegalArgumentException("Expected multipart/form-data");
+        }
+        String boundary = contentType.substring(boundaryStart + "boundary=".length()).replace("\"", "");
+        byte[] delimiter = ("--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        Map<String, Map.Entry<String, byte[]>> parts = new HashMap<>();
+        int position = indexOf(body, delimiter, 0);
+        while (position >= 0) {
+            int headersStart = position + delimiter.length + 2;
+            int next = indexOf(body, delimiter, headersStart);
+            if (next < 0 || headersStart >= body.length) {
+                break;
+            }
+            int headersEnd = indexOf(body, "\r\n\r\n".getBytes(StandardCharsets.US_ASCII), headersStart);
+            String headers = new String(body, headersStart, headersEnd - headersStart, StandardCharsets.UTF_8);
+            String name = headerParameter(headers, "name");
+            String filename = headerParameter(headers, "filename");
+            // Content ends before the CRLF that precedes the next delimiter
+            byte[] content = Arrays.copyOfRange(body, headersEnd + 4, next - 2);
+            parts.put(name, new AbstractMap.SimpleEntry<>(filename == null ? name : filename, content));
+            position = next;
+        }
+        return parts;
+    }
+
+    private static String headerParameter(String headers, String parameter) {
+        Matcher matcher = Pattern.compile("[; ]" + parameter + "=\"([^\"]*)\"").matcher(headers);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern, int from) {
+        outer:
+        for (int i = Math.max(0, from); i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static List<?> asList(Object value) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        return value instanceof List ? (List<?>) value : Collections.singletonList(value);
+    }
+
+    private static int intValue(Object value, int defaultValue) {
+        return value instanceof Number ? ((Number) value).intValue() : defaultValue;
+    }
+
+    private static long longValue(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static void writeEvent(OutputStream output, String data) throws IOException {
+        output.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        output.flush();
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        send(exchange, status, contentType, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, "application/json",
+            "{\"error\":{\"code\":\"" + status + "\",\"message\":\"" + escape(String.valueOf(message)) + "\"}}");
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.openai;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Configuration class to handle all placeholder values. Built either from the 11 positional
+ * arguments of {@code Example} or from a properties file whose entries can be overridden by
+ * environment variables; see {@link #load(Path, Map)}.
+ */
+public class OpenAIConfig {
+    static final String ENDPOINT = "https://api.openai.com";
+    static final String DEPLOYMENT_MODEL_NAME = "deploymentOrModelName";
+    static final String DEPLOYMENT_MODEL_ID = "deploymentOrModelId";
+
+    private static final String ENV_PREFIX = "OPENAI_";
+
+    final String apiKey;
+    final String endpoint;
+    final String openaiSecretKey;
+    final String deploymentModelName;
+    final String deploymentModelId;
+    /**
+     * {@code null} when no {@code proxy.hostname} is set, in which case connections go out directly.
+     */
+    final ProxyConfig proxyConfig;
+    final FileConfig fileConfig;
+    final PoolConfig poolConfig;
+    final Map<String, DeploymentConfig> deployments;
+    final int pipelineConcurrency;
+
+    public OpenAIConfig(String[] args) {
+        if (args.length < 11) {
+            throw new IllegalArgumentException(getUsageMessage());
+        }
+        this.apiKey = args[0];
+        this.endpoint = ENDPOINT;
+        this.openaiSecretKey = args[1];
+        this.deploymentModelName = DEPLOYMENT_MODEL_NAME;
+        this.deploymentModelId = DEPLOYMENT_MODEL_ID;
+        this.proxyConfig = new ProxyConfig(args[2], Integer.parseInt(args[3]), args[4], args[5]);
+        this.fileConfig = new FileConfig(args[6], args[7], args[8], args[9], args[10]);
+        this.poolConfig = new PoolConfig(new Settings(new Properties(), Collections.emptyMap()));
+        this.deployments = Collections.emptyMap();
+        this.pipelineConcurrency = Integer.getInteger("pipeline.concurrency", 4);
+    }
+
+    private OpenAIConfig(Settings settings) {
+        this.apiKey = settings.required("apiKey");
+        this.endpoint = settings.get("endpoint", ENDPOINT);
+        this.openaiSecretKey = settings.get("openaiSecretKey", null);
+        this.deploymentModelName = settings.get("deploymentModelName", DEPLOYMENT_MODEL_NAME);
+        this.deploymentModelId = settings.get("deploymentModelId", DEPLOYMENT_MODEL_ID);
+        String proxyHostname = settings.get("proxy.hostname", "");
+        this.proxyConfig = proxyHostname.isEmpty() ? null : new ProxyConfig(
+            proxyHostname,
+            settings.getInt("proxy.port", 8080),
+            settings.get("proxy.username", null),
+            settings.get("proxy.password", null));
+        this.fileConfig = new FileConfig(
+            settings.get("file.audioFilePath", "."),
+            settings.get("file.audioFileName", "audio.mp3"),
+            settings.get("file.speechOutputPath", "."),
+            settings.get("file.batchTasksPath", "."),
+            settings.get("file.serviceFileId", null),
+            settings.get("file.batchWorkDirectory", FileConfig.DEFAULT_BATCH_WORK_DIRECTORY));
+        this.poolConfig = new PoolConfig(settings);
+        this.pipelineConcurrency = settings.getInt("pipeline.concurrency", 4);
+
+        Map<String, DeploymentConfig> configured = new LinkedHashMap<>();
+        for (String name : settings.childNames("deployments")) {
+            configured.put(name, new DeploymentConfig(name, settings, this.endpoint));
+        }
+        this.deployments = Collections.unmodifiableMap(configured);
+    }
+
+    /**
+     * Reads {@code file} as a properties file, then applies overrides from {@code environment}:
+     * a key such as {@code proxy.port} is overridden by {@code OPENAI_PROXY_PORT}. Secrets are
+     * best kept in the environment only. Deployments are declared as
+     * {@code deployments.<name>.<setting>}.
+     */
+    public static OpenAIConfig load(Path file, Map<String, String> environment) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return new OpenAIConfig(new Settings(properties, environment));
+    }
+
+    static String getUsageMessage() {
+        return "Please provide all required arguments:\n" +
+               "1. API Key\n" +
+               "2. OpenAI Secret Key\n" +
+               "3. Proxy Hostname\n" +
+               "4. Proxy Port\n" +
+               "5. Proxy Username\n" +
+               "6. Proxy Password\n" +
+               "7. File Path for Audio\n" +
+               "8. File Name for Audio\n" +
+               "9. Local File Path for Speech Output\n" +
+               "10. Local File Path for Batch Tasks\n" +
+               "11. File ID from Service Side\n" +
+               "or a single argument: the path of a properties file";
+    }
+
+    public static class ProxyConfig {
+        final String hostname;
+        final int port;
+        final String username;
+        final String password;
+
+        public ProxyConfig(String hostname, int port, String username, String password) {
+            this.hostname = hostname;
+            this.port = port;
+            this.username = username;
+            this.password = password;
+        }
+
+        /**
+         * Whether both a username and a password are configured.
+         */
+        public boolean hasCredentials() {
+            return username != null && password != null;
+        }
+    }
+
+    public static class FileConfig {
+        static final String DEFAULT_BATCH_WORK_DIRECTORY = "batch-work";
+
+        final String audioFilePath;
+        final String audioFileName;
+        final String speechOutputPath;
+        final String batchTasksPath;
+        final String serviceFileId;
+        /**
+         * Directory where {@link BatchJobRunner} writes its request shards.
+         */
+        final String batchWorkDirectory;
+
+        public FileConfig(String audioFilePath, String audioFileName, String speechOutputPath,
+                          String batchTasksPath, String serviceFileId) {
+            this(audioFilePath, audioFileName, speechOutputPath, batchTasksPath, serviceFileId,
+                DEFAULT_BATCH_WORK_DIRECTORY);
+        }
+
+        public FileConfig(String audioFilePath, String audioFileName, String speechOutputPath,
+                          String batchTasksPath, String serviceFileId, String batchWorkDirectory) {
+            this.audioFilePath = audioFilePath;
+            this.audioFileName = audioFileName;
+            this.speechOutputPath = speechOutputPath;
+            this.batchTasksPath = batchTasksPath;
+            this.serviceFileId = serviceFileId;
+            this.batchWorkDirectory = batchWorkDirectory;
+        }
+    }
+
+    /**
+     * Connection pool settings for {@link SharedHttpTransport}.
+     */
+    public static class PoolConfig {
+        final int maxConnections;
+        final int pendingAcquireMaxCount;
+        final Duration responseTimeout;
+        final boolean http2;
+
+        PoolConfig(Settings settings) {
+            this.maxConnections = settings.getInt("pool.maxConnections", 500);
+            this.pendingAcquireMaxCount = settings.getInt("pool.pendingAcquireMaxCount", 10_000);
+            this.responseTimeout = Duration.ofSeconds(settings.getInt("pool.responseTimeoutSeconds", 120));
+            this.http2 = Boolean.parseBoolean(settings.get("pool.http2", "true"));
+        }
+
+        public SharedHttpTransport.PoolSettings toPoolSettings() {
+            return new SharedHttpTransport.PoolSettings()
+                .setMaxConnections(maxConnections)
+                .setPendingAcquireMaxCount(pendingAcquireMaxCount)
+                .setResponseTimeout(responseTimeout)
+                .setHttp2(http2);
+        }
+    }
+
+    /**
+     * One deployment with its own endpoint, quota and routing weight.
+     */
+    public static class DeploymentConfig {
+        final String name;
+        final String endpoint;
+        final String deploymentModelName;
+        final int requestsPerMinute;
+        final int tokensPerMinute;
+        final int maxConcurrency;
+        final double weight;
+
+        DeploymentConfig(String name, Settings settings, String defaultEndpoint) {
+            String prefix = "deployments." + name + ".";
+            this.name = name;
+            this.endpoint = settings.get(prefix + "endpoint", defaultEndpoint);
+            this.deploymentModelName = settings.get(prefix + "deploymentModelName", name);
+            this.requestsPerMinute = settings.getInt(prefix + "requestsPerMinute", 600);
+            this.tokensPerMinute = settings.getInt(prefix + "tokensPerMinute", 90_000);
+            this.maxConcurrency = settings.getInt(prefix + "maxConcurrency", 32);
+            this.weight = Double.parseDouble(settings.get(prefix + "weight", "1"));
+        }
+
+        public RateLimitedOpenAIClient.Limits toLimits() {
+            return new RateLimitedOpenAIClient.Limits(requestsPerMinute, tokensPerMinute, maxConcurrency);
+        }
+    }
+
+    /**
+     * Properties with environment overrides.
+     */
+    private static class Settings {
+        private final Properties properties;
+        private final Map<String, String> environment;
+
+        Settings(Properties properties, Map<String, String> environment) {
+            this.properties = properties;
+            this.environment = environment;
+        }
+
+        String get(String key, String defaultValue) {
+            String fromEnvironment = environment.get(ENV_PREFIX + key.replace('.', '_').toUpperCase(Locale.ROOT));
+            if (fromEnvironment != null) {
+                return fromEnvironment;
+            }
+            return properties.getProperty(key, defaultValue);
+        }
+
+        String required(String key) {
+            String value = get(key, null);
+            if (value == null || value.isEmpty()) {
+                throw new IllegalArgumentException("Missing required setting " + key + " (or environment variable "
+                    + ENV_PREFIX + key.replace('.', '_').toUpperCase(Locale.ROOT) + ")");
+            }
+            return value;
+        }
+
+        int getInt(String key, int defaultValue) {
+            String value = get(key, null);
+            try {
+                return value == null ? defaultValue : Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Setting " + key + " must be an integer but was " + value);
+            }
+        }
+
+        /**
+         * Names directly below {@code prefix}, e.g. {@code gpt4} for {@code deployments.gpt4.weight}.
+         */
+        Set<String> childNames(String prefix) {
+            Set<String> names = new TreeSet<>();
+            for (String key : properties.stringPropertyNames()) {
+                if (key.startsWith(prefix + ".")) {
+                    String rest = key.substring(prefix.length() + 1);
+                    int dot = rest.indexOf('.');
+                    if (dot > 0) {
+                        names.add(rest.substring(0, dot));
+                    }
+                }
+            }
+            return names;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.openai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a graph of named stages on virtual threads. A stage starts as soon as every stage it
+ * depends on has finished, so a full run costs the critical path instead of the sum of all stages.
+ */
+public class PipelineRunner {
+    /**
+     * A unit of work in the pipeline. The returned value is made available to dependent stages.
+     */
+    @FunctionalInterface
+    public interface Stage {
+        Object run(Results results) throws Exception;
+    }
+
+    /**
+     * Read-only view of the values produced by completed stages.
+     */
+    public static class Results {
+        private final Map<String, Object> values = new ConcurrentHashMap<>();
+
+        public <T> T get(String stageName, Class<T> type) {
+            return type.cast(values.get(stageName));
+        }
+
+        /**
+         * A list value, with every element checked against {@code elementType}.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> List<T> getList(String stageName, Class<T> elementType) {
+            List<?> list = get(stageName, List.class);
+            if (list != null) {
+                list.forEach(elementType::cast);
+            }
+            return (List<T>) list;
+        }
+    }
+
+    /**
+     * Timing and outcome of a single stage.
+     */
+    public static class StageTiming {
+        private final String name;
+        private final long startOffsetMillis;
+        private final long durationMillis;
+        private final Throwable error;
+
+        StageTiming(String name, long startOffsetMillis, long durationMillis, Throwable error) {
+            this.name = name;
+            this.startOffsetMillis = startOffsetMillis;
+            this.durationMillis = durationMillis;
+            this.error = error;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getStartOffsetMillis() {
+            return startOffsetMillis;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+    }
+
+    private static class StageDefinition {
+        private final String name;
+        private final Stage stage;
+        private final List<String> dependsOn;
+
+        StageDefinition(String name, Stage stage, List<String> dependsOn) {
+            this.name = name;
+            this.stage = stage;
+            this.dependsOn = dependsOn;
+        }
+    }
+
+    private final int maxConcurrency;
+    private final Map<String, StageDefinition> stages = new LinkedHashMap<>();
+
+    /**
+     * @param maxConcurrency upper bound on the number of stages executing at the same time
+     */
+    public PipelineRunner(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Registers a stage. Dependencies must already be registered, which also rules out cycles.
+     */
+    public PipelineRunner stage(String name, Stage stage, String... dependsOn) {
+        if (stages.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate stage: " + name);
+        }
+        for (String dependency : dependsOn) {
+            if (!stages.containsKey(dependency)) {
+                throw new IllegalArgumentException(
+                    "Stage " + name + " depends on unknown stage " + dependency);
+            }
+        }
+        stages.put(name, new StageDefinition(name, stage, Arrays.asList(dependsOn)));
+        return this;
+    }
+
+    /**
+     * Runs every stage and blocks until all of them have finished. A stage whose dependency
+     * failed is skipped and reported with the dependency's error.
+     */
+    public List<StageTiming> run() throws InterruptedException {
+        Results results = new Results();
+        Semaphore permits = new Semaphore(maxConcurrency);
+        Map<String, CompletableFuture<Object>> futures = new HashMap<>();
+        Map<String, StageTiming> timings = new ConcurrentHashMap<>();
+        long pipelineStart = System.nanoTime();
+
+        for (StageDefinition definition : stages.values()) {
+            futures.put(definition.name, new CompletableFuture<>());
+        }
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (StageDefinition definition : stages.values()) {
+                CompletableFuture<Object> future = futures.get(definition.name);
+                CompletableFuture<?>[] dependencies = definition.dependsOn.stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture[]::new);
+
+                executor.submit(() -> {
+                    long start = System.nanoTime();
+                    try {
+                        CompletableFuture.allOf(dependencies).join();
+                        permits.acquire();
+                        try {
+                            start = System.nanoTime();
+                            Object value = definition.stage.run(results);
+                            if (value != null) {
+                                results.values.put(definition.name, value);
+                            }
+                            timings.put(definition.name, timing(definition.name, pipelineStart, start, null));
+                            future.complete(value);
+                        } finally {
+                            permits.release();
+                        }
+                    } catch (Throwable e) {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        timings.put(definition.name, timing(definition.name, pipelineStart, start, cause));
+                        future.completeExceptionally(cause);
+                    }
+                });
+            }
+        }
+
+        List<StageTiming> ordered = new ArrayList<>();
+        for (String name : stages.keySet()) {
+            ordered.add(timings.get(name));
+        }
+        return ordered;
+    }
+
+    /**
+     * Prints per-stage timings along with the wall time and the sequential sum for comparison.
+     */
+    public static void printReport(List<StageTiming> timings) {
+        long wall = 0;
+        long sum = 0;
+        for (StageTiming timing : timings) {
+            wall = Math.max(wall, timing.startOffsetMillis + timing.durationMillis);
+            sum += timing.durationMillis;
+            System.out.printf("Stage %-20s start=+%dms duration=%dms%s%n",
+                timing.name,
+                timing.startOffsetMillis,
+                timing.durationMillis,
+                timing.error == null ? "" : " FAILED: " + timing.error);
+        }
+        System.out.printf("Pipeline wall time=%dms, sequential sum=%dms.%n", wall, sum);
+    }
+
+    /**
+     * Whether any stage failed or was skipped because a dependency failed.
+     */
+    public static boolean anyFailed(List<StageTiming> timings) {
+        for (StageTiming timing : timings) {
+            if (timing.error != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static StageTiming timing(String name, long pipelineStart, long start, Throwable error) {
+        long end = System.nanoTime();
+        return new StageTiming(name,
+            TimeUnit.NANOSECONDS.toMillis(start - pipelineStart),
+            TimeUnit.NANOSECONDS.toMillis(end - start),
+            error);
+    }
+}
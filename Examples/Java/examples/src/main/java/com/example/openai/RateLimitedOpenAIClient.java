@@ -0,0 +1,394 @@
+package com.example.openai;
+
+import com.azure.ai.openai.OpenAIAsyncClient;
+import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.models.ChatCompletions;
+import com.azure.ai.openai.models.ChatCompletionsOptions;
+import com.azure.ai.openai.models.Completions;
+import com.azure.ai.openai.models.CompletionsOptions;
+import com.azure.ai.openai.models.Embeddings;
+import com.azure.ai.openai.models.EmbeddingsOptions;
+import com.azure.core.exception.HttpResponseException;
+import com.azure.core.http.HttpHeaderName;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.http.policy.ExponentialBackoffOptions;
+import com.azure.core.http.policy.RetryOptions;
+import com.azure.core.util.BinaryData;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+/**
+ * Client-side throttling for {@link OpenAIClient} and {@link OpenAIAsyncClient}. Every deployment
+ * gets a requests-per-minute bucket, a tokens-per-minute bucket and an adaptive concurrency window.
+ * The window grows additively while latency stays near its observed floor and shrinks
+ * multiplicatively on 429 responses or rising latency, so callers back off together instead of
+ * retrying into the limit.
+ *
+ * <p>The wrapped clients must be built with {@link #retryOptions()}. The SDK's default retry policy
+ * retries 429 responses inside the pipeline, while the permit is held and without this class seeing
+ * the throttle.
+ */
+public class RateLimitedOpenAIClient {
+    /**
+     * Per-deployment quota, matching the limits configured on the service.
+     */
+    public static class Limits {
+        private final int requestsPerMinute;
+        private final int tokensPerMinute;
+        private final int maxConcurrency;
+
+        public Limits(int requestsPerMinute, int tokensPerMinute, int maxConcurrency) {
+            this.requestsPerMinute = requestsPerMinute;
+            this.tokensPerMinute = tokensPerMinute;
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Limits)) {
+                return false;
+            }
+            Limits limits = (Limits) other;
+            return requestsPerMinute == limits.requestsPerMinute
+                && tokensPerMinute == limits.tokensPerMinute
+                && maxConcurrency == limits.maxConcurrency;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(requestsPerMinute, tokensPerMinute, maxConcurrency);
+        }
+    }
+
+    /**
+     * AIMD concurrency window. Latency above twice the smoothed floor counts as congestion. Waiters
+     * park on a {@link Condition} rather than a monitor, so virtual threads do not pin their carrier.
+     */
+    private static class AdaptiveWindow {
+        private final int maxLimit;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private double limit;
+        private int inFlight;
+        private double latencyFloorNanos = Double.MAX_VALUE;
+        private double smoothedLatencyNanos;
+
+        AdaptiveWindow(int initialLimit, int maxLimit) {
+            this.limit = initialLimit;
+            this.maxLimit = maxLimit;
+        }
+
+        void acquire() throws InterruptedException {
+            lock.lock();
+            try {
+                while (inFlight >= (int) limit) {
+                    changed.await();
+                }
+                inFlight++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release() {
+            lock.lock();
+            try {
+                inFlight--;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onSuccess(long latencyNanos) {
+            lock.lock();
+            try {
+                smoothedLatencyNanos = smoothedLatencyNanos == 0
+                    ? latencyNanos
+                    : smoothedLatencyNanos * 0.9 + latencyNanos * 0.1;
+                // Let the floor drift up slowly so a single fast outlier does not pin it forever
+                latencyFloorNanos = Math.min(latencyFloorNanos * 1.001, latencyNanos);
+                if (smoothedLatencyNanos > 2 * latencyFloorNanos) {
+                    limit = Math.max(1, limit * 0.9);
+                } else {
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onThrottled() {
+            lock.lock();
+            try {
+                limit = Math.max(1, limit / 2);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int limit() {
+            lock.lock();
+            try {
+                return (int) limit;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static class DeploymentLimiter {
+        private final TokenBucket requests;
+        private final TokenBucket tokens;
+        private final AdaptiveWindow window;
+
+        DeploymentLimiter(Limits limits) {
+            this.requests = new TokenBucket(limits.requestsPerMinute, Duration.ofMinutes(1));
+            this.tokens = new TokenBucket(limits.tokensPerMinute, Duration.ofMinutes(1));
+            this.window = new AdaptiveWindow(Math.min(4, limits.maxConcurrency), limits.maxConcurrency);
+        }
+    }
+
+    private static final int WAITING = 0;
+    private static final int HELD = 1;
+    private static final int DONE = 2;
+
+    private final OpenAIClient client;
+    private final OpenAIAsyncClient asyncClient;
+    private final Limits defaultLimits;
+    private final int maxRetries;
+    private final TokenCounter tokenCounter;
+    private final Map<String, Limits> limits = new ConcurrentHashMap<>();
+    private final Map<String, DeploymentLimiter> limiters = new ConcurrentHashMap<>();
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    /**
+     * @param client client used by the blocking methods, built with {@link #retryOptions()}
+     * @param asyncClient client used by the async methods, or {@code null} if only blocking calls are made
+     * @param defaultLimits limits for deployments without an explicit {@link #setLimits} entry
+     * @param maxRetries retries after a 429, each one waiting for the service's Retry-After
+     */
+    public RateLimitedOpenAIClient(OpenAIClient client, OpenAIAsyncClient asyncClient, Limits defaultLimits,
+                                   int maxRetries, TokenCounter tokenCounter) {
+        this.client = client;
+        this.asyncClient = asyncClient;
+        this.defaultLimits = defaultLimits;
+        this.maxRetries = maxRetries;
+        this.tokenCounter = tokenCounter;
+    }
+
+    /**
+     * Retry settings for the wrapped clients: transient failures are retried by the pipeline as usual,
+     * 429 responses are left to this class.
+     */
+    public static RetryOptions retryOptions() {
+        return new RetryOptions(new ExponentialBackoffOptions()).setShouldRetryCondition(condition -> {
+            HttpResponse response = condition.getResponse();
+            if (response == null) {
+                return condition.getThrowable() instanceof IOException
+                    || condition.getThrowable() instanceof TimeoutException;
+            }
+            int status = response.getStatusCode();
+            return status == 408 || (status >= 500 && status != 501 && status != 505);
+        });
+    }
+
+    /**
+     * Sets the quota for one deployment. May be called under load: requests already holding
+     * permits finish against the old limiter and new requests start with fresh buckets. Setting
+     * the limits a deployment already has keeps its limiter, with its buckets and window, as is.
+     */
+    public RateLimitedOpenAIClient setLimits(String deploymentOrModelName, Limits deploymentLimits) {
+        if (!deploymentLimits.equals(limits.put(deploymentOrModelName, deploymentLimits))) {
+            limiters.remove(deploymentOrModelName);
+        }
+        return this;
+    }
+
+    public ChatCompletions getChatCompletions(String deploymentOrModelName, ChatCompletionsOptions options) {
+        int tokens = estimateTokens(BinaryData.fromObject(options).toString(), options.getMaxTokens());
+        return execute(deploymentOrModelName, tokens,
+            () -> client.getChatCompletions(deploymentOrModelName, options));
+    }
+
+    public Completions getCompletions(String deploymentOrModelName, CompletionsOptions options) {
+        int tokens = estimateTokens(BinaryData.fromObject(options).toString(), options.getMaxTokens());
+        return execute(deploymentOrModelName, tokens,
+            () -> client.getCompletions(deploymentOrModelName, options));
+    }
+
+    public Embeddings getEmbeddings(String deploymentOrModelName, EmbeddingsOptions options) {
+        int tokens = 0;
+        for (String input : options.getInput()) {
+            tokens += tokenCounter.count(input);
+        }
+        int estimated = tokens;
+        return execute(deploymentOrModelName, estimated,
+            () -> client.getEmbeddings(deploymentOrModelName, options));
+    }
+
+    public Mono<ChatCompletions> getChatCompletionsAsync(String deploymentOrModelName,
+                                                         ChatCompletionsOptions options) {
+        int tokens = estimateTokens(BinaryData.fromObject(options).toString(), options.getMaxTokens());
+        return executeAsync(deploymentOrModelName, tokens,
+            () -> asyncClient.getChatCompletions(deploymentOrModelName, options));
+    }
+
+    public Mono<Completions> getCompletionsAsync(String deploymentOrModelName, CompletionsOptions options) {
+        int tokens = estimateTokens(BinaryData.fromObject(options).toString(), options.getMaxTokens());
+        return executeAsync(deploymentOrModelName, tokens,
+            () -> asyncClient.getCompletions(deploymentOrModelName, options));
+    }
+
+    /**
+     * Runs {@code call} once the deployment's buckets and window allow it.
+     */
+    public <T> T execute(String deploymentOrModelName, int estimatedTokens, Supplier<T> call) {
+        DeploymentLimiter limiter = limiter(deploymentOrModelName);
+        for (int attempt = 0; ; attempt++) {
+            acquire(limiter, estimatedTokens);
+            long start = System.nanoTime();
+            try {
+                T result = call.get();
+                limiter.window.onSuccess(System.nanoTime() - start);
+                return result;
+            } catch (HttpResponseException e) {
+                if (!onFailure(limiter, e) || attempt >= maxRetries) {
+                    throw e;
+                }
+            } finally {
+                limiter.window.release();
+            }
+        }
+    }
+
+    /**
+     * Async counterpart of {@link #execute}. Waiting for permits happens on the bounded elastic
+     * scheduler so event-loop threads never block.
+     */
+    public <T> Mono<T> executeAsync(String deploymentOrModelName, int estimatedTokens, Supplier<Mono<T>> call) {
+        DeploymentLimiter limiter = limiter(deploymentOrModelName);
+        return Mono.defer(() -> {
+                // WAITING until the permit is taken, then HELD until the attempt ends. A cancel that
+                // lands while acquire still blocks marks the attempt DONE, and acquire hands the permit back.
+                AtomicInteger state = new AtomicInteger(WAITING);
+                return Mono.fromRunnable(() -> {
+                        acquire(limiter, estimatedTokens);
+                        if (!state.compareAndSet(WAITING, HELD)) {
+                            limiter.window.release();
+                        }
+                    })
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .then(Mono.defer(() -> {
+                        long start = System.nanoTime();
+                        return call.get()
+                            .doOnSuccess(result -> limiter.window.onSuccess(System.nanoTime() - start));
+                    }))
+                    .doFinally(signal -> {
+                        if (state.getAndSet(DONE) == HELD) {
+                            limiter.window.release();
+                        }
+                    });
+            })
+            .retryWhen(Retry.max(maxRetries)
+                .filter(e -> e instanceof HttpResponseException && onFailure(limiter, (HttpResponseException) e)));
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public double getAverageWaitMillis() {
+        long count = waits.sum();
+        return count == 0 ? 0 : waitNanos.sum() / 1e6 / count;
+    }
+
+    public void printMetrics() {
+        System.out.printf("Rate limiter: queue depth=%d, average wait=%.1fms, throttled=%d.%n",
+            getQueueDepth(), getAverageWaitMillis(), throttled.sum());
+        limiters.forEach((name, limiter) ->
+            System.out.printf("  %s: concurrency limit=%d.%n", name, limiter.window.limit()));
+    }
+
+    private DeploymentLimiter limiter(String deploymentOrModelName) {
+        return limiters.computeIfAbsent(deploymentOrModelName,
+            name -> new DeploymentLimiter(limits.getOrDefault(name, defaultLimits)));
+    }
+
+    private void acquire(DeploymentLimiter limiter, int estimatedTokens) {
+        queueDepth.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            limiter.window.acquire();
+            try {
+                limiter.requests.acquire(1);
+                limiter.tokens.acquire(estimatedTokens);
+            } catch (InterruptedException e) {
+                limiter.window.release();
+                throw e;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for rate limit", e);
+        } finally {
+            queueDepth.decrementAndGet();
+            waits.increment();
+            waitNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Updates the limiter after a failed call and reports whether the call may be retried.
+     */
+    private boolean onFailure(DeploymentLimiter limiter, HttpResponseException e) {
+        if (e.getResponse() == null || e.getResponse().getStatusCode() != 429) {
+            return false;
+        }
+        throttled.increment();
+        limiter.window.onThrottled();
+        Duration retryAfter = retryAfter(e.getResponse());
+        limiter.requests.pause(retryAfter);
+        limiter.tokens.pause(retryAfter);
+        return true;
+    }
+
+    /**
+     * Delay the service asked for in a throttled response, defaulting to one second.
+     */
+    static Duration retryAfter(HttpResponse response) {
+        String millis = response.getHeaderValue(HttpHeaderName.fromString("retry-after-ms"));
+        if (millis != null) {
+            return Duration.ofMillis((long) Double.parseDouble(millis));
+        }
+        String seconds = response.getHeaderValue(HttpHeaderName.RETRY_AFTER);
+        if (seconds != null) {
+            try {
+                return Duration.ofSeconds(Long.parseLong(seconds.trim()));
+            } catch (NumberFormatException e) {
+                // Retry-After may also be an HTTP date; fall through to the default
+            }
+        }
+        return Duration.ofSeconds(1);
+    }
+
+    private int estimateTokens(String serializedRequest, Integer maxTokens) {
+        return tokenCounter.count(serializedRequest) + (maxTokens == null ? 0 : maxTokens);
+    }
+}
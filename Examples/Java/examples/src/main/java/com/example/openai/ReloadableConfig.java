@@ -0,0 +1,148 @@
+package com.example.openai;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Keeps an {@link OpenAIConfig} in sync with its properties file. Once {@link #start()} is called, a
+ * watcher thread reloads the file whenever it changes and hands the new config to the registered
+ * listeners. A file that fails to parse or validate is reported and ignored, so the last good config
+ * stays in effect. Rate limits and routing weights can be bound to a reload; connection pool settings
+ * cannot, since clients keep the {@link SharedHttpTransport} they were built with, so a change to
+ * {@code pool.*} takes effect on the next start.
+ */
+public class ReloadableConfig implements AutoCloseable {
+    private final Path file;
+    private final Map<String, String> environment;
+    private final AtomicReference<OpenAIConfig> current;
+    private final List<Consumer<OpenAIConfig>> listeners = new CopyOnWriteArrayList<>();
+    private final WatchService watchService;
+    private Thread watcher;
+
+    public ReloadableConfig(Path file, Map<String, String> environment) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.environment = environment;
+        this.current = new AtomicReference<>(OpenAIConfig.load(this.file, environment));
+        this.watchService = FileSystems.getDefault().newWatchService();
+        // Editors often replace the file rather than write it in place, so watch the directory
+        this.file.getParent().register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    /**
+     * Starts watching the file. Register listeners first so that no reload is missed.
+     */
+    public synchronized ReloadableConfig start() {
+        if (watcher == null) {
+            watcher = Thread.ofVirtual().name("config-watcher").start(this::watch);
+        }
+        return this;
+    }
+
+    public OpenAIConfig get() {
+        return current.get();
+    }
+
+    /**
+     * Registers {@code listener} and calls it once with the current config.
+     */
+    public ReloadableConfig addListener(Consumer<OpenAIConfig> listener) {
+        listeners.add(listener);
+        listener.accept(current.get());
+        return this;
+    }
+
+    /**
+     * Applies every configured deployment's quota to {@code client} on each reload. Deployments
+     * whose quota did not change keep their limiter state.
+     */
+    public ReloadableConfig bind(RateLimitedOpenAIClient client) {
+        return addListener(config -> config.deployments.values().forEach(deployment ->
+            client.setLimits(deployment.deploymentModelName, deployment.toLimits())));
+    }
+
+    /**
+     * Applies every configured deployment's weight to the backend of the same name on each reload.
+     * Backends without a matching deployment keep their weight.
+     */
+    public ReloadableConfig bind(LoadBalancedOpenAIClient client) {
+        return addListener(config -> config.deployments.values().forEach(deployment -> {
+            try {
+                client.setWeight(deployment.name, deployment.weight);
+            } catch (IllegalArgumentException e) {
+                // Deployment is not one of this balancer's backends
+            }
+        }));
+    }
+
+    /**
+     * Rereads the file now and notifies listeners if it is valid.
+     *
+     * @return whether the new config was applied
+     */
+    public boolean reload() {
+        OpenAIConfig config;
+        try {
+            config = OpenAIConfig.load(file, environment);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring invalid config " + file + ": " + e.getMessage());
+            return false;
+        }
+        current.set(config);
+        for (Consumer<OpenAIConfig> listener : listeners) {
+            try {
+                listener.accept(config);
+            } catch (RuntimeException e) {
+                System.err.println("Config listener failed: " + e.getMessage());
+            }
+        }
+        System.out.println("Reloaded config from " + file);
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+        watchService.close();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (context instanceof Path && file.getFileName().equals(context)) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    // Let the writer finish; one save often fires several events
+                    Thread.sleep(200);
+                    for (WatchKey pending = watchService.poll(); pending != null; pending = watchService.poll()) {
+                        pending.pollEvents();
+                        pending.reset();
+                    }
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+}
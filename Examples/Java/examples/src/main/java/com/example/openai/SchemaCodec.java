@@ -0,0 +1,750 @@
+package com.example.openai;
+
+import com.azure.ai.openai.models.ChatCompletionsFunctionToolDefinition;
+import com.azure.ai.openai.models.ChatCompletionsFunctionToolDefinitionFunction;
+import com.azure.ai.openai.models.ChatCompletionsJsonSchemaResponseFormat;
+import com.azure.ai.openai.models.ChatCompletionsJsonSchemaResponseFormatJsonSchema;
+import com.azure.core.util.BinaryData;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decoder for structured outputs and tool arguments, bound to one record or plain class. The
+ * class is inspected once, when its codec is first requested; after that, decoding is a
+ * single-pass, character-level JSON parser that writes straight into the target's fields through
+ * cached method handles. The same pass validates the input against the strict schema that
+ * {@link #schema()} generates: every property required, no additional properties, matching types
+ * and enum values. Input can be fed in fragments as it streams, see {@link Decoder}.
+ *
+ * <p>Supported property types are {@code String}, {@code int}, {@code long}, {@code double},
+ * {@code float}, {@code boolean} and their boxes, enums, {@code List} of a supported type, and
+ * other records or classes. Plain classes need a no-argument constructor and non-final fields.
+ * Null values are rejected, as in strict mode.
+ */
+public final class SchemaCodec<T> {
+    private enum Kind {
+        STRING, INT, LONG, DOUBLE, FLOAT, BOOLEAN, ENUM, LIST, OBJECT
+    }
+
+    /**
+     * How one property, or the element of a list, is read and described.
+     */
+    private static final class Binding {
+        private final String name;
+        private final int index;
+        private final Kind kind;
+        private final Class<?> type;
+        private final Binding element;
+        private final Map<String, Object> enumConstants;
+        private SchemaCodec<?> codec;
+
+        Binding(String name, int index, Type genericType) {
+            this.name = name;
+            this.index = index;
+            Class<?> raw = genericType instanceof ParameterizedType
+                ? (Class<?>) ((ParameterizedType) genericType).getRawType()
+                : (Class<?>) genericType;
+            this.type = raw;
+            if (raw == String.class) {
+                kind = Kind.STRING;
+            } else if (raw == int.class || raw == Integer.class) {
+                kind = Kind.INT;
+            } else if (raw == long.class || raw == Long.class) {
+                kind = Kind.LONG;
+            } else if (raw == double.class || raw == Double.class) {
+                kind = Kind.DOUBLE;
+            } else if (raw == float.class || raw == Float.class) {
+                kind = Kind.FLOAT;
+            } else if (raw == boolean.class || raw == Boolean.class) {
+                kind = Kind.BOOLEAN;
+            } else if (raw.isEnum()) {
+                kind = Kind.ENUM;
+            } else if (raw == List.class) {
+                kind = Kind.LIST;
+            } else if (!raw.isPrimitive() && !raw.isArray() && !Map.class.isAssignableFrom(raw)) {
+                kind = Kind.OBJECT;
+            } else {
+                throw new IllegalArgumentException("Unsupported property type " + genericType + " for " + name);
+            }
+
+            if (kind == Kind.LIST) {
+                if (!(genericType instanceof ParameterizedType)) {
+                    throw new IllegalArgumentException("List property " + name + " needs an element type");
+                }
+                element = new Binding(name + "[]", -1, ((ParameterizedType) genericType).getActualTypeArguments()[0]);
+            } else {
+                element = null;
+            }
+
+            if (kind == Kind.ENUM) {
+                enumConstants = new HashMap<>();
+                for (Object constant : raw.getEnumConstants()) {
+                    enumConstants.put(((Enum<?>) constant).name(), constant);
+                }
+            } else {
+                enumConstants = null;
+            }
+        }
+
+        /**
+         * Codec of an object property, resolved on first use so that classes may refer to each other.
+         */
+        SchemaCodec<?> codec() {
+            if (codec == null) {
+                codec = of(type);
+            }
+            return codec;
+        }
+    }
+
+    private static final Map<Class<?>, SchemaCodec<?>> CODECS = new ConcurrentHashMap<>();
+
+    private final Class<T> type;
+    private final Binding[] properties;
+    private final Binding root;
+    // Records are built through the canonical constructor; plain classes through setters
+    private final MethodHandle constructor;
+    private final MethodHandle[] setters;
+    private volatile String schema;
+
+    private SchemaCodec(Class<T> type) {
+        this.type = type;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            if (type.isRecord()) {
+                RecordComponent[] components = type.getRecordComponents();
+                properties = new Binding[components.length];
+                Class<?>[] parameterTypes = new Class<?>[components.length];
+                for (int i = 0; i < components.length; i++) {
+                    properties[i] = new Binding(components[i].getName(), i, components[i].getGenericType());
+                    parameterTypes[i] = components[i].getType();
+                }
+                Constructor<T> canonical = type.getDeclaredConstructor(parameterTypes);
+                canonical.setAccessible(true);
+                constructor = lookup.unreflectConstructor(canonical)
+                    .asType(MethodType.genericMethodType(components.length))
+                    .asSpreader(Object[].class, components.length);
+                setters = null;
+            } else {
+                List<Field> fields = new ArrayList<>();
+                for (Field field : type.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                        fields.add(field);
+                    }
+                }
+                properties = new Binding[fields.size()];
+                setters = new MethodHandle[fields.size()];
+                for (int i = 0; i < fields.size(); i++) {
+                    Field field = fields.get(i);
+                    if (Modifier.isFinal(field.getModifiers())) {
+                        throw new IllegalArgumentException("Field " + field.getName() + " of " + type.getName()
+                            + " is final; use a record instead");
+                    }
+                    field.setAccessible(true);
+                    properties[i] = new Binding(field.getName(), i, field.getGenericType());
+                    setters[i] = lookup.unreflectSetter(field)
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                }
+                Constructor<T> noArguments = type.getDeclaredConstructor();
+                noArguments.setAccessible(true);
+                constructor = lookup.unreflectConstructor(noArguments).asType(MethodType.genericMethodType(0));
+            }
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot bind " + type.getName(), e);
+        }
+        if (properties.length > 64) {
+            throw new IllegalArgumentException(type.getName() + " has more than 64 properties");
+        }
+        this.root = new Binding("$", -1, type);
+        this.root.codec = this;
+    }
+
+    /**
+     * The codec for {@code type}, built on first use and shared afterwards.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> SchemaCodec<T> of(Class<T> type) {
+        SchemaCodec<?> codec = CODECS.get(type);
+        if (codec == null) {
+            // Built outside computeIfAbsent: building may look up the codecs of property types
+            codec = new SchemaCodec<>(type);
+            SchemaCodec<?> raced = CODECS.putIfAbsent(type, codec);
+            if (raced != null) {
+                codec = raced;
+            }
+        }
+        return (SchemaCodec<T>) codec;
+    }
+
+    /**
+     * Strict JSON schema of the class, for a response format or function parameters.
+     */
+    public BinaryData schema() {
+        String result = schema;
+        if (result == null) {
+            StringBuilder builder = new StringBuilder();
+            writeSchema(builder, new HashSet<>());
+            result = builder.toString();
+            schema = result;
+        }
+        return BinaryData.fromString(result);
+    }
+
+    /**
+     * Strict structured-output response format named {@code name}.
+     */
+    public ChatCompletionsJsonSchemaResponseFormat responseFormat(String name, String description) {
+        return new ChatCompletionsJsonSchemaResponseFormat(
+            new ChatCompletionsJsonSchemaResponseFormatJsonSchema(name)
+                .setStrict(true)
+                .setDescription(description)
+                .setSchema(schema()));
+    }
+
+    /**
+     * Function tool whose parameters are this class.
+     */
+    public ChatCompletionsFunctionToolDefinition toolDefinition(String name, String description) {
+        return new ChatCompletionsFunctionToolDefinition(
+            new ChatCompletionsFunctionToolDefinitionFunction(name)
+                .setDescription(description)
+                .setParameters(schema()));
+    }
+
+    /**
+     * Decodes and validates a complete JSON document.
+     *
+     * @throws IllegalArgumentException if the input is not valid JSON or does not match the schema
+     */
+    public T decode(CharSequence json) {
+        Decoder<T> decoder = newDecoder();
+        decoder.feed(json);
+        return decoder.finish();
+    }
+
+    public Decoder<T> newDecoder() {
+        return new Decoder<>(this);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T build(Object[] values) {
+        try {
+            if (setters == null) {
+                return (T) constructor.invokeExact(values);
+            }
+            Object instance = constructor.invokeExact();
+            for (int i = 0; i < setters.length; i++) {
+                setters[i].invokeExact(instance, values[i]);
+            }
+            return (T) instance;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot create " + type.getName(), e);
+        }
+    }
+
+    private Binding property(CharSequence name) {
+        for (Binding property : properties) {
+            if (property.name.contentEquals(name)) {
+                return property;
+            }
+        }
+        return null;
+    }
+
+    private void writeSchema(StringBuilder builder, Set<Class<?>> enclosing) {
+        if (!enclosing.add(type)) {
+            throw new IllegalArgumentException("Recursive type " + type.getName() + " cannot be described inline");
+        }
+        builder.append("{\"type\":\"object\",\"properties\":{");
+        for (int i = 0; i < properties.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append('"').append(properties[i].name).append("\":");
+            writeSchema(builder, properties[i], enclosing);
+        }
+        builder.append("},\"required\":[");
+        for (int i = 0; i < properties.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append('"').append(properties[i].name).append('"');
+        }
+        builder.append("],\"additionalProperties\":false}");
+        enclosing.remove(type);
+    }
+
+    private static void writeSchema(StringBuilder builder, Binding binding, Set<Class<?>> enclosing) {
+        switch (binding.kind) {
+            case STRING:
+                builder.append("{\"type\":\"string\"}");
+                break;
+            case INT:
+            case LONG:
+                builder.append("{\"type\":\"integer\"}");
+                break;
+            case DOUBLE:
+            case FLOAT:
+                builder.append("{\"type\":\"number\"}");
+                break;
+            case BOOLEAN:
+                builder.append("{\"type\":\"boolean\"}");
+                break;
+            case ENUM:
+                builder.append("{\"type\":\"string\",\"enum\":[");
+                Object[] constants = binding.type.getEnumConstants();
+                for (int i = 0; i < constants.length; i++) {
+                    if (i > 0) {
+                        builder.append(',');
+                    }
+                    builder.append('"').append(((Enum<?>) constants[i]).name()).append('"');
+                }
+                builder.append("]}");
+                break;
+            case LIST:
+                builder.append("{\"type\":\"array\",\"items\":");
+                writeSchema(builder, binding.element, enclosing);
+                builder.append('}');
+                break;
+            default:
+                binding.codec().writeSchema(builder, enclosing);
+        }
+    }
+
+    /**
+     * Incremental decoder for one document. Feed fragments in order with {@link #feed}; the
+     * document is validated and its objects built while the fragments arrive, so an invalid
+     * response fails early and a valid one is ready as soon as its last character is fed. Can also
+     * be used as the sink of a {@link ChatStreamProcessor}, taking the content of choice 0.
+     * Not thread-safe.
+     */
+    public static final class Decoder<T> implements ChatStreamProcessor.StreamSink {
+        // What the next structural character may be
+        private static final int VALUE = 0;
+        private static final int VALUE_OR_END = 1;
+        private static final int KEY_OR_END = 2;
+        private static final int KEY = 3;
+        private static final int COLON = 4;
+        private static final int COMMA_OR_END = 5;
+        private static final int DONE = 6;
+
+        // Lexeme being read
+        private static final int NONE = 0;
+        private static final int STRING = 1;
+        private static final int NUMBER = 2;
+        private static final int LITERAL = 3;
+
+        private static final class Frame {
+            private final Binding binding;
+            private final Object[] values;
+            private final List<Object> items;
+            private Binding pending;
+            private long seen;
+
+            Frame(Binding binding) {
+                this.binding = binding;
+                if (binding.kind == Kind.LIST) {
+                    this.values = null;
+                    this.items = new ArrayList<>();
+                } else {
+                    this.values = new Object[binding.codec().properties.length];
+                    this.items = null;
+                }
+            }
+        }
+
+        private final SchemaCodec<T> codec;
+        private final ArrayDeque<Frame> stack = new ArrayDeque<>();
+        private final StringBuilder lexeme = new StringBuilder();
+        private int expect = VALUE;
+        private int lexemeKind = NONE;
+        private boolean key;
+        private boolean escaped;
+        private int unicodeDigits;
+        private int unicodeValue;
+        private T result;
+
+        Decoder(SchemaCodec<T> codec) {
+            this.codec = codec;
+        }
+
+        /**
+         * Consumes the next fragment and returns {@code true} once the document is complete.
+         *
+         * @throws IllegalArgumentException as soon as the input cannot match the schema
+         */
+        public boolean feed(CharSequence fragment) {
+            for (int i = 0; i < fragment.length(); i++) {
+                accept(fragment.charAt(i));
+            }
+            return expect == DONE;
+        }
+
+        public boolean isComplete() {
+            return expect == DONE;
+        }
+
+        /**
+         * The decoded object.
+         *
+         * @throws IllegalArgumentException if the document is incomplete
+         */
+        public T finish() {
+            if (expect != DONE) {
+                throw new IllegalArgumentException("Incomplete JSON document for " + codec.type.getName());
+            }
+            return result;
+        }
+
+        @Override
+        public void onContent(int choiceIndex, CharSequence fragment) {
+            if (choiceIndex == 0) {
+                feed(fragment);
+            }
+        }
+
+        @Override
+        public void onToolCall(int choiceIndex, int toolCallIndex, String functionName,
+                               CharSequence argumentsFragment) {
+        }
+
+        private void accept(char c) {
+            switch (lexemeKind) {
+                case STRING:
+                    acceptStringChar(c);
+                    return;
+                case NUMBER:
+                    if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                        lexeme.append(c);
+                        return;
+                    }
+                    lexemeKind = NONE;
+                    onNumber();
+                    break;
+                case LITERAL:
+                    if (c >= 'a' && c <= 'z') {
+                        lexeme.append(c);
+                        return;
+                    }
+                    lexemeKind = NONE;
+                    onLiteral();
+                    break;
+                default:
+                    break;
+            }
+
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                return;
+            }
+            switch (expect) {
+                case COLON:
+                    require(c == ':', c);
+                    expect = VALUE;
+                    break;
+                case KEY_OR_END:
+                    if (c == '}') {
+                        closeObject();
+                    } else {
+                        startKey(c);
+                    }
+                    break;
+                case KEY:
+                    startKey(c);
+                    break;
+                case COMMA_OR_END:
+                    Frame top = stack.peek();
+                    if (c == ',') {
+                        expect = top.items == null ? KEY : VALUE;
+                    } else if (c == '}' && top.items == null) {
+                        closeObject();
+                    } else if (c == ']' && top.items != null) {
+                        closeArray();
+                    } else {
+                        require(false, c);
+                    }
+                    break;
+                case VALUE_OR_END:
+                    if (c == ']') {
+                        closeArray();
+                        break;
+                    }
+                    startValue(c);
+                    break;
+                case VALUE:
+                    startValue(c);
+                    break;
+                default:
+                    throw violation("Unexpected '" + c + "' after the end of the document");
+            }
+        }
+
+        private void startKey(char c) {
+            require(c == '"', c);
+            startString(true);
+        }
+
+        private void startValue(char c) {
+            Binding target = target();
+            if (c == '{') {
+                expectKind(target, Kind.OBJECT, "an object");
+                stack.push(new Frame(target));
+                expect = KEY_OR_END;
+            } else if (c == '[') {
+                expectKind(target, Kind.LIST, "an array");
+                stack.push(new Frame(target));
+                expect = VALUE_OR_END;
+            } else if (c == '"') {
+                if (target.kind != Kind.STRING && target.kind != Kind.ENUM) {
+                    throw violation(path(target) + " must be " + describe(target) + ", not a string");
+                }
+                startString(false);
+            } else if (c == '-' || (c >= '0' && c <= '9')) {
+                lexeme.setLength(0);
+                lexeme.append(c);
+                lexemeKind = NUMBER;
+            } else if (c >= 'a' && c <= 'z') {
+                lexeme.setLength(0);
+                lexeme.append(c);
+                lexemeKind = LITERAL;
+            } else {
+                require(false, c);
+            }
+        }
+
+        private void startString(boolean isKey) {
+            lexeme.setLength(0);
+            lexemeKind = STRING;
+            key = isKey;
+        }
+
+        private void acceptStringChar(char c) {
+            if (unicodeDigits > 0) {
+                int digit = Character.digit(c, 16);
+                if (digit < 0) {
+                    throw violation("Invalid \\u escape");
+                }
+                unicodeValue = unicodeValue * 16 + digit;
+                if (--unicodeDigits == 0) {
+                    lexeme.append((char) unicodeValue);
+                }
+            } else if (escaped) {
+                escaped = false;
+                switch (c) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        lexeme.append(c);
+                        break;
+                    case 'b':
+                        lexeme.append('\b');
+                        break;
+                    case 'f':
+                        lexeme.append('\f');
+                        break;
+                    case 'n':
+                        lexeme.append('\n');
+                        break;
+                    case 'r':
+                        lexeme.append('\r');
+                        break;
+                    case 't':
+                        lexeme.append('\t');
+                        break;
+                    case 'u':
+                        unicodeDigits = 4;
+                        unicodeValue = 0;
+                        break;
+                    default:
+                        throw violation("Invalid escape \\" + c);
+                }
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == '"') {
+                lexemeKind = NONE;
+                if (key) {
+                    onKey();
+                } else {
+                    onString();
+                }
+            } else if (c < 0x20) {
+                throw violation("Unescaped control character in string");
+            } else {
+                lexeme.append(c);
+            }
+        }
+
+        private void onKey() {
+            Frame frame = stack.peek();
+            Binding property = frame.binding.codec().property(lexeme);
+            if (property == null) {
+                throw violation("Unknown property " + path(frame.binding) + "." + lexeme);
+            }
+            if ((frame.seen & (1L << property.index)) != 0) {
+                throw violation("Duplicate property " + path(property));
+            }
+            frame.pending = property;
+            expect = COLON;
+        }
+
+        private void onString() {
+            Binding target = target();
+            if (target.kind == Kind.ENUM) {
+                Object constant = target.enumConstants.get(lexeme.toString());
+                if (constant == null) {
+                    throw violation(path(target) + " must be one of " + target.enumConstants.keySet()
+                        + ", not \"" + lexeme + "\"");
+                }
+                deliver(constant);
+            } else {
+                deliver(lexeme.toString());
+            }
+        }
+
+        private void onNumber() {
+            Binding target = target();
+            try {
+                switch (target.kind) {
+                    case INT:
+                        deliver(Integer.parseInt(lexeme, 0, lexeme.length(), 10));
+                        break;
+                    case LONG:
+                        deliver(Long.parseLong(lexeme, 0, lexeme.length(), 10));
+                        break;
+                    case DOUBLE:
+                        deliver(Double.parseDouble(lexeme.toString()));
+                        break;
+                    case FLOAT:
+                        deliver(Float.parseFloat(lexeme.toString()));
+                        break;
+                    default:
+                        throw violation(path(target) + " must be " + describe(target) + ", not a number");
+                }
+            } catch (NumberFormatException e) {
+                throw violation(path(target) + " must be " + describe(target) + ", not " + lexeme);
+            }
+        }
+
+        private void onLiteral() {
+            Binding target = target();
+            if (lexeme.toString().equals("null")) {
+                throw violation(path(target) + " must not be null");
+            }
+            boolean value = lexeme.toString().equals("true");
+            if (!value && !lexeme.toString().equals("false")) {
+                throw violation("Invalid literal " + lexeme);
+            }
+            expectKind(target, Kind.BOOLEAN, "a boolean");
+            deliver(value);
+        }
+
+        private void closeObject() {
+            Frame frame = stack.pop();
+            Binding[] properties = frame.binding.codec().properties;
+            if (frame.seen != (properties.length == 64 ? -1L : (1L << properties.length) - 1)) {
+                for (Binding property : properties) {
+                    if ((frame.seen & (1L << property.index)) == 0) {
+                        throw violation("Missing property " + path(frame.binding) + "." + property.name);
+                    }
+                }
+            }
+            Object built = frame.binding.codec().build(frame.values);
+            if (stack.isEmpty()) {
+                result = codec.type.cast(built);
+                expect = DONE;
+            } else {
+                deliver(built);
+            }
+        }
+
+        private void closeArray() {
+            Frame frame = stack.pop();
+            deliver(Collections.unmodifiableList(frame.items));
+        }
+
+        private void deliver(Object value) {
+            Frame frame = stack.peek();
+            if (frame == null) {
+                throw violation("Top-level value must be an object");
+            }
+            if (frame.items != null) {
+                frame.items.add(value);
+            } else {
+                frame.values[frame.pending.index] = value;
+                frame.seen |= 1L << frame.pending.index;
+                frame.pending = null;
+            }
+            expect = COMMA_OR_END;
+        }
+
+        /**
+         * Binding the next value is read into.
+         */
+        private Binding target() {
+            Frame frame = stack.peek();
+            if (frame == null) {
+                return codec.root;
+            }
+            return frame.items != null ? frame.binding.element : frame.pending;
+        }
+
+        private void expectKind(Binding target, Kind kind, String found) {
+            if (target.kind != kind) {
+                throw violation(path(target) + " must be " + describe(target) + ", not " + found);
+            }
+        }
+
+        private void require(boolean condition, char c) {
+            if (!condition) {
+                throw violation("Unexpected '" + c + "'");
+            }
+        }
+
+        private static String path(Binding binding) {
+            return binding.name;
+        }
+
+        private static String describe(Binding binding) {
+            switch (binding.kind) {
+                case STRING:
+                    return "a string";
+                case INT:
+                case LONG:
+                    return "an integer";
+                case DOUBLE:
+                case FLOAT:
+                    return "a number";
+                case BOOLEAN:
+                    return "a boolean";
+                case ENUM:
+                    return "one of " + binding.enumConstants.keySet();
+                case LIST:
+                    return "an array";
+                default:
+                    return "an object";
+            }
+        }
+
+        private IllegalArgumentException violation(String message) {
+            return new IllegalArgumentException(message + " (decoding " + codec.type.getSimpleName() + ")");
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.openai;
+
+import com.azure.core.http.HttpClient;
+import com.azure.core.http.HttpMethod;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.http.ProxyOptions;
+import com.azure.core.http.netty.NettyAsyncHttpClientBuilder;
+import io.netty.channel.ChannelOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * One tuned connection pool shared by every OpenAI client in the process. Clients built with
+ * {@link #getHttpClient()} or {@link #getHttpClient(ProxyOptions)} reuse the same Reactor Netty
+ * {@link ConnectionProvider}, so keep-alive connections, and TLS sessions through the proxy, are
+ * reused across clients instead of being set up per client.
+ */
+public class SharedHttpTransport implements AutoCloseable {
+    /**
+     * Pool and timeout settings. Defaults suit a few hundred concurrent requests against one endpoint.
+     */
+    public static class PoolSettings {
+        private int maxConnections = 500;
+        private int pendingAcquireMaxCount = 10_000;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(45);
+        private Duration maxIdleTime = Duration.ofSeconds(60);
+        private Duration maxLifeTime = Duration.ofMinutes(10);
+        private Duration connectTimeout = Duration.ofSeconds(10);
+        private Duration responseTimeout = Duration.ofSeconds(120);
+        private boolean http2 = true;
+
+        public PoolSettings setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        public PoolSettings setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+            this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+            return this;
+        }
+
+        public PoolSettings setPendingAcquireTimeout(Duration pendingAcquireTimeout) {
+            this.pendingAcquireTimeout = pendingAcquireTimeout;
+            return this;
+        }
+
+        public PoolSettings setMaxIdleTime(Duration maxIdleTime) {
+            this.maxIdleTime = maxIdleTime;
+            return this;
+        }
+
+        public PoolSettings setMaxLifeTime(Duration maxLifeTime) {
+            this.maxLifeTime = maxLifeTime;
+            return this;
+        }
+
+        public PoolSettings setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        public PoolSettings setResponseTimeout(Duration responseTimeout) {
+            this.responseTimeout = responseTimeout;
+            return this;
+        }
+
+        /**
+         * Negotiates HTTP/2 through ALPN on HTTPS endpoints, falling back to HTTP/1.1.
+         */
+        public PoolSettings setHttp2(boolean http2) {
+            this.http2 = http2;
+            return this;
+        }
+    }
+
+    private final PoolSettings settings;
+    private final ConnectionProvider connectionProvider;
+    private final Map<String, ConnectionPoolMetrics> poolMetrics = new ConcurrentHashMap<>();
+    private final Map<String, HttpClient> httpClients = new ConcurrentHashMap<>();
+
+    public SharedHttpTransport(PoolSettings settings) {
+        this.settings = settings;
+        this.connectionProvider = ConnectionProvider.builder("openai")
+            .maxConnections(settings.maxConnections)
+            .pendingAcquireMaxCount(settings.pendingAcquireMaxCount)
+            .pendingAcquireTimeout(settings.pendingAcquireTimeout)
+            .maxIdleTime(settings.maxIdleTime)
+            .maxLifeTime(settings.maxLifeTime)
+            // Keep a handle on each per-endpoint pool so its gauges can be read directly
+            .metrics(true, () -> (poolName, id, remoteAddress, metrics) ->
+                poolMetrics.put(String.valueOf(remoteAddress), metrics))
+            .build();
+    }
+
+    /**
+     * HTTP client for direct connections.
+     */
+    public HttpClient getHttpClient() {
+        return getHttpClient(null);
+    }
+
+    /**
+     * HTTP client that connects through {@code proxyOptions}, or directly when it is {@code null}.
+     * Clients are cached per proxy, including its credentials, and all of them share this transport's pool.
+     */
+    public HttpClient getHttpClient(ProxyOptions proxyOptions) {
+        String key = proxyOptions == null ? "direct" : String.join("|", String.valueOf(proxyOptions.getType()),
+            String.valueOf(proxyOptions.getAddress()), proxyOptions.getUsername(), proxyOptions.getPassword(),
+            proxyOptions.getNonProxyHosts());
+        return httpClients.computeIfAbsent(key, ignored -> {
+            reactor.netty.http.client.HttpClient nettyClient = reactor.netty.http.client.HttpClient
+                .create(connectionProvider)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) settings.connectTimeout.toMillis());
+            if (settings.http2) {
+                nettyClient = nettyClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+            }
+            return new NettyAsyncHttpClientBuilder(nettyClient)
+                .proxy(proxyOptions)
+                .responseTimeout(settings.responseTimeout)
+                .build();
+        });
+    }
+
+    /**
+     * Opens {@code connections} connections to {@code endpoint} ahead of the first real request,
+     * paying connection and TLS setup at startup instead of on the request path. Response status
+     * is ignored; any answer means the connection is up. Connections still opening after
+     * {@code timeout} are left to finish in the background.
+     */
+    public void warmUp(String endpoint, ProxyOptions proxyOptions, int connections, Duration timeout) {
+        HttpClient httpClient = getHttpClient(proxyOptions);
+        Flux.range(0, connections)
+            .flatMap(i -> httpClient.send(new HttpRequest(HttpMethod.HEAD, endpoint))
+                .doOnNext(HttpResponse::close)
+                .onErrorResume(e -> Mono.empty()), connections)
+            .then()
+            .timeout(timeout, Mono.empty())
+            .block();
+    }
+
+    public int getActiveConnections() {
+        return poolMetrics.values().stream().mapToInt(ConnectionPoolMetrics::acquiredSize).sum();
+    }
+
+    public int getIdleConnections() {
+        return poolMetrics.values().stream().mapToInt(ConnectionPoolMetrics::idleSize).sum();
+    }
+
+    public int getPendingAcquires() {
+        return poolMetrics.values().stream().mapToInt(ConnectionPoolMetrics::pendingAcquireSize).sum();
+    }
+
+    public void printPoolMetrics() {
+        poolMetrics.forEach((remoteAddress, metrics) ->
+            System.out.printf("Pool %s: active=%d, idle=%d, allocated=%d/%d, pending acquires=%d.%n",
+                remoteAddress,
+                metrics.acquiredSize(),
+                metrics.idleSize(),
+                metrics.allocatedSize(),
+                metrics.maxAllocatedSize(),
+                metrics.pendingAcquireSize()));
+    }
+
+    @Override
+    public void close() {
+        connectionProvider.disposeLater().block();
+    }
+}
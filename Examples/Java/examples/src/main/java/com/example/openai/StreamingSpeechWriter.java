@@ -0,0 +1,173 @@
+package com.example.openai;
+
+import com.azure.ai.openai.OpenAIAsyncClient;
+import com.azure.ai.openai.OpenAIServiceVersion;
+import com.azure.ai.openai.models.SpeechGenerationOptions;
+import com.azure.ai.openai.models.SpeechVoice;
+import com.azure.core.exception.HttpResponseException;
+import com.azure.core.http.HttpClient;
+import com.azure.core.http.HttpHeaderName;
+import com.azure.core.http.HttpHeaders;
+import com.azure.core.http.HttpMethod;
+import com.azure.core.http.HttpPipeline;
+import com.azure.core.http.HttpPipelineBuilder;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.http.policy.AddHeadersPolicy;
+import com.azure.core.http.policy.RetryPolicy;
+import com.azure.core.util.BinaryData;
+import com.azure.core.util.Context;
+import com.azure.core.util.FluxUtil;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Writes generated speech to disk as the response body arrives. Chunks go straight from the
+ * response to an {@link AsynchronousFileChannel}, so the audio is never held in memory as a whole.
+ * {@link OpenAIAsyncClient} only emits the speech response once it has read the whole body, so the
+ * request goes straight through an {@link HttpPipeline} to the Azure OpenAI speech route.
+ */
+public class StreamingSpeechWriter {
+    /**
+     * Outcome of writing one speech file.
+     */
+    public static class SpeechResult {
+        private final Path path;
+        private final long bytes;
+        private final long timeToFirstByteMillis;
+        private final long totalMillis;
+
+        SpeechResult(Path path, long bytes, long timeToFirstByteMillis, long totalMillis) {
+            this.path = path;
+            this.bytes = bytes;
+            this.timeToFirstByteMillis = timeToFirstByteMillis;
+            this.totalMillis = totalMillis;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getTimeToFirstByteMillis() {
+            return timeToFirstByteMillis;
+        }
+
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        public double getBytesPerSecond() {
+            return totalMillis == 0 ? bytes : bytes * 1000.0 / totalMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d bytes, ttfb=%dms, total=%dms, %.0f B/s",
+                path, bytes, timeToFirstByteMillis, totalMillis, getBytesPerSecond());
+        }
+    }
+
+    private final HttpPipeline pipeline;
+    private final String url;
+
+    /**
+     * Sends requests through {@code httpClient} with the key in an {@code api-key} header, retrying
+     * with the default {@link RetryPolicy}.
+     */
+    public StreamingSpeechWriter(HttpClient httpClient, String endpoint, String apiKey, String deploymentOrModelName) {
+        this(new HttpPipelineBuilder()
+                .httpClient(httpClient)
+                .policies(new AddHeadersPolicy(new HttpHeaders().set(HttpHeaderName.fromString("api-key"), apiKey)),
+                    new RetryPolicy())
+                .build(),
+            endpoint, deploymentOrModelName);
+    }
+
+    public StreamingSpeechWriter(HttpPipeline pipeline, String endpoint, String deploymentOrModelName) {
+        this.pipeline = pipeline;
+        this.url = endpoint.replaceAll("/+$", "") + "/openai/deployments/"
+            + URLEncoder.encode(deploymentOrModelName, StandardCharsets.UTF_8) + "/audio/speech?api-version="
+            + OpenAIServiceVersion.getLatest().getVersion();
+    }
+
+    /**
+     * Generates speech for {@code options} and streams it into {@code output}, replacing any
+     * existing file.
+     */
+    public Mono<SpeechResult> write(SpeechGenerationOptions options, Path output) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            AtomicLong firstByte = new AtomicLong();
+            AtomicLong bytes = new AtomicLong();
+
+            return Mono.using(
+                () -> AsynchronousFileChannel.open(output,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING),
+                channel -> pipeline.send(new HttpRequest(HttpMethod.POST, url)
+                        .setHeader(HttpHeaderName.CONTENT_TYPE, "application/json")
+                        .setBody(BinaryData.fromObject(options)), Context.NONE)
+                    .flatMap(response -> writeBody(response, channel, firstByte, bytes))
+                    .then(Mono.fromSupplier(() -> {
+                        long end = System.nanoTime();
+                        long first = firstByte.get() == 0 ? end : firstByte.get();
+                        return new SpeechResult(output, bytes.get(),
+                            TimeUnit.NANOSECONDS.toMillis(first - start),
+                            TimeUnit.NANOSECONDS.toMillis(end - start));
+                    })),
+                channel -> {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        });
+    }
+
+    private static Mono<Void> writeBody(HttpResponse response, AsynchronousFileChannel channel,
+                                        AtomicLong firstByte, AtomicLong bytes) {
+        if (response.getStatusCode() >= 400) {
+            return response.getBodyAsString()
+                .defaultIfEmpty("")
+                .flatMap(body -> Mono.<Void>error(new HttpResponseException("Speech generation failed with status "
+                    + response.getStatusCode() + ": " + body, response, null)))
+                .doFinally(signal -> response.close());
+        }
+        return FluxUtil.writeFile(
+                response.getBody()
+                    .doOnNext(buffer -> {
+                        firstByte.compareAndSet(0, System.nanoTime());
+                        bytes.addAndGet(buffer.remaining());
+                    }),
+                channel)
+            .doFinally(signal -> response.close());
+    }
+
+    /**
+     * Turns each text into its own file in {@code outputDirectory}, named {@code speech-<n>.wav}
+     * by position in {@code texts}, with at most {@code concurrency} requests in flight.
+     * Results are emitted in input order.
+     */
+    public Flux<SpeechResult> writeAll(List<String> texts, SpeechVoice voice, Path outputDirectory,
+                                       int concurrency) {
+        return Flux.range(0, texts.size())
+            .flatMapSequential(index -> write(
+                    new SpeechGenerationOptions(texts.get(index), voice),
+                    outputDirectory.resolve(String.format("speech-%04d.wav", index))),
+                concurrency);
+    }
+}
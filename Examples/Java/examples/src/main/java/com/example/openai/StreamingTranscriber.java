@@ -0,0 +1,159 @@
+package com.example.openai;
+
+import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.OpenAIServiceVersion;
+import com.azure.ai.openai.models.AudioTranscription;
+import com.azure.ai.openai.models.AudioTranscriptionFormat;
+import com.azure.core.exception.HttpResponseException;
+import com.azure.core.http.HttpClient;
+import com.azure.core.http.HttpHeaderName;
+import com.azure.core.http.HttpHeaders;
+import com.azure.core.http.HttpMethod;
+import com.azure.core.http.HttpPipeline;
+import com.azure.core.http.HttpPipelineBuilder;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.http.policy.AddHeadersPolicy;
+import com.azure.core.http.policy.RetryPolicy;
+import com.azure.core.util.BinaryData;
+import com.azure.core.util.Context;
+import com.azure.json.JsonProviders;
+import com.azure.json.JsonReader;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import reactor.core.publisher.Flux;
+
+/**
+ * Transcribes audio files without materializing them as {@code byte[]}. The multipart request body
+ * is assembled from a small header, the file streamed from disk and a trailer, so the audio is read
+ * in chunks while the request is written. {@link OpenAIClient} only takes audio as {@code byte[]}
+ * (its multipart protocol method is not public), so the request goes straight through an
+ * {@link HttpPipeline} to the Azure OpenAI transcription route.
+ */
+public class StreamingTranscriber {
+    private static final String CRLF = "\r\n";
+
+    private final HttpPipeline pipeline;
+    private final String url;
+    private final AudioTranscriptionFormat responseFormat;
+
+    /**
+     * Sends requests through {@code httpClient} with the key in an {@code api-key} header, retrying
+     * with the default {@link RetryPolicy}.
+     */
+    public StreamingTranscriber(HttpClient httpClient, String endpoint, String apiKey, String deploymentOrModelName) {
+        this(new HttpPipelineBuilder()
+                .httpClient(httpClient)
+                .policies(new AddHeadersPolicy(new HttpHeaders().set(HttpHeaderName.fromString("api-key"), apiKey)),
+                    new RetryPolicy())
+                .build(),
+            endpoint, deploymentOrModelName, AudioTranscriptionFormat.JSON);
+    }
+
+    public StreamingTranscriber(HttpPipeline pipeline, String endpoint, String deploymentOrModelName,
+                                AudioTranscriptionFormat responseFormat) {
+        this.pipeline = pipeline;
+        this.url = endpoint.replaceAll("/+$", "") + "/openai/deployments/"
+            + URLEncoder.encode(deploymentOrModelName, StandardCharsets.UTF_8) + "/audio/transcriptions?api-version="
+            + OpenAIServiceVersion.getLatest().getVersion();
+        this.responseFormat = responseFormat;
+    }
+
+    /**
+     * Transcribes one file, streaming it from disk into the request body.
+     */
+    public AudioTranscription transcribe(Path file) throws IOException {
+        String boundary = "----" + UUID.randomUUID();
+        String fileName = file.getFileName().toString();
+
+        byte[] header = ("--" + boundary + CRLF
+            + "Content-Disposition: form-data; name=\"response_format\"" + CRLF + CRLF
+            + responseFormat + CRLF
+            + "--" + boundary + CRLF
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"" + CRLF
+            + "Content-Type: application/octet-stream" + CRLF + CRLF).getBytes(StandardCharsets.UTF_8);
+        byte[] trailer = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.UTF_8);
+        long contentLength = header.length + Files.size(file) + trailer.length;
+
+        // The file part is read lazily in chunks; bufferContent=false keeps it off the heap
+        Flux<ByteBuffer> body = Flux.concat(
+            Flux.just(ByteBuffer.wrap(header)),
+            BinaryData.fromFile(file).toFluxByteBuffer(),
+            Flux.just(ByteBuffer.wrap(trailer)));
+        BinaryData multipart = BinaryData.fromFlux(body, contentLength, false).block();
+
+        HttpRequest request = new HttpRequest(HttpMethod.POST, url)
+            .setHeader(HttpHeaderName.CONTENT_TYPE, "multipart/form-data; boundary=" + boundary)
+            .setHeader(HttpHeaderName.CONTENT_LENGTH, String.valueOf(contentLength))
+            .setBody(multipart);
+
+        try (HttpResponse response = pipeline.sendSync(request, Context.NONE)) {
+            BinaryData responseBody = response.getBodyAsBinaryData();
+            if (response.getStatusCode() >= 400) {
+                throw new HttpResponseException("Transcription of " + fileName + " failed with status "
+                    + response.getStatusCode() + ": " + responseBody, response, null);
+            }
+            try (JsonReader reader = JsonProviders.createReader(responseBody.toBytes())) {
+                return AudioTranscription.fromJson(reader);
+            }
+        }
+    }
+
+    /**
+     * Transcribes every file in {@code directory} matching {@code glob} concurrently. Each request
+     * reserves its file size (capped at the budget) from {@code heapBudgetBytes} while it is in
+     * flight, which bounds memory even if the HTTP client ends up buffering request bodies.
+     * Files that fail are reported on stderr and left out of the result.
+     */
+    public Map<Path, AudioTranscription> transcribeDirectory(Path directory, String glob,
+                                                             long heapBudgetBytes, int maxConcurrency)
+        throws IOException, InterruptedException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+
+        // Permits are counted in KiB so multi-GB budgets fit in an int
+        int budgetKib = (int) Math.min(Integer.MAX_VALUE, Math.max(1, heapBudgetBytes / 1024));
+        Semaphore heapBudget = new Semaphore(budgetKib);
+        Semaphore concurrency = new Semaphore(maxConcurrency);
+        Map<Path, AudioTranscription> transcriptions = new ConcurrentHashMap<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Path file : files) {
+                int cost = (int) Math.min(budgetKib, Math.max(1, Files.size(file) / 1024));
+                executor.submit(() -> {
+                    concurrency.acquire();
+                    heapBudget.acquire(cost);
+                    try {
+                        transcriptions.put(file, transcribe(file));
+                    } catch (Exception e) {
+                        System.err.println("Transcription failed for " + file + ": " + e.getMessage());
+                    } finally {
+                        heapBudget.release(cost);
+                        concurrency.release();
+                    }
+                    return null;
+                });
+            }
+        }
+        return transcriptions;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.openai;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocking token bucket. Holds up to {@code capacity} permits and refills continuously so that
+ * {@code capacity} permits become available per refill period. {@link System#nanoTime()} values
+ * may be negative or wrap, so they are only ever compared by subtraction.
+ */
+public class TokenBucket {
+    private final long capacity;
+    private final double permitsPerNano;
+    private double available;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    public TokenBucket(long capacity, Duration refillPeriod) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.permitsPerNano = (double) capacity / refillPeriod.toNanos();
+        this.available = capacity;
+        this.lastRefillNanos = System.nanoTime();
+        this.pausedUntilNanos = lastRefillNanos;
+    }
+
+    /**
+     * Takes {@code permits}, sleeping until enough have accumulated. Requests larger than the
+     * capacity are clamped to it so they cannot wait forever.
+     */
+    public void acquire(long permits) throws InterruptedException {
+        long wanted = Math.min(permits, capacity);
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                refill(now);
+                if (now - pausedUntilNanos >= 0 && available >= wanted) {
+                    available -= wanted;
+                    return;
+                }
+                waitNanos = Math.max(pausedUntilNanos - now,
+                    (long) Math.ceil((wanted - available) / permitsPerNano));
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, 1));
+        }
+    }
+
+    public synchronized boolean tryAcquire(long permits) {
+        long now = System.nanoTime();
+        refill(now);
+        long wanted = Math.min(permits, capacity);
+        if (now - pausedUntilNanos < 0 || available < wanted) {
+            return false;
+        }
+        available -= wanted;
+        return true;
+    }
+
+    /**
+     * Stops handing out permits for {@code duration}, e.g. while the service asks callers to back off.
+     */
+    public synchronized void pause(Duration duration) {
+        long until = System.nanoTime() + duration.toNanos();
+        if (until - pausedUntilNanos > 0) {
+            pausedUntilNanos = until;
+        }
+    }
+
+    private void refill(long now) {
+        available = Math.min(capacity, available + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+    }
+}
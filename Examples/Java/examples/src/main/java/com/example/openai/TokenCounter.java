@@ -0,0 +1,17 @@
+package com.example.openai;
+
+/**
+ * Counts the tokens a piece of text will cost. Used to size batches and budgets before a
+ * request is sent.
+ */
+@FunctionalInterface
+public interface TokenCounter {
+    int count(CharSequence text);
+
+    /**
+     * Rough estimate of about four characters per token, for when no tokenizer is loaded.
+     */
+    static TokenCounter approximate() {
+        return text -> (text.length() + 3) / 4;
+    }
+}
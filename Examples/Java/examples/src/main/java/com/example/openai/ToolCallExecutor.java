@@ -0,0 +1,268 @@
+package com.example.openai;
+
+import com.azure.ai.openai.models.ChatCompletionsFunctionToolCall;
+import com.azure.ai.openai.models.ChatCompletionsToolCall;
+import com.azure.ai.openai.models.ChatRequestToolMessage;
+import com.azure.ai.openai.models.FunctionCall;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Runs the function tools requested by a chat completion. All tool calls of one turn run
+ * concurrently on virtual threads, each with its own timeout. Results of tools registered as pure
+ * are cached by function name and arguments. A {@link Session} can be used as the sink of a
+ * {@link ChatStreamProcessor} to start each pure tool as soon as its arguments are complete, while
+ * the model is still streaming the rest of the turn.
+ */
+public class ToolCallExecutor implements AutoCloseable {
+    /**
+     * A function the model may call. Receives the raw JSON arguments and returns the tool message content.
+     */
+    @FunctionalInterface
+    public interface Tool {
+        String call(String arguments) throws Exception;
+    }
+
+    private static class Registration {
+        private final Tool tool;
+        private final Duration timeout;
+        private final boolean pure;
+
+        Registration(Tool tool, Duration timeout, boolean pure) {
+            this.tool = tool;
+            this.timeout = timeout;
+            this.pure = pure;
+        }
+    }
+
+    /**
+     * Starts tools for one streamed turn. Tracks JSON nesting of each tool call's argument fragments
+     * and starts the tool once the top-level object closes. Only choice 0 is acted on, and only pure
+     * tools are started early: the turn may still fail or end without asking for tools, and a pure
+     * tool started for nothing has no side effects, just a cached result. Other tools start from
+     * {@link #result}.
+     */
+    public class Session implements ChatStreamProcessor.StreamSink {
+        private final List<ArgumentScanner> scanners = new ArrayList<>();
+
+        @Override
+        public void onContent(int choiceIndex, CharSequence fragment) {
+        }
+
+        @Override
+        public void onToolCall(int choiceIndex, int toolCallIndex, String functionName,
+                               CharSequence argumentsFragment) {
+            Registration registration = functionName == null ? null : tools.get(functionName);
+            if (choiceIndex != 0 || registration == null || !registration.pure) {
+                return;
+            }
+            while (scanners.size() <= toolCallIndex) {
+                scanners.add(new ArgumentScanner());
+            }
+            ArgumentScanner scanner = scanners.get(toolCallIndex);
+            if (scanner.feed(argumentsFragment)) {
+                streamingStarts.increment();
+                scanner.result = start(functionName, scanner.arguments.toString());
+            }
+        }
+
+        /**
+         * Result of tool call {@code toolCallIndex}, starting it now if streaming did not already.
+         */
+        public CompletableFuture<String> result(int toolCallIndex, String functionName, String arguments) {
+            if (toolCallIndex < scanners.size() && scanners.get(toolCallIndex).result != null) {
+                return scanners.get(toolCallIndex).result;
+            }
+            return start(functionName, arguments);
+        }
+    }
+
+    /**
+     * Finds the end of a JSON object split over stream fragments without parsing it.
+     */
+    private static class ArgumentScanner {
+        private final StringBuilder arguments = new StringBuilder();
+        private int depth;
+        private boolean inString;
+        private boolean escaped;
+        private CompletableFuture<String> result;
+
+        /**
+         * Returns {@code true} on the fragment that closes the top-level object.
+         */
+        boolean feed(CharSequence fragment) {
+            if (result != null) {
+                return false;
+            }
+            arguments.append(fragment);
+            for (int i = 0; i < fragment.length(); i++) {
+                char c = fragment.charAt(i);
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (c == '\\') {
+                        escaped = true;
+                    } else if (c == '"') {
+                        inString = false;
+                    }
+                } else if (c == '"') {
+                    inString = true;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if ((c == '}' || c == ']') && --depth == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final Map<String, Registration> tools = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<String>> pureResults;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder streamingStarts = new LongAdder();
+
+    /**
+     * @param maxCachedResults pure tool results kept, least recently used first out
+     */
+    public ToolCallExecutor(int maxCachedResults) {
+        this.pureResults = Collections.synchronizedMap(
+            new LinkedHashMap<String, CompletableFuture<String>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<String>> eldest) {
+                    return size() > maxCachedResults;
+                }
+            });
+    }
+
+    /**
+     * @param timeout how long the tool may run before its call is cancelled and reported as timed out
+     * @param pure whether the result depends only on the arguments, making it safe to cache
+     */
+    public ToolCallExecutor register(String functionName, Tool tool, Duration timeout, boolean pure) {
+        tools.put(functionName, new Registration(tool, timeout, pure));
+        return this;
+    }
+
+    /**
+     * Registers a tool whose arguments are decoded and validated by the {@link SchemaCodec} of
+     * {@code argumentsType}, the same class whose schema describes the tool to the model.
+     */
+    public <A> ToolCallExecutor register(String functionName, Class<A> argumentsType, Function<A, String> tool,
+                                         Duration timeout, boolean pure) {
+        SchemaCodec<A> codec = SchemaCodec.of(argumentsType);
+        return register(functionName, arguments -> tool.apply(codec.decode(arguments)), timeout, pure);
+    }
+
+    public Session newSession() {
+        return new Session();
+    }
+
+    /**
+     * Runs every tool call concurrently and returns one tool message per call, in request order.
+     */
+    public List<ChatRequestToolMessage> executeAll(List<ChatCompletionsToolCall> toolCalls) {
+        List<CompletableFuture<String>> results = new ArrayList<>(toolCalls.size());
+        for (ChatCompletionsToolCall toolCall : toolCalls) {
+            FunctionCall function = ((ChatCompletionsFunctionToolCall) toolCall).getFunction();
+            results.add(start(function.getName(), function.getArguments()));
+        }
+        List<ChatRequestToolMessage> messages = new ArrayList<>(toolCalls.size());
+        for (int i = 0; i < toolCalls.size(); i++) {
+            messages.add(new ChatRequestToolMessage(await(results.get(i)), toolCalls.get(i).getId()));
+        }
+        return messages;
+    }
+
+    /**
+     * Starts one call. Identical in-flight or cached calls of a pure tool share one result.
+     */
+    public CompletableFuture<String> start(String functionName, String arguments) {
+        Registration registration = tools.get(functionName);
+        if (registration == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown tool " + functionName));
+        }
+        if (!registration.pure) {
+            return run(registration, arguments);
+        }
+        String key = functionName + '\u0000' + arguments.strip();
+        boolean[] created = new boolean[1];
+        CompletableFuture<String> result = pureResults.computeIfAbsent(key, ignored -> {
+            created[0] = true;
+            return run(registration, arguments);
+        });
+        if (created[0]) {
+            // Failures and timeouts are not cached
+            result.whenComplete((value, error) -> {
+                if (error != null) {
+                    pureResults.remove(key, result);
+                }
+            });
+        } else {
+            cacheHits.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Waits for a result. Failures become an error object the model can read instead of an exception.
+     */
+    public String await(CompletableFuture<String> result) {
+        try {
+            return result.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            String message = cause instanceof TimeoutException ? "Tool call timed out" : String.valueOf(cause.getMessage());
+            return "{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"").replace('\n', ' ') + "\"}";
+        }
+    }
+
+    public void printMetrics() {
+        System.out.printf("Tools: calls=%d, cache hits=%d, timeouts=%d, started while streaming=%d.%n",
+            calls.sum(), cacheHits.sum(), timeouts.sum(), streamingStarts.sum());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<String> run(Registration registration, String arguments) {
+        calls.increment();
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                result.complete(registration.tool.call(arguments));
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.orTimeout(registration.timeout.toMillis(), TimeUnit.MILLISECONDS)
+            .whenComplete((value, error) -> {
+                if (error instanceof TimeoutException) {
+                    timeouts.increment();
+                    task.cancel(true);
+                }
+            });
+        return result;
+    }
+}
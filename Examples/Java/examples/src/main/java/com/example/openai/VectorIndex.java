@@ -0,0 +1,472 @@
+package com.example.openai;
+
+import com.azure.ai.openai.models.EmbeddingItem;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * In-process nearest-neighbour index over its own {@link EmbeddingStore}, ranked by cosine similarity.
+ * {@link Mode#EXACT} scans every vector with SIMD dot products from the Vector API
+ * ({@code --add-modules jdk.incubator.vector}). {@link Mode#HNSW} keeps a hierarchical navigable
+ * small-world graph and answers approximately in logarithmic time. Vectors are added through the
+ * index, which keeps the store and the per-row norms in step; searches read the store without
+ * locking it.
+ */
+public class VectorIndex {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final int SNAPSHOT_MAGIC = 0x564E4458; // "VNDX"
+
+    public enum Mode {
+        EXACT,
+        HNSW
+    }
+
+    /**
+     * A stored row and its cosine similarity to the query.
+     */
+    public static class Match {
+        private final int row;
+        private final float score;
+
+        Match(int row, float score) {
+            this.row = row;
+            this.score = score;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public float getScore() {
+            return score;
+        }
+    }
+
+    private static final Comparator<Match> BEST_FIRST = (a, b) -> Float.compare(b.score, a.score);
+    private static final Comparator<Match> WORST_FIRST = (a, b) -> Float.compare(a.score, b.score);
+
+    private final EmbeddingStore store;
+    private final Mode mode;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private float[] inverseNorms = new float[1024];
+    // links.get(node)[level] holds the neighbour count followed by the neighbour rows
+    private final List<int[][]> links = new ArrayList<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    /**
+     * Indexes a copy of the vectors in {@code store}. Later vectors must be added through the index.
+     *
+     * @param m neighbours kept per node on upper layers; layer 0 keeps {@code 2 * m}
+     * @param efConstruction candidate list size while inserting
+     * @param efSearch candidate list size while querying, raised to {@code k} when smaller
+     */
+    public VectorIndex(EmbeddingStore store, Mode mode, int m, int efConstruction, int efSearch) {
+        this.store = store.copy();
+        this.mode = mode;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1 / Math.log(Math.max(2, m));
+        for (int row = 0; row < this.store.size(); row++) {
+            index(row);
+        }
+    }
+
+    public VectorIndex(EmbeddingStore store, Mode mode) {
+        this(store, mode, 16, 200, 64);
+    }
+
+    /**
+     * An empty index for vectors of {@code dimensions} floats.
+     */
+    public VectorIndex(int dimensions, Mode mode) {
+        this(new EmbeddingStore(dimensions), mode);
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * Copy of the vector stored at {@code row}.
+     */
+    public float[] get(int row) {
+        return store.get(row);
+    }
+
+    public int add(EmbeddingItem item) {
+        lock.writeLock().lock();
+        try {
+            int row = store.add(item);
+            index(row);
+            return row;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int add(float[] vector) {
+        lock.writeLock().lock();
+        try {
+            int row = store.add(vector);
+            index(row);
+            return row;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the {@code k} most similar rows, best first.
+     *
+     * @throws IllegalArgumentException if {@code k} is not positive or the query has the wrong dimension
+     */
+    public List<Match> search(float[] query, int k) {
+        checkQuery(query, k);
+        lock.readLock().lock();
+        try {
+            float inverseNorm = inverseNorm(query, 0);
+            List<Match> matches = mode == Mode.EXACT || links.isEmpty()
+                ? exactSearch(query, inverseNorm, k)
+                : graphSearch(query, inverseNorm, k);
+            matches.sort(BEST_FIRST);
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Answers many queries concurrently on virtual threads. Results are in query order.
+     */
+    public List<List<Match>> search(List<float[]> queries, int k) throws InterruptedException {
+        for (float[] query : queries) {
+            checkQuery(query, k);
+        }
+        List<Future<List<Match>>> futures = new ArrayList<>(queries.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (float[] query : queries) {
+                futures.add(executor.submit(() -> search(query, k)));
+            }
+        }
+        List<List<Match>> results = new ArrayList<>(queries.size());
+        for (Future<List<Match>> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Query failed", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Writes the vectors and, in HNSW mode, the graph into {@code directory}.
+     */
+    public void snapshot(Path directory) throws IOException {
+        lock.readLock().lock();
+        try {
+            Files.createDirectories(directory);
+            store.save(directory.resolve("vectors.bin"));
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(directory.resolve("graph.bin"))))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(mode.ordinal());
+                out.writeInt(m);
+                out.writeInt(efConstruction);
+                out.writeInt(efSearch);
+                out.writeInt(entryPoint);
+                out.writeInt(maxLevel);
+                out.writeInt(links.size());
+                for (int[][] levels : links) {
+                    out.writeInt(levels.length);
+                    for (int[] neighbours : levels) {
+                        out.writeInt(neighbours[0]);
+                        for (int i = 1; i <= neighbours[0]; i++) {
+                            out.writeInt(neighbours[i]);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Restores an index written by {@link #snapshot(Path)} without rebuilding the graph.
+     */
+    public static VectorIndex restore(Path directory) throws IOException {
+        EmbeddingStore store = EmbeddingStore.load(directory.resolve("vectors.bin"));
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+            Files.newInputStream(directory.resolve("graph.bin"))))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a vector index snapshot: " + directory);
+            }
+            Mode mode = Mode.values()[in.readInt()];
+            int m = in.readInt();
+            int efConstruction = in.readInt();
+            int efSearch = in.readInt();
+
+            VectorIndex restored = new VectorIndex(store, mode, m, efConstruction, efSearch,
+                in.readInt(), in.readInt());
+            int nodes = in.readInt();
+            for (int node = 0; node < nodes; node++) {
+                int[][] levels = new int[in.readInt()][];
+                for (int level = 0; level < levels.length; level++) {
+                    int count = in.readInt();
+                    levels[level] = new int[maxNeighbours(m, level) + 1];
+                    levels[level][0] = count;
+                    for (int i = 1; i <= count; i++) {
+                        levels[level][i] = in.readInt();
+                    }
+                }
+                restored.links.add(levels);
+            }
+            return restored;
+        }
+    }
+
+    /**
+     * Used by {@link #restore(Path)}: takes the graph entry point from the snapshot and only
+     * recomputes norms, leaving the caller to fill in the links.
+     */
+    private VectorIndex(EmbeddingStore store, Mode mode, int m, int efConstruction, int efSearch,
+                        int entryPoint, int maxLevel) {
+        this.store = store;
+        this.mode = mode;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1 / Math.log(Math.max(2, m));
+        this.entryPoint = entryPoint;
+        this.maxLevel = maxLevel;
+        for (int row = 0; row < store.size(); row++) {
+            recordNorm(row);
+        }
+    }
+
+    private void checkQuery(float[] query, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1");
+        }
+        if (query.length != store.dimensions()) {
+            throw new IllegalArgumentException(
+                "Expected " + store.dimensions() + " dimensions but got " + query.length);
+        }
+    }
+
+    private void index(int row) {
+        recordNorm(row);
+        if (mode == Mode.HNSW) {
+            insertIntoGraph(row);
+        }
+    }
+
+    private void recordNorm(int row) {
+        if (row >= inverseNorms.length) {
+            inverseNorms = Arrays.copyOf(inverseNorms, Math.max(row + 1, inverseNorms.length * 2));
+        }
+        inverseNorms[row] = inverseNorm(store.block(row), store.offset(row));
+    }
+
+    private List<Match> exactSearch(float[] query, float queryInverseNorm, int k) {
+        PriorityQueue<Match> best = new PriorityQueue<>(k + 1, WORST_FIRST);
+        int size = store.size();
+        for (int row = 0; row < size; row++) {
+            float score = similarity(query, queryInverseNorm, row);
+            if (best.size() < k) {
+                best.add(new Match(row, score));
+            } else if (score > best.peek().score) {
+                best.poll();
+                best.add(new Match(row, score));
+            }
+        }
+        return new ArrayList<>(best);
+    }
+
+    private List<Match> graphSearch(float[] query, float queryInverseNorm, int k) {
+        int current = entryPoint;
+        for (int level = maxLevel; level > 0; level--) {
+            current = greedyClosest(query, queryInverseNorm, current, level);
+        }
+        List<Match> candidates = searchLayer(query, queryInverseNorm, current, Math.max(efSearch, k), 0);
+        candidates.sort(BEST_FIRST);
+        return new ArrayList<>(candidates.subList(0, Math.min(k, candidates.size())));
+    }
+
+    private void insertIntoGraph(int row) {
+        int level = (int) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * levelMultiplier);
+        int[][] levels = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            levels[l] = new int[maxNeighbours(m, l) + 1];
+        }
+        links.add(levels);
+
+        if (entryPoint < 0) {
+            entryPoint = row;
+            maxLevel = level;
+            return;
+        }
+
+        float[] vector = store.get(row);
+        float inverseNorm = inverseNorms[row];
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(vector, inverseNorm, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Match> candidates = searchLayer(vector, inverseNorm, current, efConstruction, l);
+            candidates.sort(BEST_FIRST);
+            int limit = Math.min(m, candidates.size());
+            for (int i = 0; i < limit; i++) {
+                int neighbour = candidates.get(i).row;
+                connect(row, neighbour, l);
+                connect(neighbour, row, l);
+            }
+            current = candidates.get(0).row;
+        }
+        if (level > maxLevel) {
+            entryPoint = row;
+            maxLevel = level;
+        }
+    }
+
+    /**
+     * Adds {@code to} to the neighbours of {@code from}, dropping the least similar neighbour when
+     * the list is full.
+     */
+    private void connect(int from, int to, int level) {
+        int[] neighbours = links.get(from)[level];
+        int count = neighbours[0];
+        if (count < neighbours.length - 1) {
+            neighbours[++neighbours[0]] = to;
+            return;
+        }
+        float[] base = store.get(from);
+        float baseInverseNorm = inverseNorms[from];
+        int worstSlot = -1;
+        float worstScore = similarity(base, baseInverseNorm, to);
+        for (int i = 1; i <= count; i++) {
+            float score = similarity(base, baseInverseNorm, neighbours[i]);
+            if (score < worstScore) {
+                worstScore = score;
+                worstSlot = i;
+            }
+        }
+        if (worstSlot > 0) {
+            neighbours[worstSlot] = to;
+        }
+    }
+
+    private int greedyClosest(float[] query, float queryInverseNorm, int start, int level) {
+        int current = start;
+        float currentScore = similarity(query, queryInverseNorm, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links.get(current)[level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                float score = similarity(query, queryInverseNorm, neighbours[i]);
+                if (score > currentScore) {
+                    currentScore = score;
+                    current = neighbours[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private List<Match> searchLayer(float[] query, float queryInverseNorm, int start, int ef, int level) {
+        BitSet visited = new BitSet(links.size());
+        PriorityQueue<Match> candidates = new PriorityQueue<>(BEST_FIRST);
+        PriorityQueue<Match> results = new PriorityQueue<>(WORST_FIRST);
+
+        Match first = new Match(start, similarity(query, queryInverseNorm, start));
+        visited.set(start);
+        candidates.add(first);
+        results.add(first);
+
+        while (!candidates.isEmpty()) {
+            Match candidate = candidates.poll();
+            if (results.size() >= ef && candidate.score < results.peek().score) {
+                break;
+            }
+            int[] neighbours = links.get(candidate.row)[level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float score = similarity(query, queryInverseNorm, neighbour);
+                if (results.size() < ef || score > results.peek().score) {
+                    Match match = new Match(neighbour, score);
+                    candidates.add(match);
+                    results.add(match);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(results);
+    }
+
+    private float similarity(float[] query, float queryInverseNorm, int row) {
+        return dot(query, 0, store.block(row), store.offset(row), store.dimensions())
+            * queryInverseNorm * inverseNorms[row];
+    }
+
+    private float inverseNorm(float[] vector, int offset) {
+        float norm = (float) Math.sqrt(dot(vector, offset, vector, offset, store.dimensions()));
+        return norm == 0 ? 0 : 1 / norm;
+    }
+
+    private static int maxNeighbours(int m, int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    private static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, aOffset + i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bOffset + i);
+            sum = va.fma(vb, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += a[aOffset + i] * b[bOffset + i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.openai;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BpeTokenizerTest {
+    private static final String TEXT = "abc abc abd";
+
+    private static BpeTokenizer tokenizer;
+
+    /**
+     * Every single byte, then "bc" ranked ahead of "ab", then "hello" as one token.
+     */
+    @BeforeAll
+    static void loadVocabulary(@TempDir Path directory) throws IOException {
+        Base64.Encoder encoder = Base64.getEncoder();
+        List<String> lines = new ArrayList<>();
+        for (int b = 0; b < 256; b++) {
+            lines.add(encoder.encodeToString(new byte[] {(byte) b}) + " " + b);
+        }
+        String[] merges = {"bc", "ab", "hello"};
+        for (int i = 0; i < merges.length; i++) {
+            lines.add(encoder.encodeToString(merges[i].getBytes(StandardCharsets.US_ASCII)) + " " + (256 + i));
+        }
+        Path file = directory.resolve("test.tiktoken");
+        Files.write(file, lines, StandardCharsets.US_ASCII);
+        tokenizer = BpeTokenizer.load(file, BpeTokenizer.Encoding.CL100K);
+    }
+
+    @Test
+    void loadsEveryRank() {
+        assertEquals(259, tokenizer.getVocabularySize());
+    }
+
+    @Test
+    void mergesLowestRankFirst() {
+        int[] tokens = new int[16];
+        int count = tokenizer.encode(TEXT, tokens);
+        // "abc" merges "bc" before "ab"; " abd" can only merge "ab"
+        assertArrayEquals(new int[] {'a', 256, ' ', 'a', 256, ' ', 257, 'd'}, Arrays.copyOf(tokens, count));
+        assertEquals(8, tokenizer.count(TEXT));
+    }
+
+    @Test
+    void encodesWholePiecesAsOneToken() {
+        int[] tokens = new int[4];
+        assertEquals(1, tokenizer.encode("hello", tokens));
+        assertEquals(258, tokens[0]);
+        assertEquals(7, tokenizer.count("hello world"));
+    }
+
+    @Test
+    void stopsEncodingWhenTheArrayIsFull() {
+        // " abc" needs three more tokens, which do not fit after the first two
+        assertEquals(2, tokenizer.encode(TEXT, new int[3]));
+    }
+
+    @Test
+    void truncatesBetweenPieces() {
+        assertEquals("", tokenizer.truncate(TEXT, 1).toString());
+        assertEquals("abc", tokenizer.truncate(TEXT, 4).toString());
+        assertEquals("abc abc", tokenizer.truncate(TEXT, 5).toString());
+        assertEquals(TEXT, tokenizer.truncate(TEXT, 8).toString());
+        assertEquals(TEXT.length(), tokenizer.truncateIndex(TEXT, 100));
+    }
+
+    @Test
+    void countsInParallelLikeSequentially() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < 300_000; i++) {
+            text.append("hello abc ").append(i).append(" abd\n");
+            if (i % 7 == 0) {
+                text.append("  \n\n    indented bc\r\n");
+            }
+        }
+        assertEquals(tokenizer.count(text), tokenizer.countParallel(text));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.openai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.models.ChatCompletions;
+import com.azure.ai.openai.models.ChatCompletionsOptions;
+import com.azure.ai.openai.models.ChatRequestUserMessage;
+import com.azure.ai.openai.models.CompletionsOptions;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CachingOpenAIClientTest {
+    private static MockOpenAIServer mock;
+    private static OpenAIClient client;
+
+    @BeforeAll
+    static void startMock() throws IOException {
+        mock = new MockOpenAIServer(0, new MockOpenAIServer.Settings()
+            .setMedianLatency(Duration.ofMillis(1))
+            .setLatencySigma(0)
+            .setTokensPerSecond(100_000)
+            .setEmbeddingDimensions(64));
+        client = MockOpenAIServer.clientBuilder(mock.getEndpoint(), "test-key").buildClient();
+    }
+
+    @AfterAll
+    static void stopMock() {
+        mock.close();
+    }
+
+    @Test
+    void answersRepeatedRequestsFromMemory() throws IOException {
+        CachingOpenAIClient cache = new CachingOpenAIClient(client, 16, Duration.ofMinutes(1), null);
+        ChatCompletions first = cache.getChatCompletions("gpt-4o", chat("What is a token?"));
+        ChatCompletions second = cache.getChatCompletions("gpt-4o", chat("What is a token?"));
+        assertEquals(first.getId(), second.getId());
+        assertEquals(0.5, cache.getHitRate());
+
+        cache.getCompletions("gpt-35-turbo-instruct", new CompletionsOptions(List.of("Once upon a time")));
+        cache.getCompletions("gpt-35-turbo-instruct", new CompletionsOptions(List.of("Once upon a time")));
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    void missesOnceTheTimeToLiveHasPassed() throws IOException, InterruptedException {
+        CachingOpenAIClient cache = new CachingOpenAIClient(client, 16, Duration.ofMillis(20), null);
+        ChatCompletions first = cache.getChatCompletions("gpt-4o", chat("Expiring"));
+        Thread.sleep(40);
+        ChatCompletions second = cache.getChatCompletions("gpt-4o", chat("Expiring"));
+        assertNotEquals(first.getId(), second.getId());
+        assertEquals(0, cache.getHitRate());
+    }
+
+    @Test
+    void answersFromDiskAfterARestart(@TempDir Path directory) throws IOException {
+        CachingOpenAIClient before = new CachingOpenAIClient(client, 16, Duration.ofMinutes(1), directory);
+        ChatCompletions stored = before.getChatCompletions("gpt-4o", chat("Persist me"));
+        assertTrue(before.getDiskBytes() > 0);
+
+        CachingOpenAIClient after = new CachingOpenAIClient(client, 16, Duration.ofMinutes(1), directory);
+        assertEquals(stored.getId(), after.getChatCompletions("gpt-4o", chat("Persist me")).getId());
+        assertEquals(1.0, after.getHitRate());
+    }
+
+    @Test
+    void keepsTheDiskTierWithinItsLimit(@TempDir Path directory) throws IOException {
+        CachingOpenAIClient probe = new CachingOpenAIClient(client, 1, Duration.ofMinutes(1),
+            directory.resolve("probe"));
+        probe.getChatCompletions("gpt-4o", chat("Request 0"));
+        long limit = probe.getDiskBytes() * 3;
+
+        CachingOpenAIClient cache = new CachingOpenAIClient(client, 1, Duration.ofMinutes(1),
+            directory.resolve("bounded"), limit);
+        for (int i = 0; i < 10; i++) {
+            cache.getChatCompletions("gpt-4o", chat("Request " + i));
+            assertTrue(cache.getDiskBytes() <= limit, "disk bytes " + cache.getDiskBytes() + " over " + limit);
+        }
+        // The newest response survives eviction, the oldest does not
+        cache.getChatCompletions("gpt-4o", chat("Request 9"));
+        assertEquals(1 / 11.0, cache.getHitRate(), 1e-9);
+        cache.getChatCompletions("gpt-4o", chat("Request 0"));
+        assertEquals(1 / 12.0, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    void countsASemanticHitOnce() throws IOException {
+        // A threshold of -1 matches any earlier request
+        CachingOpenAIClient cache = new CachingOpenAIClient(client, 16, Duration.ofMinutes(1), null)
+            .enableSemanticTier("text-embedding-3-small", -1f);
+        ChatCompletions first = cache.getChatCompletions("gpt-4o", chat("How do I reset my password?"));
+        ChatCompletions similar = cache.getChatCompletions("gpt-4o", chat("How can I change my password?"));
+        assertEquals(first.getId(), similar.getId());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    private static ChatCompletionsOptions chat(String question) {
+        return new ChatCompletionsOptions(List.of(new ChatRequestUserMessage(question)));
+    }
+}
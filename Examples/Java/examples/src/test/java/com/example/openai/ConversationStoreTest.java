@@ -0,0 +1,126 @@
+package com.example.openai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.azure.ai.openai.models.ChatCompletionsFunctionToolCall;
+import com.azure.ai.openai.models.ChatRequestAssistantMessage;
+import com.azure.ai.openai.models.ChatRequestMessage;
+import com.azure.ai.openai.models.ChatRequestSystemMessage;
+import com.azure.ai.openai.models.ChatRequestToolMessage;
+import com.azure.ai.openai.models.ChatRequestUserMessage;
+import com.azure.ai.openai.models.FunctionCall;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Every message counts as 10 tokens plus the store's overhead of 4, so a budget of 100 holds the
+ * prefix and six messages, and a low-water mark of 75 keeps the prefix and four.
+ */
+class ConversationStoreTest {
+    private static final TokenCounter TEN_TOKENS = text -> 10;
+
+    private final ChatRequestSystemMessage system = new ChatRequestSystemMessage("You are terse.");
+
+    @Test
+    void cutsBackToTheLowWaterMarkInOneStep() {
+        ConversationStore store = new ConversationStore(TEN_TOKENS, 100, 0.75, null);
+        store.setPrefix("s", List.of(system));
+        List<ChatRequestMessage> turns = users(8);
+        for (int i = 0; i < 6; i++) {
+            store.append("s", turns.get(i));
+        }
+        assertEquals(98, store.getTokenCount("s"));
+
+        store.append("s", turns.get(6));
+        assertEquals(List.of(system, turns.get(3), turns.get(4), turns.get(5), turns.get(6)), store.messages("s"));
+        assertEquals(70, store.getTokenCount("s"));
+
+        // The next turn fits again, so the front of the history stays the same
+        store.append("s", turns.get(7));
+        assertEquals(turns.get(3), store.messages("s").get(1));
+        assertEquals(84, store.getTokenCount("s"));
+    }
+
+    @Test
+    void dropsToolResultsWithTheCallThatRequestedThem() {
+        ConversationStore store = new ConversationStore(TEN_TOKENS, 100, 0.75, null);
+        store.setPrefix("s", List.of(system));
+        ChatRequestAssistantMessage call = new ChatRequestAssistantMessage("").setToolCalls(List.of(
+            new ChatCompletionsFunctionToolCall("call_1", new FunctionCall("weather", "{\"city\":\"Bern\"}")),
+            new ChatCompletionsFunctionToolCall("call_2", new FunctionCall("weather", "{\"city\":\"Thun\"}"))));
+        ChatRequestToolMessage bern = new ChatRequestToolMessage("12C", "call_1");
+        ChatRequestToolMessage thun = new ChatRequestToolMessage("14C", "call_2");
+        ChatRequestUserMessage question = new ChatRequestUserMessage("Which is warmer?");
+        ChatRequestAssistantMessage answer = new ChatRequestAssistantMessage("Thun.");
+
+        store.append("s", new ChatRequestUserMessage("Hi"), new ChatRequestUserMessage("Weather?"), call);
+        store.append("s", bern, thun, question);
+        store.append("s", answer);
+
+        // The low-water mark is reached after the call, but its results must not lead the history
+        assertEquals(List.of(system, question, answer), store.messages("s"));
+        assertEquals(42, store.getTokenCount("s"));
+    }
+
+    @Test
+    void foldsDroppedMessagesIntoASummary() {
+        List<String> previousSummaries = new ArrayList<>();
+        List<List<ChatRequestMessage>> droppedBatches = new ArrayList<>();
+        ConversationStore store = new ConversationStore(TEN_TOKENS, 100, 0.75, (previous, dropped) -> {
+            previousSummaries.add(previous);
+            droppedBatches.add(dropped);
+            return "summary " + droppedBatches.size();
+        });
+        store.setPrefix("s", List.of(system));
+        List<ChatRequestMessage> turns = users(7);
+        for (ChatRequestMessage turn : turns) {
+            store.append("s", turn);
+        }
+
+        assertEquals(List.of(turns.subList(0, 3)), droppedBatches);
+        assertNull(previousSummaries.get(0));
+        List<ChatRequestMessage> messages = store.messages("s");
+        assertEquals(6, messages.size());
+        assertEquals(system, messages.get(0));
+        assertInstanceOf(ChatRequestSystemMessage.class, messages.get(1));
+        assertTrue(messages.get(1) != system);
+        assertEquals(turns.subList(3, 7), messages.subList(2, 6));
+        assertEquals(84, store.getTokenCount("s"));
+    }
+
+    @Test
+    void keepsTheHistoryWhenTheSummarizerFails() {
+        boolean[] failing = {true};
+        ConversationStore store = new ConversationStore(TEN_TOKENS, 100, 0.75, (previous, dropped) -> {
+            if (failing[0]) {
+                throw new IllegalStateException("summarizer unavailable");
+            }
+            return "summary";
+        });
+        List<ChatRequestMessage> turns = users(8);
+        for (int i = 0; i < 7; i++) {
+            store.append("s", turns.get(i));
+        }
+        assertThrows(IllegalStateException.class, () -> store.append("s", turns.get(7)));
+        assertEquals(turns, store.messages("s"));
+        assertEquals(112, store.getTokenCount("s"));
+
+        failing[0] = false;
+        store.append("s", new ChatRequestUserMessage("again"));
+        assertEquals(turns.subList(4, 8), store.messages("s").subList(1, 5));
+        assertEquals(84, store.getTokenCount("s"));
+    }
+
+    private static List<ChatRequestMessage> users(int count) {
+        List<ChatRequestMessage> messages = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            messages.add(new ChatRequestUserMessage("Turn " + i));
+        }
+        return messages;
+    }
+}
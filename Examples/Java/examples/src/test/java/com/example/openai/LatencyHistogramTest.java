@@ -0,0 +1,62 @@
+package com.example.openai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+    @Test
+    void reportsZeroWhenEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram("empty");
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.meanMillis());
+        assertEquals(0, histogram.percentileNanos(99));
+    }
+
+    @Test
+    void keepsSmallValuesExact() {
+        LatencyHistogram histogram = new LatencyHistogram("small");
+        for (long nanos = 0; nanos < 16; nanos++) {
+            histogram.record(nanos);
+        }
+        assertEquals(7, histogram.percentileNanos(50));
+        assertEquals(15, histogram.percentileNanos(100));
+    }
+
+    @Test
+    void boundsPercentilesWithinTheBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram("uniform");
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(0.5005, histogram.meanMillis(), 1e-9);
+        for (double percentile : new double[] {1, 50, 90, 99, 99.9, 100}) {
+            long exact = (long) Math.ceil(1000 * percentile / 100) * 1000;
+            long reported = histogram.percentileNanos(percentile);
+            // The upper bound of the bucket, at most one sub-bucket (1/16) above the value
+            assertTrue(reported >= exact && reported <= exact * 17 / 16,
+                "p" + percentile + ": " + reported + " for " + exact);
+        }
+        assertEquals(histogram.percentileNanos(100) / 1e6, histogram.percentileMillis(100));
+    }
+
+    @Test
+    void countsConcurrentRecords() {
+        LatencyHistogram histogram = new LatencyHistogram("concurrent");
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            for (int thread = 0; thread < 4; thread++) {
+                executor.execute(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        histogram.record(1_000_000);
+                    }
+                });
+            }
+        }
+        assertEquals(40_000, histogram.count());
+        assertEquals(1.0, histogram.meanMillis(), 1e-9);
+    }
+}
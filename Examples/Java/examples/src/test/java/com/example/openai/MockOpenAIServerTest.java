@@ -0,0 +1,124 @@
+package com.example.openai;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.models.ChatCompletions;
+import com.azure.ai.openai.models.ChatCompletionsOptions;
+import com.azure.ai.openai.models.ChatRequestUserMessage;
+import com.azure.ai.openai.models.CompletionsFinishReason;
+import com.azure.ai.openai.models.EmbeddingItem;
+import com.azure.ai.openai.models.Embeddings;
+import com.azure.ai.openai.models.EmbeddingsOptions;
+import com.azure.ai.openai.models.SpeechGenerationOptions;
+import com.azure.ai.openai.models.SpeechVoice;
+import com.azure.core.exception.HttpResponseException;
+import com.azure.core.http.HttpClient;
+import com.azure.core.http.policy.ExponentialBackoffOptions;
+import com.azure.core.http.policy.RetryOptions;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Drives the SDK client and the examples' HTTP paths end to end against the mock.
+ */
+class MockOpenAIServerTest {
+    private static MockOpenAIServer mock;
+    private static OpenAIClient client;
+
+    @BeforeAll
+    static void startMock() throws IOException {
+        mock = new MockOpenAIServer(0, fast().setEmbeddingDimensions(32));
+        client = MockOpenAIServer.clientBuilder(mock.getEndpoint(), "test-key").buildClient();
+    }
+
+    @AfterAll
+    static void stopMock() {
+        mock.close();
+    }
+
+    @Test
+    void answersChatCompletions() {
+        ChatCompletions completions = client.getChatCompletions("gpt-4o",
+            new ChatCompletionsOptions(List.of(new ChatRequestUserMessage("Hello"))).setMaxTokens(5));
+        assertEquals(1, completions.getChoices().size());
+        assertFalse(completions.getChoices().get(0).getMessage().getContent().isBlank());
+        assertEquals(CompletionsFinishReason.STOPPED, completions.getChoices().get(0).getFinishReason());
+        assertEquals(5, completions.getUsage().getCompletionTokens());
+    }
+
+    @Test
+    void streamsOneChunkPerToken() {
+        StringBuilder content = new StringBuilder();
+        int[] contentChunks = {0};
+        client.getChatCompletionsStream("gpt-4o",
+                new ChatCompletionsOptions(List.of(new ChatRequestUserMessage("Hello"))).setMaxTokens(8))
+            .forEach(chunk -> chunk.getChoices().forEach(choice -> {
+                if (choice.getDelta() != null && choice.getDelta().getContent() != null
+                    && !choice.getDelta().getContent().isEmpty()) {
+                    content.append(choice.getDelta().getContent());
+                    contentChunks[0]++;
+                }
+            }));
+        assertEquals(8, contentChunks[0]);
+        assertFalse(content.toString().isBlank());
+    }
+
+    @Test
+    void embedsEqualInputsIdentically() {
+        Embeddings embeddings = client.getEmbeddings("text-embedding-3-small",
+            new EmbeddingsOptions(List.of("same", "other", "same")));
+        List<EmbeddingItem> data = embeddings.getData();
+        assertEquals(3, data.size());
+        assertEquals(32, data.get(0).getEmbedding().size());
+        assertArrayEquals(data.get(0).getEmbedding().toArray(), data.get(2).getEmbedding().toArray());
+        assertFalse(data.get(0).getEmbedding().equals(data.get(1).getEmbedding()));
+    }
+
+    @Test
+    void streamsSpeechToAFile(@TempDir Path directory) throws IOException {
+        StreamingSpeechWriter writer = new StreamingSpeechWriter(HttpClient.createDefault(), mock.getEndpoint(),
+            "test-key", "tts");
+        Path output = directory.resolve("hello.wav");
+        StreamingSpeechWriter.SpeechResult result = writer
+            .write(new SpeechGenerationOptions("Hello", SpeechVoice.ALLOY), output)
+            .block(Duration.ofSeconds(30));
+        assertEquals(32 * 1024, result.getBytes());
+        assertEquals(32 * 1024, Files.size(output));
+    }
+
+    @Test
+    void surfacesInjectedFaultsWithoutRetries() throws IOException {
+        try (MockOpenAIServer failing = new MockOpenAIServer(0, fast().setErrorRate(1));
+             MockOpenAIServer throttling = new MockOpenAIServer(0, fast().setThrottleRate(1))) {
+            assertEquals(500, statusOf(failing));
+            assertEquals(429, statusOf(throttling));
+        }
+    }
+
+    private static int statusOf(MockOpenAIServer server) {
+        OpenAIClient noRetries = MockOpenAIServer.clientBuilder(server.getEndpoint(), "test-key")
+            .retryOptions(new RetryOptions(new ExponentialBackoffOptions().setMaxRetries(0)))
+            .buildClient();
+        HttpResponseException e = assertThrows(HttpResponseException.class, () -> noRetries.getChatCompletions(
+            "gpt-4o", new ChatCompletionsOptions(List.of(new ChatRequestUserMessage("Hello")))));
+        return e.getResponse().getStatusCode();
+    }
+
+    private static MockOpenAIServer.Settings fast() {
+        return new MockOpenAIServer.Settings()
+            .setMedianLatency(Duration.ofMillis(1))
+            .setLatencySigma(0)
+            .setTokensPerSecond(100_000);
+    }
+}
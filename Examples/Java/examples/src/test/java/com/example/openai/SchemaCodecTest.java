@@ -0,0 +1,108 @@
+package com.example.openai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SchemaCodecTest {
+    enum Unit {
+        CELSIUS, FAHRENHEIT
+    }
+
+    record Location(String city, double latitude, double longitude) {
+    }
+
+    record Forecast(Location location, Unit unit, int days, boolean alerts, List<Long> highs, String note) {
+    }
+
+    static class Reading {
+        String sensor;
+        float value;
+    }
+
+    private static final String FORECAST = "{\"location\": {\"city\": \"Z\\u00fcrich \\\"old town\\\"\","
+        + " \"latitude\": 47.37, \"longitude\": 8.54}, \"unit\": \"CELSIUS\", \"days\": 3, \"alerts\": false,"
+        + " \"highs\": [21, -2, 100], \"note\": \"line\\nbreak\"}";
+
+    private static final Forecast EXPECTED = new Forecast(new Location("Zürich \"old town\"", 47.37, 8.54),
+        Unit.CELSIUS, 3, false, List.of(21L, -2L, 100L), "line\nbreak");
+
+    @Test
+    void decodesRecordsEnumsListsAndEscapes() {
+        assertEquals(EXPECTED, SchemaCodec.of(Forecast.class).decode(FORECAST));
+    }
+
+    @Test
+    void decodesInAnyPropertyOrder() {
+        Location location = SchemaCodec.of(Location.class)
+            .decode("{\"longitude\":8.54,\"city\":\"Bern\",\"latitude\":46.95}");
+        assertEquals(new Location("Bern", 46.95, 8.54), location);
+    }
+
+    @Test
+    void decodesPlainClasses() {
+        Reading reading = SchemaCodec.of(Reading.class).decode("{\"value\": 1.5, \"sensor\": \"t1\"}");
+        assertEquals("t1", reading.sensor);
+        assertEquals(1.5f, reading.value);
+    }
+
+    @Test
+    void decodesFragmentsOfEverySize() {
+        for (int size = 1; size <= 8; size++) {
+            SchemaCodec.Decoder<Forecast> decoder = SchemaCodec.of(Forecast.class).newDecoder();
+            for (int i = 0; i < FORECAST.length(); i += size) {
+                boolean last = i + size >= FORECAST.length();
+                assertEquals(last, decoder.feed(FORECAST.substring(i, Math.min(i + size, FORECAST.length()))));
+            }
+            assertEquals(EXPECTED, decoder.finish(), "fragments of " + size);
+        }
+    }
+
+    @Test
+    void rejectsIncompleteDocuments() {
+        SchemaCodec.Decoder<Location> decoder = SchemaCodec.of(Location.class).newDecoder();
+        assertFalse(decoder.feed("{\"city\": \"Bern\", \"latitude\": 46.95"));
+        assertFalse(decoder.isComplete());
+        assertThrows(IllegalArgumentException.class, decoder::finish);
+    }
+
+    @Test
+    void rejectsInputThatDoesNotMatchTheSchema() {
+        SchemaCodec<Location> codec = SchemaCodec.of(Location.class);
+        // Missing, unknown, duplicate, null and mistyped properties
+        assertThrows(IllegalArgumentException.class, () -> codec.decode("{\"city\":\"Bern\",\"latitude\":1}"));
+        assertThrows(IllegalArgumentException.class,
+            () -> codec.decode("{\"city\":\"Bern\",\"latitude\":1,\"longitude\":2,\"zip\":3000}"));
+        assertThrows(IllegalArgumentException.class,
+            () -> codec.decode("{\"city\":\"Bern\",\"city\":\"Thun\",\"latitude\":1,\"longitude\":2}"));
+        assertThrows(IllegalArgumentException.class,
+            () -> codec.decode("{\"city\":null,\"latitude\":1,\"longitude\":2}"));
+        assertThrows(IllegalArgumentException.class,
+            () -> codec.decode("{\"city\":\"Bern\",\"latitude\":\"north\",\"longitude\":2}"));
+        assertThrows(IllegalArgumentException.class,
+            () -> SchemaCodec.of(Forecast.class).decode(FORECAST.replace("CELSIUS", "KELVIN")));
+        assertThrows(IllegalArgumentException.class,
+            () -> SchemaCodec.of(Forecast.class).decode(FORECAST.replace("\"days\": 3", "\"days\": 3.5")));
+    }
+
+    @Test
+    void rejectsMalformedJson() {
+        SchemaCodec<Location> codec = SchemaCodec.of(Location.class);
+        assertThrows(IllegalArgumentException.class, () -> codec.decode("[]"));
+        assertThrows(IllegalArgumentException.class,
+            () -> codec.decode("{\"city\":\"Bern\" \"latitude\":1,\"longitude\":2}"));
+        assertThrows(IllegalArgumentException.class,
+            () -> codec.decode("{\"city\":\"Bern\",\"latitude\":1,\"longitude\":2}}"));
+    }
+
+    @Test
+    void generatesAStrictSchema() {
+        String schema = SchemaCodec.of(Location.class).schema().toString();
+        assertTrue(schema.contains("\"additionalProperties\":false"), schema);
+        assertTrue(schema.contains("\"required\":[\"city\",\"latitude\",\"longitude\"]"), schema);
+    }
+}
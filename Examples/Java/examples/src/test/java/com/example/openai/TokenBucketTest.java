@@ -0,0 +1,62 @@
+package com.example.openai;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+    @Test
+    void startsFullAndRunsDry() {
+        TokenBucket bucket = new TokenBucket(3, Duration.ofHours(1));
+        assertTrue(bucket.tryAcquire(2));
+        assertTrue(bucket.tryAcquire(1));
+        assertFalse(bucket.tryAcquire(1));
+    }
+
+    @Test
+    void clampsRequestsToTheCapacity() {
+        TokenBucket bucket = new TokenBucket(3, Duration.ofHours(1));
+        assertTrue(bucket.tryAcquire(10));
+        assertFalse(bucket.tryAcquire(1));
+    }
+
+    @Test
+    void refillsOverTime() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(10, Duration.ofMillis(100));
+        assertTrue(bucket.tryAcquire(10));
+        Thread.sleep(60);
+        assertTrue(bucket.tryAcquire(5));
+    }
+
+    @Test
+    void acquireWaitsForPermits() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(2, Duration.ofMillis(400));
+        bucket.acquire(2);
+        long start = System.nanoTime();
+        bucket.acquire(1);
+        // One permit takes 200 ms to come back; allow for timer slack
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(150).toNanos());
+    }
+
+    @Test
+    void pauseHoldsBackPermitsUntilItEnds() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(5, Duration.ofMillis(10));
+        bucket.pause(Duration.ofMillis(300));
+        // A shorter pause must not cut the longer one short
+        bucket.pause(Duration.ofMillis(1));
+        Thread.sleep(20);
+        assertFalse(bucket.tryAcquire(1));
+
+        long start = System.nanoTime();
+        bucket.acquire(1);
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(200).toNanos());
+    }
+
+    @Test
+    void rejectsAnEmptyBucket() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, Duration.ofSeconds(1)));
+    }
+}